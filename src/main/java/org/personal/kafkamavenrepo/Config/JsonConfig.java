@@ -0,0 +1,25 @@
+package org.personal.kafkamavenrepo.Config;
+
+import jakarta.annotation.PostConstruct;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the json.* settings to {@link JsonUtil}, which is static and used outside Spring too.
+ */
+@Configuration
+public class JsonConfig {
+
+    @Value("${json.failure.log-level:WARN}")
+    private Level failureLogLevel = Level.WARN;
+
+    @Value("${json.failure.payload-preview-chars:0}")
+    private int payloadPreviewChars = 0;
+
+    @PostConstruct
+    public void configureJsonUtil() {
+        JsonUtil.configureFailureLogging(failureLogLevel, payloadPreviewChars);
+    }
+}
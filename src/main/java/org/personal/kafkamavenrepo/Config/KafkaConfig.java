@@ -1,10 +1,25 @@
 package org.personal.kafkamavenrepo.Config;
 
 
-import com.fasterxml.jackson.databind.ser.std.StringSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
-import org.personal.kafkamavenrepo.Utilities.TrustedPackages;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Producer.EventKeyResolver;
+import org.personal.kafkamavenrepo.Producer.UserIdKeyResolver;
+import org.personal.kafkamavenrepo.Serialization.BinaryEventCodec;
+import org.personal.kafkamavenrepo.Serialization.EventDeserializer;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.FileSchemaRegistry;
+import org.personal.kafkamavenrepo.Serialization.InPlaceErrorHandlingDeserializer;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.personal.kafkamavenrepo.Serialization.SchemaRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,58 +28,346 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static org.personal.kafkamavenrepo.Consumer.Consumer.DLT_TOPIC_SUFFIX;
+
+/**
+ * Kafka clients and listener containers. Also configures the non-blocking retry tiers that
+ * {@code Consumer.listen} declares: failed records are republished to delay topics and finally
+ * to a dead-letter topic instead of being retried in place.
+ */
 @Configuration
 @EnableKafka
-public class KafkaConfig {
+public class KafkaConfig extends RetryTopicConfigurationSupport {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaConfig.class);
 
+    private final MeterRegistry meterRegistry;
+    private final ThreadingConfig threadingConfig;
+
     @Value("${kafka.bootstrap-servers}")
     private String bootstrapServers;
 
     @Value("${kafka.group-id}")
     private String groupId;
 
+    @Value("${kafka.producer.partitioner:}")
+    private String partitionerClass;
+
+    @Value("${kafka.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${kafka.producer.acks:all}")
+    private String acks;
+
+    @Value("${kafka.producer.enable-idempotence:true}")
+    private boolean enableIdempotence;
+
+    @Value("${kafka.serialization.binary-topics:}")
+    private String binaryTopics;
+
+    @Value("${kafka.serialization.schema-registry-file:schema-registry.json}")
+    private String schemaRegistryFile;
+
+    @Value("${kafka.consumer.concurrency:1}")
+    private int concurrency;
+
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${kafka.consumer.batch.fetch-min-bytes:1}")
+    private int batchFetchMinBytes;
+
+    @Value("${kafka.consumer.batch.fetch-max-wait-ms:500}")
+    private int batchFetchMaxWaitMs;
+
+    @Value("${kafka.consumer.batch.max-poll-interval-ms:300000}")
+    private int batchMaxPollIntervalMs;
+
+    @Value("${kafka.consumer.retry.attempts:4}")
+    private int retryAttempts = 4;
+
+    @Value("${kafka.consumer.retry.initial-delay-ms:1000}")
+    private long retryInitialDelayMs = 1000;
+
+    @Value("${kafka.consumer.retry.multiplier:5}")
+    private double retryMultiplier = 5;
+
+    @Value("${kafka.consumer.retry.max-delay-ms:60000}")
+    private long retryMaxDelayMs = 60000;
+
+    public KafkaConfig(MeterRegistry meterRegistry, ThreadingConfig threadingConfig) {
+        this.meterRegistry = meterRegistry;
+        this.threadingConfig = threadingConfig;
+    }
+
+    @Bean
+    public SchemaRegistry schemaRegistry() {
+        return new FileSchemaRegistry(Path.of(schemaRegistryFile));
+    }
+
+    @Bean
+    public BinaryEventCodec binaryEventCodec() {
+        return new BinaryEventCodec(schemaRegistry());
+    }
+
+    /**
+     * Writes the topics listed in kafka.serialization.binary-topics in the binary format and
+     * every other topic as JSON, so topics can be migrated one at a time.
+     */
+    @Bean
+    public EventSerializer eventSerializer() {
+        Set<String> topics = Arrays.stream(binaryTopics.split(","))
+                .map(String::trim)
+                .filter(topic -> !topic.isEmpty())
+                .collect(Collectors.toSet());
+        logger.info("Event topics written in the binary format: {}", topics);
+        return EventSerializer.withTopics(new JsonEventCodec(), binaryEventCodec(), topics);
+    }
+
+    /**
+     * Reads both formats, whatever the topic, based on the format header of each record.
+     * Being a bean, it is bound to the meter registry and records decode time per format.
+     */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public EventDeserializer eventDeserializer() {
+        return new EventDeserializer(new JsonEventCodec(), List.of(binaryEventCodec()));
+    }
+
+    /**
+     * Admin client settings, used to create the retry and dead-letter topics on the event cluster.
+     */
+    @Bean
+    public KafkaAdmin kafkaAdmin() {
+        return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+    }
+
+    @Bean
+    public ProducerFactory<String, Event> producerFactory() {
+        DefaultKafkaProducerFactory<String, Event> factory =
+                new DefaultKafkaProducerFactory<>(producerProperties(), new StringSerializer(), eventSerializer());
+        // Exposes the client's own metrics (batch size, record send rate, request latency, errors)
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        logger.info("ProducerFactory configuration completed successfully.");
+        return factory;
+    }
+
+    /**
+     * Publishes failed records to the retry tiers and the dead-letter topic. Events are written in
+     * the format of the destination topic; records that could not be read are forwarded as the
+     * original bytes, with their headers.
+     */
+    @Bean
+    public KafkaTemplate<String, Object> retryKafkaTemplate() {
+        DelegatingByTypeSerializer valueSerializer = new DelegatingByTypeSerializer(
+                Map.of(byte[].class, new ByteArraySerializer(), Event.class, eventSerializer()));
+        DefaultKafkaProducerFactory<String, Object> factory =
+                new DefaultKafkaProducerFactory<>(producerProperties(), new StringSerializer(), valueSerializer);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return new KafkaTemplate<>(factory);
+    }
+
+    /**
+     * Keeps the position a record was first consumed at on every tier it goes through, instead of
+     * the last tier's, since that position is the event's idempotency key.
+     */
+    @Override
+    protected Consumer<DeadLetterPublishingRecovererFactory> configureDeadLetterPublishingContainerFactory() {
+        return factory -> factory.setDeadLetterPublishingRecovererCustomizer(
+                recoverer -> recoverer.setAppendOriginalHeaders(false));
+    }
+
+    /**
+     * @throws IllegalStateException If idempotence is enabled with acks other than all, which the
+     * producer would only reject at its first send.
+     */
+    Map<String, Object> producerProperties() {
+        if (enableIdempotence && !acks.equals("all") && !acks.equals("-1")) {
+            throw new IllegalStateException("kafka.producer.acks=" + acks
+                    + " cannot be used with kafka.producer.enable-idempotence=true, which requires acks=all");
+        }
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        logger.info("ProducerFactory configuration completed successfully.");
-        return new DefaultKafkaProducerFactory<>(configProps);
+        // Throughput: let records for one partition accumulate briefly and ship them compressed
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        // Idempotence keeps per-partition order with several requests in flight
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, enableIdempotence);
+        if (!partitionerClass.isBlank()) {
+            // Keyed records use murmur2 over the key unless a custom partitioner is configured
+            configProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, partitionerClass);
+        }
+        return configProps;
     }
 
+    /**
+     * The key resolver the producer and the outbox use; change it here to key events differently.
+     */
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public EventKeyResolver eventKeyResolver() {
+        return new UserIdKeyResolver();
+    }
+
+    @Bean
+    public KafkaTemplate<String, Event> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
 
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, Event> consumerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class.getName());
-        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, String.join(",", TrustedPackages.PACKAGES));
         logger.info("ConsumerFactory configuration completed successfully.");
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        return withClientMetrics(new DefaultKafkaConsumerFactory<>(configProps,
+                new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new InPlaceErrorHandlingDeserializer<>(eventDeserializer())));
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<String, Event> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Event> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // Events are keyed by user, so one consumer thread per partition keeps per-user order
+        factory.setConcurrency(concurrency);
+        threadingConfig.listenerTaskExecutor("kafka-listener-")
+                .ifPresent(factory.getContainerProperties()::setListenerTaskExecutor);
         logger.info("KafkaListenerContainerFactory configuration completed successfully.");
         return factory;
     }
+
+    @Bean
+    public ConsumerFactory<String, Event> batchConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        configProps.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchFetchMinBytes);
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchFetchMaxWaitMs);
+        configProps.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, batchMaxPollIntervalMs);
+        logger.info("Batch ConsumerFactory configuration completed successfully.");
+        // Unreadable values arrive as null so the listener can skip them without failing the batch
+        return withClientMetrics(new DefaultKafkaConsumerFactory<>(configProps,
+                new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new InPlaceErrorHandlingDeserializer<>(eventDeserializer())));
+    }
+
+    /**
+     * Listener container factory delivering a whole poll as one {@code List<ConsumerRecord>}.
+     * Offsets are committed once the listener returns, i.e. after the batch has been applied.
+     * A failed batch is handled by {@link #batchErrorHandler()}.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Event> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Event> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(batchErrorHandler());
+        threadingConfig.listenerTaskExecutor("kafka-batch-listener-")
+                .ifPresent(factory.getContainerProperties()::setListenerTaskExecutor);
+        logger.info("Batch KafkaListenerContainerFactory configuration completed successfully.");
+        return factory;
+    }
+
+    /**
+     * Batch records cannot be handed to the retry tiers one by one. The listener reports the index
+     * of the record that failed: the records before it are committed, and the batch is redelivered
+     * from it with the backoff of the retry tiers. Once every attempt has failed, the record is
+     * published to the dead-letter topic, where {@code DeadLetterReplayer} re-drives it, and the
+     * rest of the batch goes on.
+     */
+    private DefaultErrorHandler batchErrorHandler() {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(retryKafkaTemplate(),
+                // Partitioned by key, the dead-letter topic may have fewer partitions than the main one
+                (record, exception) -> new TopicPartition(record.topic() + DLT_TOPIC_SUFFIX, -1));
+        // Same idempotency key as the records dead-lettered by the retry tiers
+        recoverer.setAppendOriginalHeaders(false);
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryAttempts - 1);
+        backOff.setInitialInterval(retryInitialDelayMs);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxDelayMs);
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
+
+    /**
+     * Consumer without a group, for listeners that assign themselves every partition of a topic
+     * and start from its end. Nothing is committed, so no group is left behind when an instance
+     * goes away.
+     */
+    @Bean
+    public ConsumerFactory<String, Event> broadcastConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        return withClientMetrics(new DefaultKafkaConsumerFactory<>(configProps,
+                new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new InPlaceErrorHandlingDeserializer<>(eventDeserializer())));
+    }
+
+    /**
+     * Listener container factory for {@link #broadcastConsumerFactory()}. Records are never
+     * acknowledged, so the container never commits.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Event> broadcastKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Event> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(broadcastConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    /**
+     * Raw consumer for re-driving the dead-letter topic: values stay bytes so records that could
+     * not be read are forwarded unchanged, and offsets are only committed once the records are
+     * back on the main topic.
+     */
+    @Bean
+    public ConsumerFactory<String, byte[]> deadLetterConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        DefaultKafkaConsumerFactory<String, byte[]> factory =
+                new DefaultKafkaConsumerFactory<>(configProps, new StringDeserializer(), new ByteArrayDeserializer());
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    /**
+     * Exposes the consumer client's own metrics, among them the lag of each assigned partition
+     * (kafka.consumer.fetch.manager.records.lag, tagged by topic and partition) and fetch sizes.
+     */
+    private ConsumerFactory<String, Event> withClientMetrics(DefaultKafkaConsumerFactory<String, Event> factory) {
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
 }
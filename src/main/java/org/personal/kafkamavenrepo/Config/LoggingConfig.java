@@ -0,0 +1,22 @@
+package org.personal.kafkamavenrepo.Config;
+
+import jakarta.annotation.PostConstruct;
+import org.personal.kafkamavenrepo.Utilities.LogRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the pipeline.logging.* settings to {@link LogRateLimiter}, which is static so the
+ * pipeline classes can hold their limiters in static fields next to their loggers.
+ */
+@Configuration
+public class LoggingConfig {
+
+    @Value("${pipeline.logging.debug-lines-per-second:100}")
+    private int debugLinesPerSecond = 100;
+
+    @PostConstruct
+    public void configureLogRateLimiter() {
+        LogRateLimiter.configure(debugLinesPerSecond);
+    }
+}
@@ -0,0 +1,101 @@
+package org.personal.kafkamavenrepo.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.annotation.QueryAnnotation;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the derived query methods of the application's repositories against the fields of their
+ * domain types before any bean is created, so a method such as {@code findByEventName} on a
+ * document without an {@code eventName} field stops startup with one clear message instead of
+ * failing on first use.
+ */
+@Component
+public class RepositoryQueryValidator implements BeanFactoryPostProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryQueryValidator.class);
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (!AutoConfigurationPackages.has(beanFactory)) {
+            return;
+        }
+
+        List<String> problems = new ArrayList<>();
+        int checked = 0;
+        for (Class<?> repositoryInterface : findRepositoryInterfaces(AutoConfigurationPackages.get(beanFactory), beanFactory.getBeanClassLoader())) {
+            problems.addAll(validate(repositoryInterface));
+            checked++;
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid repository query methods:\n  " + String.join("\n  ", problems));
+        }
+        logger.info("Validated the query methods of {} repositories.", checked);
+    }
+
+    /**
+     * Parses every derived query method declared on a repository interface. Default methods and
+     * methods with an explicit query are skipped.
+     *
+     * @param repositoryInterface The repository interface.
+     * @return One message per method that does not map onto the domain type; empty if all do.
+     */
+    static List<String> validate(Class<?> repositoryInterface) {
+        Class<?> domainType = AbstractRepositoryMetadata.getMetadata(repositoryInterface).getDomainType();
+        List<String> problems = new ArrayList<>();
+        for (Method method : repositoryInterface.getDeclaredMethods()) {
+            if (method.isDefault() || method.isSynthetic() || Modifier.isStatic(method.getModifiers())
+                    || AnnotatedElementUtils.hasAnnotation(method, QueryAnnotation.class)) {
+                continue;
+            }
+            try {
+                new PartTree(method.getName(), domainType);
+            } catch (RuntimeException e) {
+                problems.add(repositoryInterface.getSimpleName() + "." + method.getName() + ": " + e.getMessage());
+            }
+        }
+        return problems;
+    }
+
+    private static List<Class<?>> findRepositoryInterfaces(List<String> basePackages, ClassLoader classLoader) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                // Nested interfaces are not picked up as repositories either
+                return beanDefinition.getMetadata().isInterface()
+                        && !beanDefinition.getMetadata().hasEnclosingClass()
+                        && !beanDefinition.getMetadata().hasAnnotation(NoRepositoryBean.class.getName());
+            }
+        };
+        scanner.addIncludeFilter(new AssignableTypeFilter(Repository.class));
+
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (String basePackage : basePackages) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                interfaces.add(ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader));
+            }
+        }
+        return interfaces;
+    }
+}
@@ -0,0 +1,148 @@
+package org.personal.kafkamavenrepo.Config;
+
+import com.mongodb.client.MongoClient;
+import jakarta.annotation.PostConstruct;
+import org.personal.kafkamavenrepo.Utilities.PipelineThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.util.Optional;
+import java.util.jar.Manifest;
+
+/**
+ * Opt-in virtual threads for the pipeline's blocking work: Kafka listener containers, replay
+ * lanes and scheduled tasks such as the outbox relay.
+ * <p>
+ * Virtual threads only pay off when a blocking call unmounts them. A driver that blocks inside
+ * {@code synchronized} pins its carrier thread instead, and a few pinned calls stall every other
+ * virtual thread. With pipeline.threads.require-pinning-safe-drivers, the mode therefore falls back
+ * to platform threads unless the Postgres and Mongo drivers are releases that lock with
+ * {@code java.util.concurrent} on their I/O paths. To find the remaining cases, start the JVM with
+ * {@code -Djdk.tracePinnedThreads=short}, which prints a stack trace whenever a virtual thread
+ * blocks while pinned; the JDK reads it before the application starts, so it cannot be set here.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    // First releases that no longer hold a monitor around socket I/O
+    private static final Runtime.Version PINNING_SAFE_POSTGRES = Runtime.Version.parse("42.6");
+    private static final Runtime.Version PINNING_SAFE_MONGO = Runtime.Version.parse("4.11");
+
+    @Value("${pipeline.threads.virtual:false}")
+    private boolean virtualThreads = false;
+
+    @Value("${pipeline.threads.require-pinning-safe-drivers:true}")
+    private boolean requirePinningSafeDrivers = true;
+
+    @Value("${spring.task.scheduling.pool.size:1}")
+    private int schedulingPoolSize = 1;
+
+    private boolean useVirtualThreads;
+
+    @PostConstruct
+    public void configureThreads() {
+        useVirtualThreads = virtualThreads && (!requirePinningSafeDrivers || driversArePinningSafe());
+        PipelineThreads.configure(useVirtualThreads);
+        logger.info("Pipeline workers run on {} threads.", useVirtualThreads ? "virtual" : "platform");
+    }
+
+    public boolean useVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * @return An executor starting one virtual thread per listener container consumer, or empty
+     * to keep the container's default platform threads.
+     */
+    public Optional<AsyncTaskExecutor> listenerTaskExecutor(String threadNamePrefix) {
+        if (!useVirtualThreads) {
+            return Optional.empty();
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return Optional.of(executor);
+    }
+
+    /**
+     * Runs {@code @Scheduled} methods on virtual threads, so the relay's waits on Kafka acks and
+     * the database do not hold a platform thread. Replaces Spring Boot's scheduler only when the
+     * mode is configured; it stays on platform threads if the driver check fails.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "pipeline.threads.virtual", havingValue = "true")
+    public TaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulingPoolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        if (useVirtualThreads) {
+            scheduler.setThreadFactory(PipelineThreads.threadFactory("scheduling-", true));
+        }
+        return scheduler;
+    }
+
+    private static boolean driversArePinningSafe() {
+        boolean safe = true;
+        Optional<Driver> postgres = DriverManager.drivers()
+                .filter(driver -> driver.getClass().getName().equals("org.postgresql.Driver"))
+                .findFirst();
+        if (postgres.isPresent()) {
+            String version = postgres.get().getMajorVersion() + "." + postgres.get().getMinorVersion();
+            safe &= isAtLeast("Postgres JDBC", version, PINNING_SAFE_POSTGRES);
+        }
+        safe &= isAtLeast("MongoDB", mongoDriverVersion(), PINNING_SAFE_MONGO);
+        return safe;
+    }
+
+    /**
+     * The driver's own version constant is internal API, so the version is read from its jar
+     * manifest: the Implementation-Version if packaged with one, else the OSGi Bundle-Version the
+     * driver jars carry.
+     */
+    private static String mongoDriverVersion() {
+        String version = MongoClient.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+        String classFile = MongoClient.class.getName().replace('.', '/') + ".class";
+        URL classUrl = MongoClient.class.getClassLoader().getResource(classFile);
+        if (classUrl == null) {
+            return "unknown";
+        }
+        String jarRoot = classUrl.toString().substring(0, classUrl.toString().length() - classFile.length());
+        try (InputStream in = URI.create(jarRoot + "META-INF/MANIFEST.MF").toURL().openStream()) {
+            version = new Manifest(in).getMainAttributes().getValue("Bundle-Version");
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Cannot read the MongoDB driver manifest", e);
+        }
+        return version != null ? version : "unknown";
+    }
+
+    private static boolean isAtLeast(String driver, String version, Runtime.Version required) {
+        try {
+            if (Runtime.Version.parse(version).compareToIgnoreOptional(required) >= 0) {
+                return true;
+            }
+        } catch (IllegalArgumentException e) {
+            // Unknown version format: assume the worst
+        }
+        logger.warn("{} driver {} may pin virtual threads (needs {}+), pipeline workers stay on platform threads.",
+                driver, version, required);
+        return false;
+    }
+}
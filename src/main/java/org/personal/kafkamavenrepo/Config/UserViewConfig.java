@@ -0,0 +1,97 @@
+package org.personal.kafkamavenrepo.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.LogAndContinueExceptionHandler;
+import org.apache.kafka.streams.kstream.KTable;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.Stores;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Serialization.EventDeserializer;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Service.UserView;
+import org.personal.kafkamavenrepo.Service.UserViewTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs {@link UserViewTopology} in a Kafka Streams application next to the listeners, with its
+ * tables in RocksDB under kafka.streams.user-view.state-dir, and exposes the {@link UserView}
+ * that {@code UserService} reads from.
+ * <p>
+ * Off unless kafka.streams.user-view.enabled is true. Lookups by username then no longer read
+ * their own writes: a user renamed, edited or deleted is still served from the view in its old
+ * state until the outbox relay has published the event and the topology has applied it.
+ */
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "kafka.streams.user-view.enabled", havingValue = "true")
+public class UserViewConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserViewConfig.class);
+
+    @Value("${kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${kafka.topic:test-topic}")
+    private String topic = "test-topic";
+
+    @Value("${kafka.streams.user-view.application-id:user-view}")
+    private String applicationId = "user-view";
+
+    @Value("${kafka.streams.user-view.state-dir:${java.io.tmpdir}/kafka-streams}")
+    private String stateDir;
+
+    @Value("${kafka.streams.user-view.standby-replicas:0}")
+    private int standbyReplicas = 0;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration kafkaStreamsConfiguration() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        configProps.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        // Warm copies of the stores on other instances, so a failover does not rebuild them from the changelog
+        configProps.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, standbyReplicas);
+        // An unreadable event is skipped, as the batch listener does, rather than stopping the view
+        configProps.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                LogAndContinueExceptionHandler.class);
+        logger.info("User view Kafka Streams configuration completed successfully.");
+        return new KafkaStreamsConfiguration(configProps);
+    }
+
+    @Bean
+    public KTable<String, Event> usersByUsername(StreamsBuilder streamsBuilder, EventSerializer eventSerializer,
+                                                 EventDeserializer eventDeserializer) {
+        Serde<Event> eventSerde = Serdes.serdeFrom(eventSerializer, eventDeserializer);
+        return UserViewTopology.define(streamsBuilder, topic, eventSerde, Stores::persistentTimestampedKeyValueStore);
+    }
+
+    @Bean
+    public UserView userView(StreamsBuilderFactoryBean streamsBuilderFactoryBean, MeterRegistry meterRegistry) {
+        return new UserView(() -> {
+            KafkaStreams streams = streamsBuilderFactoryBean.getKafkaStreams();
+            if (streams == null || streams.state() != KafkaStreams.State.RUNNING) {
+                return null;
+            }
+            return streams.store(StoreQueryParameters.fromNameAndType(
+                    UserViewTopology.USERS_BY_USERNAME, QueryableStoreTypes.keyValueStore()));
+        }, meterRegistry);
+    }
+}
@@ -1,20 +1,40 @@
 package org.personal.kafkamavenrepo.Consumer;
 
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
 import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
-import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.personal.kafkamavenrepo.Service.EventService;
+import org.personal.kafkamavenrepo.Utilities.LogRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.EnableKafka;
 
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.KafkaHeaders;
 
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 
 @EnableKafka
@@ -22,22 +42,165 @@ import org.springframework.stereotype.Component;
 public class Consumer {
 
     private static final Logger logger = LoggerFactory.getLogger(Consumer.class);
+    private static final LogRateLimiter debugLimiter = new LogRateLimiter();
+
+    static final String GROUP_ID = "my-group";
+    static final String RETRY_TOPIC_SUFFIX = "-retry";
+    public static final String DLT_TOPIC_SUFFIX = "-dlt";
 
     private final BusinessRebuildService eventReplayService;
+    private final EventService eventService;
+    private final DistributionSummary batchSize;
+    private final Timer batchApplyTimer;
+    private final Counter skippedRecords;
+    private final Counter deadLetters;
 
-    public Consumer(BusinessRebuildService eventReplayService) {
+    @Autowired
+    public Consumer(BusinessRebuildService eventReplayService, EventService eventService, MeterRegistry meterRegistry) {
         this.eventReplayService = eventReplayService;
+        this.eventService = eventService;
+        this.batchSize = DistributionSummary.builder("event.consumer.batch.size")
+                .description("Records received per batch poll")
+                .register(meterRegistry);
+        this.batchApplyTimer = Timer.builder("event.consumer.batch.apply")
+                .description("Time to deserialize and apply one batch")
+                .register(meterRegistry);
+        this.skippedRecords = Counter.builder("event.consumer.skipped")
+                .description("Unreadable records skipped by the batch listener")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("event.consumer.dead-lettered")
+                .description("Records that reached the dead-letter topic after every retry tier failed")
+                .register(meterRegistry);
     }
 
-    @KafkaListener(topics = "test-topic", groupId = "my-group")
-    public void listen(@Header(KafkaHeaders.RECEIVED_TOPIC) String topic, String message) {
+    /**
+     * Record mode. A record that fails is not retried in place, which would stall its partition:
+     * it is republished to the first retry tier and consumed again there after a delay, each tier
+     * waiting longer than the previous one, and lands on the dead-letter topic once every attempt
+     * has failed. Unreadable records go to the dead-letter topic directly.
+     *
+     * @param record The record, whose value is the event.
+     */
+    @RetryableTopic(attempts = "${kafka.consumer.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${kafka.consumer.retry.initial-delay-ms:1000}",
+                    multiplierExpression = "${kafka.consumer.retry.multiplier:5}",
+                    maxDelayExpression = "${kafka.consumer.retry.max-delay-ms:60000}"),
+            kafkaTemplate = "retryKafkaTemplate",
+            retryTopicSuffix = RETRY_TOPIC_SUFFIX, dltTopicSuffix = DLT_TOPIC_SUFFIX,
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            autoCreateTopics = "${kafka.consumer.retry.auto-create-topics:true}",
+            // A failing dead-letter handler must not send the record back to the dead-letter topic
+            dltStrategy = DltStrategy.FAIL_ON_ERROR)
+    @KafkaListener(topics = "${kafka.topic:test-topic}", groupId = GROUP_ID,
+            autoStartup = "#{!${kafka.consumer.batch.enabled:false}}")
+    public void listen(ConsumerRecord<String, Event> record) {
+        Event event = record.value();
         try {
-            Event event = JsonUtil.deserialize(message, Event.class);
+            // Record-at-a-time offsets may be committed right after this returns, so the event is
+            // stored before moving on; batch mode appends a whole poll per bulk write instead
+            event.setSourceKey(sourceKeyOf(record));
+            eventService.appendEvents(List.of(event));
             eventReplayService.handleEvent(event);
-            logger.info("Received event from topic {}: {}", topic, event);
-        } catch (Exception e) {
-            logger.error("Error processing message from topic {}: {}", topic, message, e);
-            // Optionally, handle the error, e.g., send the message to a dead-letter topic
+            if (logger.isDebugEnabled() && debugLimiter.tryAcquire()) {
+                logger.debug("Applied event {} {} {} {}", kv("topic", record.topic()), kv("type", event.getType()),
+                        kv("eventId", event.getId()), kv("aggregateId", event.getAggregateId()));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply event {} {} {}, handing it to the next retry tier", kv("topic", record.topic()),
+                    kv("eventId", event.getId()), kv("aggregateId", event.getAggregateId()));
+            throw e;
+        }
+    }
+
+    /**
+     * Receives the records every retry tier failed on. They stay on the dead-letter topic until
+     * {@link DeadLetterReplayer} re-drives them.
+     */
+    @DltHandler
+    public void handleDeadLetter(ConsumerRecord<String, Event> record) {
+        deadLetters.increment();
+        Event event = record.value();
+        Header errorHeader = record.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE);
+        String error = errorHeader != null ? new String(errorHeader.value(), StandardCharsets.UTF_8) : null;
+        logger.error("Event dead-lettered {} {} {} {}", kv("sourceKey", sourceKeyOf(record)),
+                kv("eventId", event != null ? event.getId() : null),
+                kv("aggregateId", event != null ? event.getAggregateId() : null), kv("error", error));
+    }
+
+    /**
+     * Batch mode: the whole poll is appended to the event store with one bulk write, then applied
+     * in one transaction. If that fails, the records are applied one at a time to find the one at
+     * fault, and its index is reported to the container's error handler, which commits the
+     * records before it and retries or dead-letters it. Events already stored are skipped on the
+     * second append.
+     *
+     * @param records The records returned by one poll.
+     */
+    @KafkaListener(id = "eventBatchListener", topics = "${kafka.topic:test-topic}", groupId = GROUP_ID,
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${kafka.consumer.batch.enabled:false}")
+    public void listenBatch(List<ConsumerRecord<String, Event>> records) {
+        long start = System.nanoTime();
+        List<Event> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, Event> record : records) {
+            // The error handling deserializer turns unreadable values into null
+            if (record.value() == null) {
+                logger.error("Skipping unreadable record {}-{}@{}", record.topic(), record.partition(), record.offset());
+                skippedRecords.increment();
+                continue;
+            }
+            record.value().setSourceKey(sourceKeyOf(record));
+            events.add(record.value());
+        }
+
+        try {
+            eventService.appendEvents(events);
+            eventReplayService.applyBatch(events);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply a batch of {} events, applying them one at a time", events.size(), e);
+            applyOneByOne(records);
+        }
+
+        batchSize.record(records.size());
+        batchApplyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("Applied batch of {} events.", events.size());
+    }
+
+    /**
+     * Applies each readable record on its own, in order.
+     *
+     * @throws BatchListenerFailedException At the first record that fails, with its index.
+     */
+    private void applyOneByOne(List<ConsumerRecord<String, Event>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            Event event = records.get(i).value();
+            if (event == null) {
+                continue;
+            }
+            try {
+                eventService.appendEvents(List.of(event));
+                eventReplayService.applyBatch(List.of(event));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to apply event {} {} {}, handing it to the error handler",
+                        kv("sourceKey", event.getSourceKey()), kv("eventId", event.getId()),
+                        kv("aggregateId", event.getAggregateId()));
+                throw new BatchListenerFailedException("Failed to apply event " + event.getId(), e, i);
+            }
+        }
+    }
+
+    /**
+     * @return The idempotency key of a record: where it was first consumed from, for records
+     * republished by a retry tier or the dead-letter replay, otherwise its own position.
+     */
+    static String sourceKeyOf(ConsumerRecord<?, ?> record) {
+        Header topic = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        Header partition = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_PARTITION);
+        Header offset = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET);
+        if (topic == null || partition == null || offset == null) {
+            return Event.sourceKey(record.topic(), record.partition(), record.offset());
         }
+        return Event.sourceKey(new String(topic.value(), StandardCharsets.UTF_8),
+                ByteBuffer.wrap(partition.value()).getInt(), ByteBuffer.wrap(offset.value()).getLong());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,171 @@
+package org.personal.kafkamavenrepo.Consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-drives the records of the dead-letter topic to the main topic, once the cause of their
+ * failure is fixed. Exposed as the {@code deadletters} actuator endpoint, over JMX only since it
+ * writes to the main topic: its replay operation re-drives every record dead-lettered so far, or
+ * the oldest {@code maxRecords}.
+ * <p>
+ * Records are forwarded as they were stored, bytes and headers, minus the failure details and
+ * the retry attempt count, so a replayed record goes through every retry tier again. The original
+ * position headers are kept: the event keeps its idempotency key in the event store. Progress is
+ * committed under its own consumer group once the records are acknowledged by the main topic, so
+ * an interrupted replay resumes where it stopped and at worst forwards a poll twice, which the
+ * consumer drops as duplicates.
+ */
+@Component
+@Endpoint(id = "deadletters")
+public class DeadLetterReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterReplayer.class);
+
+    static final String REPLAY_GROUP = Consumer.GROUP_ID + Consumer.DLT_TOPIC_SUFFIX + "-replay";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    // Polls returning nothing before a replay gives up on reaching the end offsets
+    private static final int MAX_EMPTY_POLLS = 5;
+    // Failure details of the last attempt, and retry state that would send the record straight back
+    private static final List<String> DROPPED_HEADER_PREFIXES = List.of(
+            KafkaHeaders.PREFIX + "dlt-exception",
+            KafkaHeaders.PREFIX + "dlt-key-exception",
+            KafkaHeaders.PREFIX + "exception",
+            KafkaHeaders.PREFIX + "key-exception",
+            "retry_topic-");
+
+    private final ConsumerFactory<String, byte[]> deadLetterConsumerFactory;
+    private final KafkaTemplate<String, Object> retryKafkaTemplate;
+    private final Counter replayedRecords;
+
+    @Value("${kafka.topic:test-topic}")
+    private String topic = "test-topic";
+
+    @Value("${kafka.consumer.retry.replay.send-timeout-ms:30000}")
+    private long sendTimeoutMillis = 30000;
+
+    public DeadLetterReplayer(@Qualifier("deadLetterConsumerFactory") ConsumerFactory<String, byte[]> deadLetterConsumerFactory,
+                              @Qualifier("retryKafkaTemplate") KafkaTemplate<String, Object> retryKafkaTemplate,
+                              MeterRegistry meterRegistry) {
+        this.deadLetterConsumerFactory = deadLetterConsumerFactory;
+        this.retryKafkaTemplate = retryKafkaTemplate;
+        this.replayedRecords = Counter.builder("event.consumer.dead-letter.replayed")
+                .description("Dead-lettered records sent back to the main topic")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the dead-lettered records back to the main topic, in order within each partition.
+     * Records dead-lettered while the replay runs are left for the next one.
+     *
+     * @param maxRecords The maximum number of records to replay; all of them when absent.
+     * @return The number of records replayed.
+     */
+    @WriteOperation
+    public synchronized long replay(@Nullable Integer maxRecords) {
+        long limit = maxRecords != null && maxRecords > 0 ? maxRecords : Long.MAX_VALUE;
+        String deadLetterTopic = topic + Consumer.DLT_TOPIC_SUFFIX;
+        long replayed = 0;
+        try (org.apache.kafka.clients.consumer.Consumer<String, byte[]> consumer =
+                     deadLetterConsumerFactory.createConsumer(REPLAY_GROUP, null)) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(deadLetterTopic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                logger.info("No dead-letter topic {} to replay", deadLetterTopic);
+                return 0;
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Set<TopicPartition> remaining = new HashSet<>();
+            for (TopicPartition partition : partitions) {
+                if (consumer.position(partition) < endOffsets.get(partition)) {
+                    remaining.add(partition);
+                }
+            }
+
+            int emptyPolls = 0;
+            while (!remaining.isEmpty() && replayed < limit && emptyPolls < MAX_EMPTY_POLLS) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (replayed >= limit || record.offset() >= endOffsets.get(partition)) {
+                        continue;
+                    }
+                    sends.add(retryKafkaTemplate.send(toMainTopic(record)));
+                    commits.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+                consumer.commitSync(commits);
+                replayedRecords.increment(sends.size());
+                for (TopicPartition partition : records.partitions()) {
+                    // Records polled past the limit or the end offsets are read again by the next replay
+                    OffsetAndMetadata committed = commits.get(partition);
+                    long next = committed != null ? committed.offset() : records.records(partition).get(0).offset();
+                    if (next != consumer.position(partition)) {
+                        consumer.seek(partition, next);
+                    }
+                    if (next >= endOffsets.get(partition)) {
+                        remaining.remove(partition);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Dead-letter replay interrupted after " + replayed + " records", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Dead-letter replay failed after " + replayed + " records", e);
+        }
+        logger.info("Replayed {} dead-lettered records from {} to {}", replayed, deadLetterTopic, topic);
+        return replayed;
+    }
+
+    private ProducerRecord<String, Object> toMainTopic(ConsumerRecord<String, byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (DROPPED_HEADER_PREFIXES.stream().noneMatch(header.key()::startsWith)) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(topic, null, record.key(), record.value(), headers);
+    }
+}
@@ -0,0 +1,142 @@
+package org.personal.kafkamavenrepo.Consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes how many records wait on each retry tier and on the dead-letter topic, as the
+ * {@code event.consumer.retry.depth} gauge tagged by topic. A growing first tier means many
+ * events fail transiently; a growing dead-letter topic means records need a fix and a replay.
+ * <p>
+ * The depth of a tier is its end offsets minus the offsets its listener committed; the
+ * dead-letter topic is measured against {@link DeadLetterReplayer}'s group, so it counts the
+ * records not replayed yet.
+ */
+@Component
+public class RetryTierMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryTierMonitor.class);
+
+    private static final long ADMIN_TIMEOUT_SECONDS = 10;
+
+    private final KafkaAdmin kafkaAdmin;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLong> depths = new ConcurrentHashMap<>();
+    private Admin admin;
+
+    @Value("${kafka.topic:test-topic}")
+    private String topic = "test-topic";
+
+    public RetryTierMonitor(KafkaAdmin kafkaAdmin, MeterRegistry meterRegistry) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.consumer.retry.depth-interval-ms:30000}")
+    public void measure() {
+        try {
+            Admin client = admin();
+            for (String tier : client.listTopics().names().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                String group = groupOf(tier);
+                if (group != null) {
+                    depth(tier).set(depthOf(client, tier, group));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to measure the retry tier depths", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (admin != null) {
+            admin.close();
+            admin = null;
+        }
+    }
+
+    /**
+     * @return The consumer group whose progress the depth of a topic is measured against, or
+     * null if the topic is neither a retry tier nor the dead-letter topic.
+     */
+    String groupOf(String candidate) {
+        if (candidate.equals(topic + Consumer.DLT_TOPIC_SUFFIX)) {
+            return DeadLetterReplayer.REPLAY_GROUP;
+        }
+        if (candidate.startsWith(topic + Consumer.RETRY_TOPIC_SUFFIX)) {
+            // Each tier's listener joins the main group suffixed like its topic
+            return Consumer.GROUP_ID + candidate.substring(topic.length());
+        }
+        return null;
+    }
+
+    private long depthOf(Admin client, String tier, String group) throws Exception {
+        TopicDescription description = client.describeTopics(List.of(tier)).allTopicNames()
+                .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS).get(tier);
+        Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        description.partitions().forEach(info -> latest.put(new TopicPartition(tier, info.partition()), OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends =
+                client.listOffsets(latest).all().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Map<TopicPartition, OffsetAndMetadata> committed = client.listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // Partitions the group never committed on are pending from their first retained record
+        Map<TopicPartition, OffsetSpec> earliest = new HashMap<>();
+        for (TopicPartition partition : latest.keySet()) {
+            if (committed.get(partition) == null) {
+                earliest.put(partition, OffsetSpec.earliest());
+            }
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> starts = earliest.isEmpty()
+                ? Map.of()
+                : client.listOffsets(earliest).all().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        long depth = 0;
+        for (TopicPartition partition : latest.keySet()) {
+            OffsetAndMetadata offset = committed.get(partition);
+            long position = offset != null ? offset.offset() : starts.get(partition).offset();
+            depth += Math.max(0, ends.get(partition).offset() - position);
+        }
+        return depth;
+    }
+
+    private AtomicLong depth(String tier) {
+        return depths.computeIfAbsent(tier, key -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("event.consumer.retry.depth", value, AtomicLong::get)
+                    .description("Records waiting on a retry tier or the dead-letter topic")
+                    .tag("topic", key)
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    private synchronized Admin admin() {
+        if (admin == null) {
+            admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+        }
+        return admin;
+    }
+}
@@ -0,0 +1,41 @@
+package org.personal.kafkamavenrepo.Consumer;
+
+import org.apache.kafka.common.PartitionInfo;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Lists the partitions of a topic, for the listeners that assign themselves every partition
+ * instead of joining a consumer group. The partitions are read once, when the listener is
+ * registered: partitions added later are only read after a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "user.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class TopicPartitionFinder {
+
+    private final ConsumerFactory<String, Event> broadcastConsumerFactory;
+
+    public TopicPartitionFinder(@Qualifier("broadcastConsumerFactory") ConsumerFactory<String, Event> broadcastConsumerFactory) {
+        this.broadcastConsumerFactory = broadcastConsumerFactory;
+    }
+
+    /**
+     * @return The partition numbers of the topic.
+     */
+    public String[] partitions(String topic) {
+        try (org.apache.kafka.clients.consumer.Consumer<String, Event> consumer = broadcastConsumerFactory.createConsumer()) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                throw new IllegalStateException("Topic " + topic + " has no partitions to assign");
+            }
+            return partitionInfos.stream()
+                    .map(partitionInfo -> String.valueOf(partitionInfo.partition()))
+                    .toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.personal.kafkamavenrepo.Consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Service.UserCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps this instance's {@link UserCache} coherent with the changes made on any instance. Unlike
+ * {@link Consumer}, whose group splits the partitions between instances, every instance assigns
+ * itself every partition and reads every event, without a consumer group: nothing is committed,
+ * so restarts leave no group behind. It starts from the end of the topic: a new instance has
+ * nothing cached yet.
+ */
+@Component
+@ConditionalOnProperty(name = "user.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class UserCacheInvalidator {
+
+    private final UserCache userCache;
+
+    public UserCacheInvalidator(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    @KafkaListener(id = "userCacheInvalidator", idIsGroup = false,
+            topicPartitions = @TopicPartition(topic = "${kafka.topic:test-topic}",
+                    partitions = "#{@topicPartitionFinder.partitions('${kafka.topic:test-topic}')}"),
+            containerFactory = "broadcastKafkaListenerContainerFactory")
+    public void onEvent(ConsumerRecord<String, Event> record) {
+        // The error handling deserializer turns unreadable values into null
+        if (record.value() != null) {
+            userCache.apply(record.value());
+        }
+    }
+}
@@ -1,20 +1,50 @@
 package org.personal.kafkamavenrepo.Domain.MongoDB.Events;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.personal.kafkamavenrepo.Domain.Generic.IEntity;
 import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "events")
+@CompoundIndexes({
+        @CompoundIndex(name = "type_timestamp", def = "{'type': 1, 'timestamp': 1, '_id': 1}"),
+        @CompoundIndex(name = "aggregate_sequence", def = "{'aggregateId': 1, 'sequence': 1}"),
+        // Replay and point-in-time reads only ever look at live events, in (timestamp, _id) order
+        @CompoundIndex(name = "live_timestamp_id", def = "{'timestamp': 1, '_id': 1}", partialFilter = "{'deleted': false}"),
+        // The same order for one user, for point-in-time reads of a single user
+        @CompoundIndex(name = "live_aggregate_timestamp_id", def = "{'aggregateId': 1, 'timestamp': 1, '_id': 1}",
+                partialFilter = "{'deleted': false}")
+})
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Event implements IEntity<String> {
 
+    /**
+     * Events carry the user as an embedded {@link #payload}. Version 1 (or no version) events
+     * carry it as JSON text in {@link #description} and are still readable, through
+     * {@code EventUsers.resolveUser}.
+     */
+    public static final int CURRENT_VERSION = 2;
+
     @Id
     private String id;
     private EventType type;
     private String description;
+    private int version;
+    private User payload;
+    private String aggregateId;
+    private Long sequence;
+    @Indexed(name = "timestamp")
     private LocalDateTime timestamp;
+    // Where the consumer read the event from; unique so a redelivered record is stored once
+    @Indexed(name = "source_key", unique = true, sparse = true)
+    private String sourceKey;
     private LocalDateTime createdDate;
     private LocalDateTime updatedDate;
     private boolean deleted;
@@ -44,6 +74,45 @@ public class Event implements IEntity<String> {
         this.description = description;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public User getPayload() {
+        return payload;
+    }
+
+    public void setPayload(User payload) {
+        this.payload = payload;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(String aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return The idempotency key of an event read from Kafka at the given position.
+     */
+    public static String sourceKey(String topic, int partition, long offset) {
+        return topic + "-" + partition + "-" + offset;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -52,6 +121,14 @@ public class Event implements IEntity<String> {
         this.timestamp = timestamp;
     }
 
+    public String getSourceKey() {
+        return sourceKey;
+    }
+
+    public void setSourceKey(String sourceKey) {
+        this.sourceKey = sourceKey;
+    }
+
     @Override
     public LocalDateTime getCreatedDate() {
         return createdDate;
@@ -0,0 +1,117 @@
+package org.personal.kafkamavenrepo.Domain.MongoDB.Events;
+
+import org.personal.kafkamavenrepo.Domain.Generic.IEntity;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resume position of an event replay. Events are replayed in (timestamp, id) order,
+ * so the last applied pair is enough to continue an interrupted rebuild.
+ */
+@Document(collection = "replay_checkpoints")
+public class ReplayCheckpoint implements IEntity<String> {
+
+    @Id
+    private String id;
+    private LocalDateTime lastTimestamp;
+    private String lastEventId;
+    private long appliedEvents;
+    // Whether the replay writes into the shadow table rather than the live one
+    private boolean shadowTable;
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+    private boolean deleted;
+
+    public ReplayCheckpoint() {
+    }
+
+    public ReplayCheckpoint(String id) {
+        this.id = id;
+        this.createdDate = LocalDateTime.now();
+        this.updatedDate = this.createdDate;
+    }
+
+    /**
+     * Moves the checkpoint past the given event.
+     *
+     * @param event The last event that has been applied.
+     */
+    public void advanceTo(Event event) {
+        this.lastTimestamp = event.getTimestamp();
+        this.lastEventId = event.getId();
+        this.appliedEvents++;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(LocalDateTime lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public boolean isShadowTable() {
+        return shadowTable;
+    }
+
+    public void setShadowTable(boolean shadowTable) {
+        this.shadowTable = shadowTable;
+    }
+
+    public long getAppliedEvents() {
+        return appliedEvents;
+    }
+
+    public void setAppliedEvents(long appliedEvents) {
+        this.appliedEvents = appliedEvents;
+    }
+
+    @Override
+    public LocalDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    @Override
+    public void setCreatedDate(LocalDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public LocalDateTime getUpdatedDate() {
+        return updatedDate;
+    }
+
+    @Override
+    public void setUpdatedDate(LocalDateTime updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,98 @@
+package org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots;
+
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single user as it was right after the event at {@code sequence} of its aggregate was
+ * applied. Taken by the consumer every few events of a user, so looking the user up at a point
+ * in time only replays that user's events after the snapshot. The id is derived from the
+ * aggregate and sequence, so a redelivered event writes the same snapshot again.
+ */
+@Document(collection = "user_aggregate_snapshots")
+@CompoundIndex(name = "aggregate_sequence", def = "{'aggregateId': 1, 'sequence': -1}")
+public class UserAggregateSnapshot {
+
+    @Id
+    private String id;
+    private String aggregateId;
+    private long sequence;
+    private LocalDateTime lastTimestamp;
+    private String lastEventId;
+    private User user;
+    private LocalDateTime createdDate;
+
+    public UserAggregateSnapshot() {
+    }
+
+    public UserAggregateSnapshot(String aggregateId, long sequence, LocalDateTime lastTimestamp, String lastEventId, User user) {
+        this.id = aggregateId + ":" + sequence;
+        this.aggregateId = aggregateId;
+        this.sequence = sequence;
+        this.lastTimestamp = lastTimestamp;
+        this.lastEventId = lastEventId;
+        this.user = user;
+        this.createdDate = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(String aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public LocalDateTime getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(LocalDateTime lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public LocalDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(LocalDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+}
@@ -0,0 +1,115 @@
+package org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots;
+
+import org.personal.kafkamavenrepo.Domain.Generic.IEntity;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Header of a materialized copy of the users table, taken right after the event at
+ * (lastTimestamp, lastEventId) was applied. The users themselves are stored in
+ * {@link UserSnapshotChunk}s; a snapshot is only usable once {@code complete} is set.
+ */
+@Document(collection = "user_snapshots")
+public class UserSnapshot implements IEntity<String> {
+
+    @Id
+    private String id;
+    private LocalDateTime lastTimestamp;
+    private String lastEventId;
+    private long appliedEvents;
+    private long userCount;
+    private int chunkCount;
+    private boolean complete;
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+    private boolean deleted;
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(LocalDateTime lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public long getAppliedEvents() {
+        return appliedEvents;
+    }
+
+    public void setAppliedEvents(long appliedEvents) {
+        this.appliedEvents = appliedEvents;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+
+    public void setUserCount(long userCount) {
+        this.userCount = userCount;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    @Override
+    public LocalDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    @Override
+    public void setCreatedDate(LocalDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public LocalDateTime getUpdatedDate() {
+        return updatedDate;
+    }
+
+    @Override
+    public void setUpdatedDate(LocalDateTime updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
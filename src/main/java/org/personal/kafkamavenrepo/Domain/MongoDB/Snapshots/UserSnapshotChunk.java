@@ -0,0 +1,63 @@
+package org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots;
+
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * A slice of the users of a {@link UserSnapshot}, in id order. Users are split in chunks
+ * to stay well below the Mongo document size limit.
+ */
+@Document(collection = "user_snapshot_chunks")
+public class UserSnapshotChunk {
+
+    @Id
+    private String id;
+    private String snapshotId;
+    private int sequence;
+    private List<User> users;
+
+    public UserSnapshotChunk() {
+    }
+
+    public UserSnapshotChunk(String snapshotId, int sequence, List<User> users) {
+        this.snapshotId = snapshotId;
+        this.sequence = sequence;
+        this.users = users;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<User> users) {
+        this.users = users;
+    }
+}
@@ -1,5 +1,6 @@
 package org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import org.personal.kafkamavenrepo.Domain.Generic.IEntity;
 
@@ -21,6 +22,10 @@ public class User implements IEntity<Long> {
     private LocalDateTime createdDate;
     private LocalDateTime updatedDate;
     private boolean deleted;
+    // Sequence of the last event about this user; the projection ignores events at or below it.
+    // Left out of event payloads, which carry it as the event's own sequence
+    @JsonIgnore
+    private Long eventSequence;
 
     // Getters and Setters
     public Long getId() {
@@ -74,6 +79,14 @@ public class User implements IEntity<Long> {
         this.updatedDate = updatedDate;
     }
 
+    public Long getEventSequence() {
+        return eventSequence;
+    }
+
+    public void setEventSequence(Long eventSequence) {
+        this.eventSequence = eventSequence;
+    }
+
     @Override
     public boolean isDeleted() {
         return deleted;
@@ -0,0 +1,125 @@
+package org.personal.kafkamavenrepo.Domain.Postgres.Outbox;
+
+import jakarta.persistence.*;
+import org.personal.kafkamavenrepo.Domain.Generic.IEntity;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event waiting to be published to Kafka. Rows are written in the same transaction as the
+ * business change and relayed in id order; a null publishedDate means not yet published. A relay
+ * sets claimedDate while it sends the row, so other relays leave it alone until the claim expires.
+ */
+@Entity
+@Table(name = "event_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_event_outbox_dedup_key", columnNames = "dedup_key"),
+        indexes = @Index(name = "idx_event_outbox_pending", columnList = "published_date, id"))
+public class OutboxEvent implements IEntity<Long> {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String dedupKey;
+    private String aggregateKey;
+
+    @Enumerated(EnumType.STRING)
+    private EventType eventType;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    private LocalDateTime publishedDate;
+    private LocalDateTime claimedDate;
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+    private boolean deleted;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDedupKey() {
+        return dedupKey;
+    }
+
+    public void setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+    }
+
+    public String getAggregateKey() {
+        return aggregateKey;
+    }
+
+    public void setAggregateKey(String aggregateKey) {
+        this.aggregateKey = aggregateKey;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(EventType eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getPublishedDate() {
+        return publishedDate;
+    }
+
+    public void setPublishedDate(LocalDateTime publishedDate) {
+        this.publishedDate = publishedDate;
+    }
+
+    public LocalDateTime getClaimedDate() {
+        return claimedDate;
+    }
+
+    public void setClaimedDate(LocalDateTime claimedDate) {
+        this.claimedDate = claimedDate;
+    }
+
+    @Override
+    public LocalDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    @Override
+    public void setCreatedDate(LocalDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public LocalDateTime getUpdatedDate() {
+        return updatedDate;
+    }
+
+    @Override
+    public void setUpdatedDate(LocalDateTime updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -2,8 +2,10 @@ package org.personal.kafkamavenrepo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class KafkaMavenRepoApplication {
 
     public static void main(String[] args) {
@@ -1,15 +1,43 @@
 package org.personal.kafkamavenrepo.Persistence.Mongo;
 
 import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 @Repository
-public interface EventRepository extends MongoRepository<Event, String> {
+public interface EventRepository extends MongoRepository<Event, String>, EventRepositoryCustom {
 
-    Event findByEventName(String eventName);
-    List<Event> findByTimestampBefore(LocalDateTime dateTime) ;
-    List<Event> getAllEvents ();
+    Event findFirstByTypeOrderByTimestampDescIdDesc(EventType type);
+
+    List<Event> findByAggregateIdOrderBySequenceAsc(String aggregateId);
+
+    // Live events only, with just the fields replay needs; served by the live_timestamp_id index.
+    // Inclusive, like the upTo bound of getEventsAfter
+    @Query(value = "{ 'deleted': false, 'timestamp': { '$lte': ?0 } }",
+            fields = EventRepositoryCustomImpl.REPLAY_FIELDS,
+            sort = "{ 'timestamp': 1, '_id': 1 }")
+    List<Event> findReplayEventsUpTo(LocalDateTime dateTime);
+
+    // One aggregate's live events up to a point in time, inclusive, in replay order; served, sort
+    // included, by the live_aggregate_timestamp_id index
+    @Query(value = "{ 'aggregateId': ?0, 'deleted': false, 'timestamp': { '$lte': ?1 } }",
+            fields = EventRepositoryCustomImpl.REPLAY_FIELDS,
+            sort = "{ 'timestamp': 1, '_id': 1 }")
+    List<Event> findReplayEventsForAggregateUpTo(String aggregateId, LocalDateTime upTo);
+
+    // The same, only for the events after a sequence of the aggregate; the sequence is filtered on
+    // the fetched events
+    @Query(value = "{ 'aggregateId': ?0, 'deleted': false, 'sequence': { '$gt': ?1 }, 'timestamp': { '$lte': ?2 } }",
+            fields = EventRepositoryCustomImpl.REPLAY_FIELDS,
+            sort = "{ 'timestamp': 1, '_id': 1 }")
+    List<Event> findReplayEventsForAggregateAfterSequenceUpTo(String aggregateId, long sequence, LocalDateTime upTo);
+
+    // Sizes a replay for its progress metrics; both served by the live_timestamp_id index
+    long countByDeletedFalse();
+
+    long countByDeletedFalseAndTimestampGreaterThanEqual(LocalDateTime dateTime);
 }
@@ -0,0 +1,30 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventRepositoryCustom {
+
+    /**
+     * Keyset page of live (not deleted) events ordered by (timestamp, id), starting strictly after
+     * the given position. Passing a null id starts from the beginning of the log. Only the fields
+     * replay needs are loaded.
+     */
+    List<Event> findPageAfter(LocalDateTime timestamp, String eventId, int pageSize);
+
+    /**
+     * Same as {@link #findPageAfter(LocalDateTime, String, int)}, limited to events with a
+     * timestamp at or before {@code upTo}.
+     */
+    List<Event> findPageAfter(LocalDateTime timestamp, String eventId, LocalDateTime upTo, int pageSize);
+
+    /**
+     * Inserts events with one unordered bulk write. Events whose id or source key is already
+     * stored are skipped rather than failing the others, so redelivered events are appended once.
+     *
+     * @return The number of events actually inserted.
+     */
+    int appendAll(List<Event> events);
+}
@@ -0,0 +1,95 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class EventRepositoryCustomImpl implements EventRepositoryCustom {
+
+    /**
+     * Fields read by replay; the audit dates are left on the server. The id is always returned.
+     */
+    static final String REPLAY_FIELDS = "{ 'type': 1, 'description': 1, 'version': 1, 'payload': 1, 'aggregateId': 1, 'sequence': 1, 'timestamp': 1 }";
+
+    private static final String[] REPLAY_FIELD_NAMES = Document.parse(REPLAY_FIELDS).keySet().toArray(String[]::new);
+    private static final Sort REPLAY_ORDER = Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("id"));
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public EventRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Event> findPageAfter(LocalDateTime timestamp, String eventId, int pageSize) {
+        return findPageAfter(timestamp, eventId, null, pageSize);
+    }
+
+    @Override
+    public List<Event> findPageAfter(LocalDateTime timestamp, String eventId, LocalDateTime upTo, int pageSize) {
+        return mongoTemplate.find(pageQuery(timestamp, eventId, upTo, pageSize), Event.class);
+    }
+
+    @Override
+    public int appendAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // Unordered: the server keeps going past a duplicate instead of stopping at the first one
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class).insert(events);
+        try {
+            return bulk.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    static Query pageQuery(LocalDateTime timestamp, String eventId, LocalDateTime upTo, int pageSize) {
+        // deleted=false matches the partial live_timestamp_id index, which also serves the sort
+        Query query = new Query(Criteria.where("deleted").is(false)).with(REPLAY_ORDER).limit(pageSize);
+        query.fields().include(REPLAY_FIELD_NAMES);
+
+        // Plain range on timestamp so the index bounds stay tight whatever the planner does with the $or
+        Criteria range = null;
+        if (eventId != null && timestamp != null) {
+            range = Criteria.where("timestamp").gte(timestamp);
+        }
+        if (upTo != null) {
+            range = (range != null ? range : Criteria.where("timestamp")).lte(upTo);
+        }
+        if (range != null) {
+            query.addCriteria(range);
+        }
+        if (eventId != null) {
+            query.addCriteria(after(timestamp, eventId));
+        }
+        return query;
+    }
+
+    private static Criteria after(LocalDateTime timestamp, String eventId) {
+        // Null timestamps sort first, so every timestamped event comes after them
+        if (timestamp == null) {
+            return new Criteria().orOperator(
+                    Criteria.where("timestamp").is(null).and("id").gt(eventId),
+                    Criteria.where("timestamp").ne(null));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("timestamp").gt(timestamp),
+                Criteria.where("timestamp").is(timestamp).and("id").gt(eventId));
+    }
+}
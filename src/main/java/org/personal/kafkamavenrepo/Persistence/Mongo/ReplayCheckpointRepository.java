@@ -0,0 +1,9 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.ReplayCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReplayCheckpointRepository extends MongoRepository<ReplayCheckpoint, String> {
+}
@@ -0,0 +1,20 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserAggregateSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface UserAggregateSnapshotRepository extends MongoRepository<UserAggregateSnapshot, String> {
+
+    /**
+     * The newest snapshot of a user taken at or before a point in time.
+     */
+    Optional<UserAggregateSnapshot> findFirstByAggregateIdAndLastTimestampLessThanEqualOrderBySequenceDesc(
+            String aggregateId, LocalDateTime timestamp);
+
+    void deleteByAggregateIdAndSequenceLessThan(String aggregateId, long sequence);
+}
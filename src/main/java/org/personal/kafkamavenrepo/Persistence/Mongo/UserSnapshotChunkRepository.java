@@ -0,0 +1,24 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshotChunk;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface UserSnapshotChunkRepository extends MongoRepository<UserSnapshotChunk, String> {
+
+    /**
+     * Cursor over the chunks of a snapshot; close the stream when done.
+     */
+    Stream<UserSnapshotChunk> streamBySnapshotIdOrderBySequenceAsc(String snapshotId);
+
+    /**
+     * The chunk of a snapshot holding a given user.
+     */
+    Optional<UserSnapshotChunk> findFirstBySnapshotIdAndUsersId(String snapshotId, Long userId);
+
+    void deleteBySnapshotId(String snapshotId);
+}
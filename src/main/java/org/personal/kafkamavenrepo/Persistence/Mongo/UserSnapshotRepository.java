@@ -0,0 +1,19 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserSnapshotRepository extends MongoRepository<UserSnapshot, String> {
+
+    Optional<UserSnapshot> findFirstByCompleteTrueOrderByLastTimestampDescLastEventIdDesc();
+
+    List<UserSnapshot> findByCompleteTrueOrderByLastTimestampDescLastEventIdDesc();
+
+    Optional<UserSnapshot> findFirstByCompleteTrueAndLastTimestampLessThanEqualOrderByLastTimestampDescLastEventIdDesc(LocalDateTime timestamp);
+}
@@ -0,0 +1,56 @@
+package org.personal.kafkamavenrepo.Persistence.Postgres;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.personal.kafkamavenrepo.Domain.Postgres.Outbox.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Hibernate's LockOptions.SKIP_LOCKED
+    String SKIP_LOCKED = "-2";
+
+    /**
+     * Locks the pending entries returned until the transaction ends. Entries another relay has
+     * locked are skipped instead of waited for (SELECT ... FOR UPDATE SKIP LOCKED), and so are
+     * entries claimed at or after {@code claimExpiry}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("select o from OutboxEvent o where o.publishedDate is null"
+            + " and (o.claimedDate is null or o.claimedDate < :claimExpiry) order by o.id asc")
+    List<OutboxEvent> findClaimable(@Param("claimExpiry") LocalDateTime claimExpiry, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent o set o.claimedDate = :claimedDate where o.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedDate") LocalDateTime claimedDate);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent o set o.claimedDate = null where o.id in :ids and o.publishedDate is null")
+    int releaseClaims(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent o set o.publishedDate = :publishedDate, o.updatedDate = :publishedDate where o.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedDate") LocalDateTime publishedDate);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent o where o.publishedDate < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,362 @@
+package org.personal.kafkamavenrepo.Persistence.Postgres;
+
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Set-based JDBC writes for the users table, used where JPA's row-at-a-time
+ * save/delete would dominate (event replay). Identity ids cannot be batched by
+ * Hibernate, so ids carried by the events are written explicitly.
+ * <p>
+ * Also maintains the shadow table a rebuild is loaded into while the live table stays readable:
+ * changes are appended to an unindexed change table, collapsed into {@code users_shadow} once
+ * the replay is done, indexed like {@code users}, and finally renamed over it. Meanwhile a
+ * trigger records the ids of the users written to the live table, whatever wrote them, so those
+ * users are carried over to the shadow table even when their events were stored too late for
+ * the replay to read them.
+ */
+@Repository
+public class UserBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBatchWriter.class);
+
+    static final String USERS = "users";
+    static final String SHADOW = "users_shadow";
+    static final String SHADOW_CHANGES = "users_shadow_changes";
+    static final String LIVE_CHANGES = "users_live_changes";
+    private static final String RETIRED = "users_retired";
+    private static final String LIVE_CHANGES_FUNCTION = "users_record_live_change";
+    private static final String SHADOW_SUFFIX = "_shadow";
+
+    private static final String COLUMNS = "username, email, created_at, created_date, updated_date, deleted, event_sequence";
+
+    // A user already at or past the incoming event sequence is left alone, so redelivered and
+    // out-of-order events cannot roll it back; changes without a sequence predate them and apply
+    private static final String UPSERT_SQL_TEMPLATE =
+            "INSERT INTO %1$s (id, " + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET username = EXCLUDED.username, email = EXCLUDED.email, " +
+            "created_at = EXCLUDED.created_at, created_date = EXCLUDED.created_date, " +
+            "updated_date = EXCLUDED.updated_date, deleted = EXCLUDED.deleted, event_sequence = EXCLUDED.event_sequence " +
+            "WHERE %1$s.event_sequence IS NULL OR EXCLUDED.event_sequence IS NULL " +
+            "OR %1$s.event_sequence < EXCLUDED.event_sequence";
+
+    private static final String UPSERT_SQL = UPSERT_SQL_TEMPLATE.formatted(USERS);
+
+    // Unconditional: a deletion is the last event of a user, ids are never reused
+    private static final String DELETE_SQL = "DELETE FROM " + USERS + " WHERE id = ?";
+
+    private static final String IDENTITY_SEQUENCE_SQL = "SELECT pg_get_serial_sequence(?, 'id')";
+
+    private static final String NEXT_IDENTITY_SQL =
+            "SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM %s";
+
+    // Never moves the sequence back, so ids already handed out are not handed out again
+    private static final String RESYNC_IDENTITY_SQL =
+            "SELECT setval(?::regclass, GREATEST(COALESCE((SELECT MAX(id) FROM %s), 0) + 1, ?), false)";
+
+    // Append-only: every change is a row, the last one per id wins when the shadow table is built
+    private static final String CREATE_SHADOW_CHANGES_SQL =
+            "CREATE TABLE " + SHADOW_CHANGES + " AS SELECT * FROM " + USERS + " WITH NO DATA";
+
+    private static final String ADD_SHADOW_CHANGE_COLUMNS_SQL =
+            "ALTER TABLE " + SHADOW_CHANGES + " ADD COLUMN change_seq bigserial, ADD COLUMN removed boolean NOT NULL DEFAULT false";
+
+    private static final String SHADOW_CHANGES_EXIST_SQL = "SELECT to_regclass('" + SHADOW_CHANGES + "') IS NOT NULL";
+
+    private static final String APPEND_UPSERT_SQL =
+            "INSERT INTO " + SHADOW_CHANGES + " (id, " + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String APPEND_DELETE_SQL =
+            "INSERT INTO " + SHADOW_CHANGES + " (id, removed) VALUES (?, true)";
+
+    private static final String CREATE_LIVE_CHANGES_SQL = "CREATE TABLE " + LIVE_CHANGES + " (id bigint NOT NULL)";
+
+    // NEW is null on deletes and OLD on inserts
+    private static final String CREATE_LIVE_CHANGES_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION " + LIVE_CHANGES_FUNCTION + "() RETURNS trigger LANGUAGE plpgsql AS $$ " +
+            "BEGIN INSERT INTO " + LIVE_CHANGES + " (id) VALUES (COALESCE(NEW.id, OLD.id)); RETURN NULL; END $$";
+
+    private static final String CREATE_LIVE_CHANGES_TRIGGER_SQL =
+            "CREATE TRIGGER " + LIVE_CHANGES + " AFTER INSERT OR UPDATE OR DELETE ON " + USERS +
+            " FOR EACH ROW EXECUTE FUNCTION " + LIVE_CHANGES_FUNCTION + "()";
+
+    // Takes the recorded ids, then copies those users from the live table unless the shadow one is
+    // further along, and removes the ones the live table no longer has: ids are never reused
+    private static final String CARRY_OVER_LIVE_CHANGES_SQL =
+            "WITH changed AS (DELETE FROM " + LIVE_CHANGES + " RETURNING id), " +
+            "ids AS (SELECT DISTINCT id FROM changed), " +
+            "removed AS (DELETE FROM " + SHADOW + " s USING ids WHERE s.id = ids.id " +
+            "AND NOT EXISTS (SELECT 1 FROM " + USERS + " u WHERE u.id = ids.id) RETURNING s.id) " +
+            "INSERT INTO " + SHADOW + " (id, " + COLUMNS + ") SELECT u.id, " + prefixed("u", COLUMNS) +
+            " FROM " + USERS + " u JOIN ids ON u.id = ids.id " +
+            "ON CONFLICT (id) DO UPDATE SET username = EXCLUDED.username, email = EXCLUDED.email, " +
+            "created_at = EXCLUDED.created_at, created_date = EXCLUDED.created_date, " +
+            "updated_date = EXCLUDED.updated_date, deleted = EXCLUDED.deleted, event_sequence = EXCLUDED.event_sequence " +
+            "WHERE " + SHADOW + ".event_sequence IS NULL OR EXCLUDED.event_sequence IS NULL " +
+            "OR " + SHADOW + ".event_sequence < EXCLUDED.event_sequence";
+
+    // Same columns and defaults (identity included) as users, but no index or key until it is loaded
+    private static final String CREATE_SHADOW_SQL =
+            "CREATE TABLE " + SHADOW + " (LIKE " + USERS + " INCLUDING ALL EXCLUDING INDEXES)";
+
+    private static final String LOAD_SHADOW_SQL =
+            "INSERT INTO " + SHADOW + " (id, " + COLUMNS + ") SELECT id, " + COLUMNS + " FROM (" +
+            "SELECT DISTINCT ON (id) * FROM " + SHADOW_CHANGES + " WHERE id IS NOT NULL ORDER BY id, change_seq DESC" +
+            ") latest WHERE NOT removed";
+
+    private static final String LOAD_SHADOW_UNKEYED_SQL =
+            "INSERT INTO " + SHADOW + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM " + SHADOW_CHANGES +
+            " WHERE id IS NULL ORDER BY change_seq";
+
+    private static final String SHADOW_UPSERT_SQL = UPSERT_SQL_TEMPLATE.formatted(SHADOW);
+
+    private static final String SHADOW_DELETE_SQL = "DELETE FROM " + SHADOW + " WHERE id = ?";
+
+    private static final String SHADOW_INSERT_SQL = "INSERT INTO " + SHADOW + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INDEXES_SQL =
+            "SELECT c.relname AS name, pg_get_indexdef(c.oid) AS definition, x.indisprimary AS primary_key " +
+            "FROM pg_index x JOIN pg_class c ON c.oid = x.indexrelid WHERE x.indrelid = ?::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the final state of a set of users in one transaction.
+     *
+     * @param upserts Users to insert or overwrite, keyed by their id.
+     * @param deletes Ids of users to remove.
+     * @param batchSize Number of statements sent per JDBC batch.
+     */
+    @Transactional
+    public void write(Collection<User> upserts, Collection<Long> deletes, int batchSize) {
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts, batchSize, UserBatchWriter::setUser);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes, batchSize, (ps, id) -> ps.setLong(1, id));
+        }
+    }
+
+    /**
+     * Moves the identity sequence past the highest id written explicitly, so new
+     * users created through JPA do not collide with replayed ones.
+     */
+    public void resyncIdentity() {
+        resyncIdentity(USERS, USERS);
+    }
+
+    /**
+     * Moves the identity sequence of a table past its highest id and past the next value of the
+     * identity of {@code floorTable}.
+     */
+    private void resyncIdentity(String table, String floorTable) {
+        String sequence = jdbcTemplate.queryForObject(IDENTITY_SEQUENCE_SQL, String.class, table);
+        String floorSequence = jdbcTemplate.queryForObject(IDENTITY_SEQUENCE_SQL, String.class, floorTable);
+        if (sequence == null || floorSequence == null) {
+            return;
+        }
+        Long floor = jdbcTemplate.queryForObject(NEXT_IDENTITY_SQL.formatted(floorSequence), Long.class);
+        jdbcTemplate.queryForObject(RESYNC_IDENTITY_SQL.formatted(table), Long.class, sequence, floor);
+    }
+
+    /**
+     * Starts a shadow load: drops what a previous one left behind, creates an empty change table
+     * and starts recording the users written to the live table. Each live write costs one more
+     * insert until the shadow table is swapped in.
+     */
+    @Transactional
+    public void createShadowChanges() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_CHANGES);
+        jdbcTemplate.execute(CREATE_SHADOW_CHANGES_SQL);
+        jdbcTemplate.execute(ADD_SHADOW_CHANGE_COLUMNS_SQL);
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + LIVE_CHANGES + " ON " + USERS);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + LIVE_CHANGES);
+        jdbcTemplate.execute(CREATE_LIVE_CHANGES_SQL);
+        jdbcTemplate.execute(CREATE_LIVE_CHANGES_FUNCTION_SQL);
+        jdbcTemplate.execute(CREATE_LIVE_CHANGES_TRIGGER_SQL);
+    }
+
+    /**
+     * @return Whether a shadow load is in progress and can be resumed.
+     */
+    public boolean shadowChangesExist() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SHADOW_CHANGES_EXIST_SQL, Boolean.class));
+    }
+
+    /**
+     * Appends changes to the shadow change table. Plain inserts into an unindexed table, so the
+     * cost does not grow with the table; an id may appear any number of times.
+     *
+     * @param upserts Users to insert or overwrite, keyed by their id.
+     * @param deletes Ids of users to remove.
+     * @param unkeyed Users without an id, given one when the shadow table is built.
+     * @param batchSize Number of statements sent per JDBC batch.
+     */
+    @Transactional
+    public void appendShadowChanges(Collection<User> upserts, Collection<Long> deletes, Collection<User> unkeyed,
+                                    int batchSize) {
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPEND_UPSERT_SQL, upserts, batchSize, UserBatchWriter::setUser);
+        }
+        if (!unkeyed.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPEND_UPSERT_SQL, unkeyed, batchSize, UserBatchWriter::setUser);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPEND_DELETE_SQL, deletes, batchSize, (ps, id) -> ps.setLong(1, id));
+        }
+    }
+
+    /**
+     * Collapses the change table into {@code users_shadow}, then builds the indexes and primary
+     * key of {@code users} on it. Nothing reads the shadow table yet, so the live one is untouched.
+     */
+    @Transactional
+    public void buildShadow() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW);
+        jdbcTemplate.execute(CREATE_SHADOW_SQL);
+        int loaded = jdbcTemplate.update(LOAD_SHADOW_SQL);
+        // Users without an id take theirs from the identity, past every replayed id
+        resyncIdentity(SHADOW, SHADOW);
+        loaded += jdbcTemplate.update(LOAD_SHADOW_UNKEYED_SQL);
+
+        for (Map<String, Object> index : jdbcTemplate.queryForList(INDEXES_SQL, USERS)) {
+            String name = (String) index.get("name");
+            String shadowName = name + SHADOW_SUFFIX;
+            jdbcTemplate.execute(shadowIndexDefinition((String) index.get("definition"), name, shadowName));
+            if (Boolean.TRUE.equals(index.get("primary_key"))) {
+                jdbcTemplate.execute("ALTER TABLE " + SHADOW + " ADD CONSTRAINT " + shadowName +
+                        " PRIMARY KEY USING INDEX " + shadowName);
+            }
+        }
+        jdbcTemplate.execute("ANALYZE " + SHADOW);
+        logger.info("Shadow table built with {} users.", loaded);
+    }
+
+    /**
+     * Writes changes straight to the built shadow table, with the same sequence guard as the live
+     * one. Used to bring it up to date with the events stored since its replay.
+     *
+     * @param upserts Users to insert or overwrite, keyed by their id.
+     * @param deletes Ids of users to remove.
+     * @param unkeyed Users without an id, given one by the shadow identity.
+     * @param batchSize Number of statements sent per JDBC batch.
+     */
+    @Transactional
+    public void writeShadow(Collection<User> upserts, Collection<Long> deletes, Collection<User> unkeyed,
+                            int batchSize) {
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(SHADOW_UPSERT_SQL, upserts, batchSize, UserBatchWriter::setUser);
+        }
+        if (!unkeyed.isEmpty()) {
+            jdbcTemplate.batchUpdate(SHADOW_INSERT_SQL, unkeyed, batchSize, (ps, user) -> {
+                ps.setString(1, user.getUsername());
+                ps.setString(2, user.getEmail());
+                ps.setObject(3, user.getCreatedAt(), Types.TIMESTAMP);
+                ps.setObject(4, user.getCreatedDate(), Types.TIMESTAMP);
+                ps.setObject(5, user.getUpdatedDate(), Types.TIMESTAMP);
+                ps.setBoolean(6, user.isDeleted());
+                ps.setObject(7, user.getEventSequence(), Types.BIGINT);
+            });
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(SHADOW_DELETE_SQL, deletes, batchSize, (ps, id) -> ps.setLong(1, id));
+        }
+    }
+
+    /**
+     * Copies the users written to the live table since the shadow load started to the built
+     * shadow table, unless it holds a later state of them, and removes the ones deleted. The
+     * recorded ids are consumed, so running it again only carries over what was written since.
+     *
+     * @return The number of users copied.
+     */
+    @Transactional
+    public int carryOverLiveChanges() {
+        int carried = jdbcTemplate.update(CARRY_OVER_LIVE_CHANGES_SQL);
+        if (carried > 0) {
+            logger.info("Carried {} users written to the live table over to the shadow table.", carried);
+        }
+        return carried;
+    }
+
+    /**
+     * Swaps the built shadow table in for {@code users} in one transaction, then gives its indexes
+     * and identity sequence the names of the ones it replaces. Once {@code users} is locked, no
+     * writer can change it until the swap commits: {@code catchUp} brings the shadow table up to
+     * date with what was written meanwhile, and the shadow identity is moved past every id the
+     * live one handed out. Readers wait for the catch-up and the rename; if anything fails the
+     * live table is left as it was.
+     *
+     * @param catchUp Applies the changes made since the shadow table was built, while the live
+     * table is locked.
+     */
+    @Transactional
+    public void swapInShadow(Runnable catchUp) {
+        List<String> shadowIndexes = jdbcTemplate.queryForList(INDEXES_SQL, SHADOW).stream()
+                .map(index -> (String) index.get("name"))
+                .toList();
+        jdbcTemplate.execute("LOCK TABLE " + USERS + " IN ACCESS EXCLUSIVE MODE");
+        catchUp.run();
+        resyncIdentity(SHADOW, USERS);
+        jdbcTemplate.execute("ALTER TABLE " + USERS + " RENAME TO " + RETIRED);
+        jdbcTemplate.execute("ALTER TABLE " + SHADOW + " RENAME TO " + USERS);
+        jdbcTemplate.execute("DROP TABLE " + RETIRED);
+        for (String name : shadowIndexes) {
+            if (name.endsWith(SHADOW_SUFFIX)) {
+                jdbcTemplate.execute("ALTER INDEX " + name + " RENAME TO " + name.substring(0, name.length() - SHADOW_SUFFIX.length()));
+            }
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE IF EXISTS " + SHADOW + "_id_seq RENAME TO " + USERS + "_id_seq");
+        jdbcTemplate.execute("DROP TABLE " + SHADOW_CHANGES);
+        // The trigger went with the retired table
+        jdbcTemplate.execute("DROP TABLE " + LIVE_CHANGES);
+        jdbcTemplate.execute("DROP FUNCTION " + LIVE_CHANGES_FUNCTION + "()");
+        logger.info("Shadow table swapped in for {}.", USERS);
+    }
+
+    static String shadowIndexDefinition(String definition, String name, String shadowName) {
+        // e.g. CREATE UNIQUE INDEX users_pkey ON public.users USING btree (id)
+        Matcher matcher = Pattern.compile(" INDEX " + Pattern.quote(name) + " ON (ONLY )?((?:\\S+\\.)?)" + USERS + " ")
+                .matcher(definition);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected index definition: " + definition);
+        }
+        String only = matcher.group(1) != null ? matcher.group(1) : "";
+        return definition.substring(0, matcher.start()) + " INDEX " + shadowName + " ON " + only +
+                matcher.group(2) + SHADOW + " " + definition.substring(matcher.end());
+    }
+
+    private static String prefixed(String alias, String columns) {
+        return alias + "." + String.join(", " + alias + ".", columns.split(", "));
+    }
+
+    private static void setUser(PreparedStatement ps, User user) throws SQLException {
+        ps.setObject(1, user.getId(), Types.BIGINT);
+        ps.setString(2, user.getUsername());
+        ps.setString(3, user.getEmail());
+        ps.setObject(4, user.getCreatedAt(), Types.TIMESTAMP);
+        ps.setObject(5, user.getCreatedDate(), Types.TIMESTAMP);
+        ps.setObject(6, user.getUpdatedDate(), Types.TIMESTAMP);
+        ps.setBoolean(7, user.isDeleted());
+        ps.setObject(8, user.getEventSequence(), Types.BIGINT);
+    }
+}
@@ -0,0 +1,20 @@
+package org.personal.kafkamavenrepo.Persistence.Postgres;
+
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+import java.util.Collection;
+
+/**
+ * Destination of the collapsed user changes flushed by a write buffer.
+ */
+@FunctionalInterface
+public interface UserChangeWriter {
+
+    /**
+     * @param upserts Users to insert or overwrite, keyed by their id.
+     * @param deletes Ids of users to remove.
+     * @param unkeyed Users without an id, to insert with a generated one.
+     * @param batchSize Number of statements sent per JDBC batch.
+     */
+    void write(Collection<User> upserts, Collection<Long> deletes, Collection<User> unkeyed, int batchSize);
+}
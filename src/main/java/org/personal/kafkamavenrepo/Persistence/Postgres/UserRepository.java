@@ -1,10 +1,48 @@
 package org.personal.kafkamavenrepo.Persistence.Postgres;
 
 import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByUsername(String username);
+
+    /**
+     * Keyset page of users in id order, starting strictly after the given id.
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * @return The sequence of the last event applied to the user, or null if there is none.
+     */
+    @Query("select u.eventSequence from User u where u.id = :id")
+    Long findEventSequenceById(@Param("id") Long id);
+
+    /**
+     * Moves the user to its next event sequence. The row stays locked until the transaction ends,
+     * so concurrent changes to one user get consecutive sequences.
+     *
+     * @return The number of users updated, 0 if the user does not exist.
+     */
+    @Modifying
+    @Query("update User u set u.eventSequence = coalesce(u.eventSequence, 0) + 1 where u.id = :id")
+    int incrementEventSequence(@Param("id") Long id);
+
+    /**
+     * Deletes a user with a single statement, unlike {@code deleteById}, which loads it first.
+     * Pending changes are flushed before, and the persistence context is cleared after, so a
+     * loaded copy of the user is not written back.
+     *
+     * @return The number of users deleted, 0 if the user does not exist.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from User u where u.id = :id")
+    int deleteUserById(@Param("id") Long id);
 }
\ No newline at end of file
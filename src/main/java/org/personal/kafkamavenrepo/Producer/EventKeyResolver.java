@@ -0,0 +1,14 @@
+package org.personal.kafkamavenrepo.Producer;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+/**
+ * Chooses the Kafka record key of an event. Records with the same key land on the same
+ * partition, so the key decides which events keep their relative order. The application uses
+ * {@link UserIdKeyResolver}, declared in {@code KafkaConfig}.
+ */
+public interface EventKeyResolver {
+
+    String resolveKey(EventType type, User user);
+}
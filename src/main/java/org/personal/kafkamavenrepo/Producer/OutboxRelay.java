@@ -0,0 +1,167 @@
+package org.personal.kafkamavenrepo.Producer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.Postgres.Outbox.OutboxEvent;
+import org.personal.kafkamavenrepo.Persistence.Postgres.OutboxEventRepository;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox to Kafka. Pending entries are sent in id order as one pipelined batch and
+ * marked published only once every send of the batch is acknowledged; anything else is retried
+ * on the next run, which gives at-least-once delivery. Consumers drop duplicates by event id.
+ * <p>
+ * Each batch is claimed in a short transaction (SELECT ... FOR UPDATE SKIP LOCKED, then a claim
+ * date on the rows), so relays running on several instances split the pending entries instead of
+ * sending them twice. No row lock or connection is held while the batch is sent. A failed batch
+ * is released for the next run; the claim of a relay that dies mid-send expires after the claim
+ * timeout, which is longer than the send timeout. Two relays may publish the events of one user
+ * out of order; consumers drop the older ones by their per-user sequence, and every event carries
+ * the whole user.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Producer producer;
+    private final TransactionOperations transactionOperations;
+    private final DistributionSummary batchSizes;
+    private final Counter failedBatches;
+
+    @Value("${outbox.relay.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${outbox.relay.send-timeout-ms:30000}")
+    private long sendTimeoutMillis = 30000;
+
+    @Value("${outbox.relay.claim-timeout-ms:60000}")
+    private long claimTimeoutMillis = 60000;
+
+    @Value("${outbox.retention-hours:24}")
+    private long retentionHours = 24;
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, Producer producer,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this(outboxEventRepository, producer, new TransactionTemplate(transactionManager), meterRegistry);
+    }
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, Producer producer,
+                       TransactionOperations transactionOperations, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.producer = producer;
+        this.transactionOperations = transactionOperations;
+        this.batchSizes = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Outbox entries sent per relay batch")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("outbox.relay.batch.failures")
+                .description("Relay batches left for the next run because a send failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes pending outbox entries until the outbox is empty or a batch fails.
+     *
+     * @return The number of entries published.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public int relay() {
+        int published = 0;
+        int relayed;
+        do {
+            List<OutboxEvent> batch = transactionOperations.execute(status -> claimBatch());
+            relayed = batch != null && !batch.isEmpty() && publish(batch) ? batch.size() : 0;
+            published += relayed;
+        } while (relayed == batchSize);
+        if (published > 0) {
+            logger.debug("Relayed {} outbox events to Kafka", published);
+        }
+        return published;
+    }
+
+    /**
+     * Removes published entries older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${outbox.cleanup.interval-ms:3600000}")
+    public void cleanup() {
+        int removed = outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            logger.info("Removed {} published outbox events", removed);
+        }
+    }
+
+    /**
+     * Locks and claims one batch of pending entries, in the caller's transaction.
+     *
+     * @return The entries claimed: none if the outbox is empty.
+     */
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> batch = outboxEventRepository.findClaimable(
+                now.minus(claimTimeoutMillis, ChronoUnit.MILLIS), PageRequest.of(0, batchSize));
+        if (!batch.isEmpty()) {
+            outboxEventRepository.claim(ids(batch), now);
+        }
+        return batch;
+    }
+
+    /**
+     * Sends a claimed batch and marks it published, or releases it if a send failed.
+     */
+    private boolean publish(List<OutboxEvent> batch) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        List<Long> ids = ids(batch);
+        try {
+            for (OutboxEvent outboxEvent : batch) {
+                // The outbox keeps events as JSON; the producer re-encodes them in the topic's format
+                Event event = JsonUtil.deserialize(outboxEvent.getPayload(), Event.class);
+                sends.add(producer.sendAsync(outboxEvent.getAggregateKey(), event));
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outboxEventRepository.releaseClaims(ids);
+            return false;
+        } catch (Exception e) {
+            logger.error("Failed to relay outbox batch starting at id {}; it will be retried", batch.get(0).getId(), e);
+            failedBatches.increment();
+            outboxEventRepository.releaseClaims(ids);
+            return false;
+        }
+
+        batchSizes.record(batch.size());
+        outboxEventRepository.markPublished(ids, LocalDateTime.now());
+        return true;
+    }
+
+    private static List<Long> ids(List<OutboxEvent> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (OutboxEvent outboxEvent : batch) {
+            ids.add(outboxEvent.getId());
+        }
+        return ids;
+    }
+}
@@ -1,54 +1,179 @@
 package org.personal.kafkamavenrepo.Producer;
 
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
 import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
-import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.personal.kafkamavenrepo.Utilities.EventTypeTimers;
+import org.personal.kafkamavenrepo.Utilities.LogRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Component
 public class Producer {
 
     private static final Logger logger = LoggerFactory.getLogger(Producer.class);
+    private static final LogRateLimiter debugLimiter = new LogRateLimiter();
+
+    private final KafkaTemplate<String, Event> kafkaTemplate;
+    private final EventKeyResolver keyResolver;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final EventTypeTimers sendTimers;
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    @Value("${kafka.topic:test-topic}")
+    private String topic = "test-topic";
 
     @Autowired
-    public Producer(KafkaTemplate<String, String> kafkaTemplate) {
+    public Producer(KafkaTemplate<String, Event> kafkaTemplate, EventKeyResolver keyResolver,
+                    @Value("${kafka.producer.max-in-flight:10000}") int maxInFlight, MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
+        this.keyResolver = keyResolver;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.sendTimers = new EventTypeTimers(meterRegistry, "event.producer.send",
+                "Time from handing an event to the producer until the broker acknowledged or rejected it");
+        Gauge.builder("event.producer.in-flight", this, Producer::getInFlightCount)
+                .description("Sends not acknowledged yet")
+                .register(meterRegistry);
     }
 
     /**
-     * Sends an event to the Kafka topic.
+     * Sends an event to the Kafka topic, keyed so that all events of one user share a partition.
+     * Does not wait for the broker; delivery failures are logged when the send completes.
      *
      * @param type The type of the event (CREATION, DELETION, EDITION, etc.).
      * @param user The user object associated with the event.
      */
     public void sendEvent(EventType type, User user) {
-        try {
-            // Create and populate the event object
-            Event event = new Event();
-            event.setType(type);
-            event.setDescription(JsonUtil.serialize(user));
-            event.setTimestamp(LocalDateTime.now());
+        sendEventAsync(type, user);
+    }
 
-            // Serialize the event to JSON
-            String serializedEvent = JsonUtil.serialize(event);
+    /**
+     * Sends an event without blocking on the broker acknowledgement.
+     * The caller only blocks when {@code kafka.producer.max-in-flight} sends are already
+     * unacknowledged, which bounds the memory held by a fast caller and a slow broker.
+     *
+     * @param type The type of the event (CREATION, DELETION, EDITION, etc.).
+     * @param user The user object associated with the event.
+     * @return A future completed with the broker metadata, or exceptionally if delivery failed.
+     */
+    public CompletableFuture<SendResult<String, Event>> sendEventAsync(EventType type, User user) {
+        return sendAsync(resolveKey(type, user), createEvent(type, user));
+    }
 
+    /**
+     * Sends a prepared event, e.g. one taken from the outbox. The value serializer encodes it in
+     * the format configured for the topic.
+     *
+     * @param key The record key, see {@link #resolveKey(EventType, User)}.
+     * @param event The event.
+     * @return A future completed with the broker metadata, or exceptionally if delivery failed.
+     */
+    public CompletableFuture<SendResult<String, Event>> sendAsync(String key, Event event) {
+        acquirePermit();
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Event>> future;
+        try {
             // Send the event to the Kafka topic
-            kafkaTemplate.send("test-topic", serializedEvent);
-            logger.info("Successfully sent event: {}", serializedEvent);
+            future = kafkaTemplate.send(topic, key, event);
         } catch (Exception e) {
-            // Log the error with context
-            logger.error("Failed to create or send event of type '{}' for user '{}'", type, user, e);
+            inFlight.release();
+            sendTimers.record(event.getType(), false, start);
+            logger.error("Failed to send event with key '{}'", key, e);
             throw new RuntimeException("Error sending event to Kafka", e); // Optionally rethrow
         }
+
+        return future.whenComplete((result, ex) -> {
+            inFlight.release();
+            sendTimers.record(event.getType(), ex == null, start);
+            if (ex != null) {
+                logger.error("Kafka rejected event with key '{}'", key, ex);
+            } else if (logger.isDebugEnabled() && debugLimiter.tryAcquire()) {
+                RecordMetadata metadata = result != null ? result.getRecordMetadata() : null;
+                logger.debug("Sent event {} {} {} {}", kv("type", event.getType()), kv("key", key),
+                        kv("partition", metadata != null ? metadata.partition() : null),
+                        kv("offset", metadata != null ? metadata.offset() : null));
+            }
+        });
+    }
+
+    /**
+     * Sends one event per user as a single pipelined burst: all records are handed to the
+     * producer before any acknowledgement is awaited, so they share producer batches.
+     *
+     * @param type The type of the events.
+     * @param users The users the events are about, in send order.
+     * @return A future completed with one result per user once every send has been acknowledged.
+     */
+    public CompletableFuture<List<SendResult<String, Event>>> sendEvents(EventType type, List<User> users) {
+        List<CompletableFuture<SendResult<String, Event>>> futures = new ArrayList<>(users.size());
+        for (User user : users) {
+            futures.add(sendEventAsync(type, user));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * @return The number of sends that have not been acknowledged yet.
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Builds the event published for a user change.
+     *
+     * @param type The type of the event.
+     * @param user The user the event is about; its event sequence becomes the event's.
+     * @return The event, timestamped now and with a new id.
+     */
+    public Event createEvent(EventType type, User user) {
+        // Create and populate the event object
+        Event event = new Event();
+        // A string id, like every stored event, so ids compare within one type when replay pages by them
+        event.setId(UUID.randomUUID().toString());
+        event.setType(type);
+        event.setVersion(Event.CURRENT_VERSION);
+        event.setPayload(user);
+        event.setAggregateId(user.getId() != null ? String.valueOf(user.getId()) : null);
+        event.setSequence(user.getEventSequence());
+        event.setTimestamp(LocalDateTime.now());
+        return event;
+    }
+
+    /**
+     * @return The record key for an event about the given user.
+     */
+    public String resolveKey(EventType type, User user) {
+        return keyResolver.resolveKey(type, user);
+    }
+
+    private void acquirePermit() {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for in-flight sends to complete", e);
+        }
     }
-}
\ No newline at end of file
+}
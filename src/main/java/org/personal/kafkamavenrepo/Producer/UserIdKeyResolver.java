@@ -0,0 +1,20 @@
+package org.personal.kafkamavenrepo.Producer;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+/**
+ * Keys events by user id, so every event about a user lands on the same partition whatever its
+ * username at the time. Events are only published about persisted users: one without an id is
+ * rejected rather than keyed by something that would split its events across partitions.
+ */
+public class UserIdKeyResolver implements EventKeyResolver {
+
+    @Override
+    public String resolveKey(EventType type, User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("Cannot key a " + type + " event: the user has no id");
+        }
+        return user.getId().toString();
+    }
+}
@@ -0,0 +1,137 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The parts of an Avro schema that binary decoding needs, parsed from its JSON definition. Named
+ * types may be referenced by their full or simple name once defined.
+ */
+final class AvroSchema {
+
+    enum Kind { NULL, BOOLEAN, INT, LONG, FLOAT, DOUBLE, BYTES, STRING, RECORD, ENUM, ARRAY, MAP, FIXED, UNION }
+
+    /**
+     * A record field; {@code defaultValue} is null when the field has no default.
+     */
+    record Field(String name, AvroSchema schema, JsonNode defaultValue) {
+    }
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    final Kind kind;
+    final String name;
+    final List<Field> fields = new ArrayList<>();
+    final List<String> symbols = new ArrayList<>();
+    final List<AvroSchema> branches = new ArrayList<>();
+    String enumDefault;
+    AvroSchema elements;
+    int size;
+
+    private AvroSchema(Kind kind, String name) {
+        this.kind = kind;
+        this.name = name;
+    }
+
+    /**
+     * @param definition The JSON text of the schema.
+     */
+    static AvroSchema parse(String definition) {
+        try {
+            return parse(objectMapper.readTree(definition), null, new HashMap<>());
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Invalid schema definition", e);
+        }
+    }
+
+    /**
+     * @return The field with this name, or null if the record has none.
+     */
+    Field field(String fieldName) {
+        for (Field field : fields) {
+            if (field.name().equals(fieldName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static AvroSchema parse(JsonNode node, String namespace, Map<String, AvroSchema> named) {
+        if (node.isTextual()) {
+            return reference(node.asText(), namespace, named);
+        }
+        if (node.isArray()) {
+            AvroSchema union = new AvroSchema(Kind.UNION, null);
+            node.forEach(branch -> union.branches.add(parse(branch, namespace, named)));
+            return union;
+        }
+        if (!node.isObject() || !node.hasNonNull("type")) {
+            throw new SerializationException("Invalid schema: " + node);
+        }
+        String type = node.get("type").asText();
+        switch (type) {
+            case "record", "error", "enum", "fixed" -> {
+                String simpleName = node.path("name").asText();
+                String space = node.has("namespace") ? node.get("namespace").asText() : namespace;
+                if (simpleName.contains(".")) {
+                    space = simpleName.substring(0, simpleName.lastIndexOf('.'));
+                    simpleName = simpleName.substring(simpleName.lastIndexOf('.') + 1);
+                }
+                Kind kind = type.equals("error") ? Kind.RECORD : Kind.valueOf(type.toUpperCase(Locale.ROOT));
+                AvroSchema schema = new AvroSchema(kind, simpleName);
+                // Registered before the fields are parsed, so a record can refer to itself
+                named.put(simpleName, schema);
+                if (space != null && !space.isEmpty()) {
+                    named.put(space + "." + simpleName, schema);
+                }
+                if (kind == Kind.RECORD) {
+                    for (JsonNode field : node.path("fields")) {
+                        schema.fields.add(new Field(field.path("name").asText(),
+                                parse(field.get("type"), space, named), field.get("default")));
+                    }
+                } else if (kind == Kind.ENUM) {
+                    node.path("symbols").forEach(symbol -> schema.symbols.add(symbol.asText()));
+                    schema.enumDefault = node.has("default") ? node.get("default").asText() : null;
+                } else {
+                    schema.size = node.path("size").asInt();
+                }
+                return schema;
+            }
+            case "array", "map" -> {
+                AvroSchema schema = new AvroSchema(type.equals("array") ? Kind.ARRAY : Kind.MAP, null);
+                schema.elements = parse(node.get(type.equals("array") ? "items" : "values"), namespace, named);
+                return schema;
+            }
+            default -> {
+                // A primitive, possibly with a logical type the binary encoding does not depend on
+                return reference(type, namespace, named);
+            }
+        }
+    }
+
+    private static AvroSchema reference(String typeName, String namespace, Map<String, AvroSchema> named) {
+        switch (typeName) {
+            case "null", "boolean", "int", "long", "float", "double", "bytes", "string" -> {
+                return new AvroSchema(Kind.valueOf(typeName.toUpperCase(Locale.ROOT)), null);
+            }
+            default -> {
+                AvroSchema schema = namespace != null ? named.get(namespace + "." + typeName) : null;
+                if (schema == null) {
+                    schema = named.get(typeName);
+                }
+                if (schema == null) {
+                    throw new SerializationException("Unknown type '" + typeName + "' in schema");
+                }
+                return schema;
+            }
+        }
+    }
+}
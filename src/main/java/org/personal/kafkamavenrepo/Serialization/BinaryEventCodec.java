@@ -0,0 +1,220 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary wire format: the Avro binary encoding of {@code schemas/event-v1.avsc}, written
+ * by hand so no code generation or Avro runtime is needed. Field names are not on the wire; the
+ * schema id in the {@link #SCHEMA_ID_HEADER} header says how to read the value.
+ * <p>
+ * Values written with this codec's schema are read directly. Values written with another schema
+ * are read by looking it up in the {@link SchemaRegistry} and resolving it against this one, as
+ * Avro does (see {@link SchemaResolver}), so producers and consumers on different schema versions
+ * can share a topic as long as the schemas are compatible.
+ */
+public class BinaryEventCodec implements EventCodec {
+
+    public static final String FORMAT = "binary";
+    public static final String SUBJECT = "event";
+    static final String SCHEMA_RESOURCE = "schemas/event-v1.avsc";
+
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    private final SchemaRegistry schemaRegistry;
+    private final long schemaId;
+    private final byte[] schemaIdHeader;
+    private final AvroSchema readerSchema;
+    private final Map<Long, SchemaResolver.ValueReader> writerSchemaReaders = new ConcurrentHashMap<>();
+
+    public BinaryEventCodec(SchemaRegistry schemaRegistry) {
+        String schema = loadSchema();
+        this.schemaRegistry = schemaRegistry;
+        this.schemaId = schemaRegistry.register(SUBJECT, schema);
+        this.schemaIdHeader = ByteBuffer.allocate(Long.BYTES).putLong(schemaId).array();
+        this.readerSchema = AvroSchema.parse(schema);
+    }
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    public long getSchemaId() {
+        return schemaId;
+    }
+
+    @Override
+    public byte[] encode(Event event, Headers headers) {
+        if (headers == null) {
+            throw new SerializationException("Binary events need record headers for the schema id");
+        }
+        headers.remove(SCHEMA_ID_HEADER);
+        headers.add(SCHEMA_ID_HEADER, schemaIdHeader);
+
+        BinaryWriter writer = new BinaryWriter(256);
+        writer.writeNullableString(event.getId());
+        if (writer.writePresent(event.getType())) {
+            writer.writeInt(event.getType().ordinal());
+        }
+        writer.writeNullableString(event.getDescription());
+        writer.writeInt(event.getVersion());
+        if (writer.writePresent(event.getPayload())) {
+            writeUser(writer, event.getPayload());
+        }
+        writer.writeNullableString(event.getAggregateId());
+        writer.writeNullableLong(event.getSequence());
+        writer.writeNullableTimestamp(event.getTimestamp());
+        writer.writeNullableTimestamp(event.getCreatedDate());
+        writer.writeNullableTimestamp(event.getUpdatedDate());
+        writer.writeBoolean(event.isDeleted());
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Event decode(byte[] data, Headers headers) {
+        return decode(ByteBuffer.wrap(data), headers);
+    }
+
+    @Override
+    public Event decode(ByteBuffer data, Headers headers) {
+        long writerSchemaId = readSchemaId(headers);
+        BinaryReader reader = new BinaryReader(data);
+        Event event = writerSchemaId == schemaId ? readEvent(reader) : readResolvedEvent(reader, writerSchemaId);
+        if (!reader.isExhausted()) {
+            throw new SerializationException("Trailing bytes after event");
+        }
+        return event;
+    }
+
+    private static Event readEvent(BinaryReader reader) {
+        Event event = new Event();
+        event.setId(reader.readNullableString());
+        if (reader.readPresent()) {
+            int ordinal = reader.readInt();
+            if (ordinal < 0 || ordinal >= EVENT_TYPES.length) {
+                throw new SerializationException("Unknown event type index " + ordinal);
+            }
+            event.setType(EVENT_TYPES[ordinal]);
+        }
+        event.setDescription(reader.readNullableString());
+        event.setVersion(reader.readInt());
+        if (reader.readPresent()) {
+            event.setPayload(readUser(reader));
+        }
+        event.setAggregateId(reader.readNullableString());
+        event.setSequence(reader.readNullableLong());
+        event.setTimestamp(reader.readNullableTimestamp());
+        event.setCreatedDate(reader.readNullableTimestamp());
+        event.setUpdatedDate(reader.readNullableTimestamp());
+        event.setDeleted(reader.readBoolean());
+        return event;
+    }
+
+    /**
+     * Reads an event written with another schema. The reader for each writer schema is built
+     * once.
+     */
+    private Event readResolvedEvent(BinaryReader reader, long writerSchemaId) {
+        SchemaResolver.ValueReader valueReader = writerSchemaReaders.computeIfAbsent(writerSchemaId, id -> {
+            String writerSchema = schemaRegistry.findSchema(id)
+                    .orElseThrow(() -> new SerializationException("Cannot decode event: unknown schema " + id));
+            return SchemaResolver.resolve(AvroSchema.parse(writerSchema), readerSchema);
+        });
+        return toEvent(asRecord(valueReader.read(reader)));
+    }
+
+    private static Event toEvent(Map<String, Object> fields) {
+        Event event = new Event();
+        event.setId((String) fields.get("id"));
+        if (fields.get("type") != null) {
+            event.setType(EventType.valueOf((String) fields.get("type")));
+        }
+        event.setDescription((String) fields.get("description"));
+        event.setVersion((Integer) fields.get("version"));
+        if (fields.get("payload") != null) {
+            event.setPayload(toUser(asRecord(fields.get("payload"))));
+        }
+        event.setAggregateId((String) fields.get("aggregateId"));
+        event.setSequence((Long) fields.get("sequence"));
+        event.setTimestamp(toTimestamp(fields.get("timestamp")));
+        event.setCreatedDate(toTimestamp(fields.get("createdDate")));
+        event.setUpdatedDate(toTimestamp(fields.get("updatedDate")));
+        event.setDeleted((Boolean) fields.get("deleted"));
+        return event;
+    }
+
+    private static User toUser(Map<String, Object> fields) {
+        User user = new User();
+        user.setId((Long) fields.get("id"));
+        user.setUsername((String) fields.get("username"));
+        user.setEmail((String) fields.get("email"));
+        user.setCreatedAt(toTimestamp(fields.get("createdAt")));
+        user.setCreatedDate(toTimestamp(fields.get("createdDate")));
+        user.setUpdatedDate(toTimestamp(fields.get("updatedDate")));
+        user.setDeleted((Boolean) fields.get("deleted"));
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asRecord(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static LocalDateTime toTimestamp(Object nanos) {
+        return nanos != null ? BinaryReader.toTimestamp((Long) nanos) : null;
+    }
+
+    private static void writeUser(BinaryWriter writer, User user) {
+        writer.writeNullableLong(user.getId());
+        writer.writeNullableString(user.getUsername());
+        writer.writeNullableString(user.getEmail());
+        writer.writeNullableTimestamp(user.getCreatedAt());
+        writer.writeNullableTimestamp(user.getCreatedDate());
+        writer.writeNullableTimestamp(user.getUpdatedDate());
+        writer.writeBoolean(user.isDeleted());
+    }
+
+    private static User readUser(BinaryReader reader) {
+        User user = new User();
+        user.setId(reader.readNullableLong());
+        user.setUsername(reader.readNullableString());
+        user.setEmail(reader.readNullableString());
+        user.setCreatedAt(reader.readNullableTimestamp());
+        user.setCreatedDate(reader.readNullableTimestamp());
+        user.setUpdatedDate(reader.readNullableTimestamp());
+        user.setDeleted(reader.readBoolean());
+        return user;
+    }
+
+    private static long readSchemaId(Headers headers) {
+        Header header = headers != null ? headers.lastHeader(SCHEMA_ID_HEADER) : null;
+        if (header == null || header.value() == null || header.value().length != Long.BYTES) {
+            throw new SerializationException("Binary event without a valid " + SCHEMA_ID_HEADER + " header");
+        }
+        return ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    private static String loadSchema() {
+        try (InputStream in = new ClassPathResource(SCHEMA_RESOURCE).getInputStream()) {
+            // Line endings depend on the checkout, and the schema id is a fingerprint of this text
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading " + SCHEMA_RESOURCE, e);
+        }
+    }
+}
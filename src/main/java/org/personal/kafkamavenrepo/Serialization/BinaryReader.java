@@ -0,0 +1,160 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Reads what {@link BinaryWriter} writes, straight from the record buffer. Only strings and
+ * timestamps allocate; the buffer's own position is left untouched.
+ */
+class BinaryReader {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final ByteBuffer data;
+    private final int start;
+
+    BinaryReader(byte[] data) {
+        this(ByteBuffer.wrap(data));
+    }
+
+    BinaryReader(ByteBuffer data) {
+        this.data = data.duplicate();
+        this.start = data.position();
+    }
+
+    boolean readBoolean() {
+        require(1);
+        return data.get() != 0;
+    }
+
+    int readInt() {
+        long raw = readVarLong();
+        int value = (int) raw;
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    float readFloat() {
+        require(Float.BYTES);
+        return Float.intBitsToFloat(Integer.reverseBytes(data.getInt()));
+    }
+
+    double readDouble() {
+        require(Double.BYTES);
+        return Double.longBitsToDouble(Long.reverseBytes(data.getLong()));
+    }
+
+    byte[] readBytes() {
+        byte[] bytes = new byte[readLength()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    byte[] readFixed(int size) {
+        require(size);
+        byte[] bytes = new byte[size];
+        data.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Skips a value of a known size, or a length-prefixed one if size is negative.
+     */
+    void skip(int size) {
+        int length = size < 0 ? readLength() : size;
+        require(length);
+        data.position(data.position() + length);
+    }
+
+    String readString() {
+        int size = readLength();
+        String value;
+        if (data.hasArray()) {
+            value = new String(data.array(), data.arrayOffset() + data.position(), size, StandardCharsets.UTF_8);
+            data.position(data.position() + size);
+        } else {
+            byte[] bytes = new byte[size];
+            data.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the branch of a ["null", T] union; the value follows if this returns true.
+     */
+    boolean readPresent() {
+        int branch = readInt();
+        if (branch != 0 && branch != 1) {
+            throw new SerializationException("Invalid union branch " + branch + " at offset " + offset());
+        }
+        return branch == 1;
+    }
+
+    String readNullableString() {
+        return readPresent() ? readString() : null;
+    }
+
+    Long readNullableLong() {
+        return readPresent() ? readLong() : null;
+    }
+
+    LocalDateTime readNullableTimestamp() {
+        return readPresent() ? toTimestamp(readLong()) : null;
+    }
+
+    /**
+     * local-timestamp-nanos: nanoseconds since 1970-01-01T00:00, without a time zone.
+     */
+    static LocalDateTime toTimestamp(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    /**
+     * @return True once every byte has been read.
+     */
+    boolean isExhausted() {
+        return !data.hasRemaining();
+    }
+
+    private int readLength() {
+        long length = readLong();
+        if (length < 0 || length > data.remaining()) {
+            throw new SerializationException("Invalid length " + length + " at offset " + offset());
+        }
+        return (int) length;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            require(1);
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint at offset " + offset());
+    }
+
+    private void require(int bytes) {
+        if (data.remaining() < bytes) {
+            throw new SerializationException("Unexpected end of data at offset " + offset());
+        }
+    }
+
+    private int offset() {
+        return data.position() - start;
+    }
+}
@@ -0,0 +1,92 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Writes Avro binary encoded primitives: zig-zag varints for int and long, length-prefixed UTF-8
+ * for strings, and a union branch index before every nullable value.
+ */
+class BinaryWriter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private byte[] buffer;
+    private int position;
+
+    BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    void writeBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+    }
+
+    void writeInt(int value) {
+        writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes the branch of a ["null", T] union; the value follows if this returns true.
+     */
+    boolean writePresent(Object value) {
+        writeInt(value == null ? 0 : 1);
+        return value != null;
+    }
+
+    void writeNullableString(String value) {
+        if (writePresent(value)) {
+            writeString(value);
+        }
+    }
+
+    void writeNullableLong(Long value) {
+        if (writePresent(value)) {
+            writeLong(value);
+        }
+    }
+
+    /**
+     * local-timestamp-nanos: nanoseconds since 1970-01-01T00:00, without a time zone.
+     */
+    void writeNullableTimestamp(LocalDateTime value) {
+        if (writePresent(value)) {
+            long seconds = value.toEpochSecond(ZoneOffset.UTC);
+            writeLong(Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), value.getNano()));
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.utils.Utils;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One wire format for {@link Event} record values. The format name travels in the
+ * {@link #FORMAT_HEADER} header so consumers can read every format while producers move
+ * topics over one at a time.
+ */
+public interface EventCodec {
+
+    String FORMAT_HEADER = "event-format";
+    String SCHEMA_ID_HEADER = "event-schema-id";
+
+    /**
+     * @return The name written to the {@link #FORMAT_HEADER} header.
+     */
+    String getFormat();
+
+    /**
+     * Encodes an event.
+     *
+     * @param event The event to encode.
+     * @param headers The record headers, which the codec may add to (e.g. a schema id); may be null.
+     * @return The record value.
+     */
+    byte[] encode(Event event, Headers headers);
+
+    /**
+     * Decodes a record value written by {@link #encode(Event, Headers)}.
+     *
+     * @param data The record value.
+     * @param headers The record headers; may be null.
+     * @return The event.
+     */
+    Event decode(byte[] data, Headers headers);
+
+    /**
+     * Decodes a record value in place, without copying it out of the fetch buffer first. The
+     * default copies; codecs override it to read the buffer directly.
+     *
+     * @param data The record value, from its position to its limit; the position is not moved.
+     * @param headers The record headers; may be null.
+     * @return The event.
+     */
+    default Event decode(ByteBuffer data, Headers headers) {
+        return decode(Utils.toArray(data), headers);
+    }
+}
@@ -0,0 +1,112 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kafka deserializer for {@link Event} values in any known format. The format comes from the
+ * {@link EventCodec#FORMAT_HEADER} header; records without it are read with the default codec.
+ * Values are decoded in place from the consumer's fetch buffer. Once bound to a registry, decode
+ * time and failures are recorded per format.
+ */
+public class EventDeserializer implements Deserializer<Event>, MeterBinder {
+
+    private final EventCodec defaultCodec;
+    private final Map<String, EventCodec> codecsByFormat = new HashMap<>();
+    private volatile Map<String, Timer> decodeTimers = Map.of();
+    private volatile Map<String, Counter> decodeFailures = Map.of();
+
+    /**
+     * @param defaultCodec The codec for records without a format header.
+     * @param codecs Every codec that may appear on the topics read.
+     */
+    public EventDeserializer(EventCodec defaultCodec, List<EventCodec> codecs) {
+        this.defaultCodec = defaultCodec;
+        codecsByFormat.put(defaultCodec.getFormat(), defaultCodec);
+        codecs.forEach(codec -> codecsByFormat.put(codec.getFormat(), codec));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Map<String, Timer> timers = new HashMap<>();
+        Map<String, Counter> failures = new HashMap<>();
+        for (String format : codecsByFormat.keySet()) {
+            timers.put(format, Timer.builder("event.consumer.deserialize")
+                    .description("Time to decode one event value")
+                    .tag("format", format)
+                    .register(registry));
+            failures.put(format, Counter.builder("event.consumer.deserialize.failures")
+                    .description("Event values that could not be decoded")
+                    .tag("format", format)
+                    .register(registry));
+        }
+        decodeTimers = timers;
+        decodeFailures = failures;
+    }
+
+    @Override
+    public Event deserialize(String topic, byte[] data) {
+        return data != null ? defaultCodec.decode(data, null) : null;
+    }
+
+    @Override
+    public Event deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return codecFor(headers).decode(data, headers);
+    }
+
+    /**
+     * The variant the Kafka consumer calls: decodes straight from the fetch buffer instead of
+     * first copying each value into its own array. Only this variant is metered, so a failed
+     * value retried through the byte[] variant is counted once.
+     */
+    @Override
+    public Event deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        EventCodec codec = codecFor(headers);
+        Timer timer = decodeTimers.get(codec.getFormat());
+        if (timer == null) {
+            return codec.decode(data, headers);
+        }
+        long start = System.nanoTime();
+        try {
+            Event event = codec.decode(data, headers);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return event;
+        } catch (RuntimeException e) {
+            decodeFailures.get(codec.getFormat()).increment();
+            throw e;
+        }
+    }
+
+    private EventCodec codecFor(Headers headers) {
+        Header format = headers != null ? headers.lastHeader(EventCodec.FORMAT_HEADER) : null;
+        if (format == null || format.value() == null) {
+            return defaultCodec;
+        }
+        String name = new String(format.value(), StandardCharsets.UTF_8);
+        EventCodec codec = codecsByFormat.get(name);
+        if (codec == null) {
+            throw new SerializationException("Unknown event format '" + name + "'");
+        }
+        return codec;
+    }
+}
@@ -0,0 +1,258 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Utilities.IsoLocalDateTimeDeserializer;
+import org.personal.kafkamavenrepo.Utilities.IsoLocalDateTimeSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Hand-written JSON codecs for {@link Event} and its {@link User} payload, the two types on the
+ * producer and consumer hot paths. They write the same document the bean serializers produce
+ * (same names, order and null handling: nulls omitted for Event, written for User) without
+ * per-property reflection, and read fields by name with a switch. Unknown fields are handled as
+ * the mapper is configured to.
+ */
+public class EventJsonModule extends SimpleModule {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString PAYLOAD = new SerializedString("payload");
+    private static final SerializedString AGGREGATE_ID = new SerializedString("aggregateId");
+    private static final SerializedString SEQUENCE = new SerializedString("sequence");
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString CREATED_DATE = new SerializedString("createdDate");
+    private static final SerializedString UPDATED_DATE = new SerializedString("updatedDate");
+    private static final SerializedString DELETED = new SerializedString("deleted");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+
+    private static final IsoLocalDateTimeDeserializer TIME_DESERIALIZER = new IsoLocalDateTimeDeserializer();
+    private static final UserJsonDeserializer USER_DESERIALIZER = new UserJsonDeserializer();
+
+    public EventJsonModule() {
+        super("EventJsonModule");
+        addSerializer(Event.class, new EventJsonSerializer());
+        addSerializer(User.class, new UserJsonSerializer());
+        addDeserializer(Event.class, new EventJsonDeserializer());
+        addDeserializer(User.class, USER_DESERIALIZER);
+    }
+
+    static class EventJsonSerializer extends StdSerializer<Event> {
+
+        EventJsonSerializer() {
+            super(Event.class);
+        }
+
+        @Override
+        public void serialize(Event event, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(event);
+            if (event.getId() != null) {
+                gen.writeFieldName(ID);
+                gen.writeString(event.getId());
+            }
+            if (event.getType() != null) {
+                gen.writeFieldName(TYPE);
+                gen.writeString(event.getType().name());
+            }
+            if (event.getDescription() != null) {
+                gen.writeFieldName(DESCRIPTION);
+                gen.writeString(event.getDescription());
+            }
+            gen.writeFieldName(VERSION);
+            gen.writeNumber(event.getVersion());
+            if (event.getPayload() != null) {
+                gen.writeFieldName(PAYLOAD);
+                UserJsonSerializer.write(event.getPayload(), gen);
+            }
+            if (event.getAggregateId() != null) {
+                gen.writeFieldName(AGGREGATE_ID);
+                gen.writeString(event.getAggregateId());
+            }
+            if (event.getSequence() != null) {
+                gen.writeFieldName(SEQUENCE);
+                gen.writeNumber(event.getSequence());
+            }
+            writeTimeIfPresent(gen, TIMESTAMP, event.getTimestamp());
+            writeTimeIfPresent(gen, CREATED_DATE, event.getCreatedDate());
+            writeTimeIfPresent(gen, UPDATED_DATE, event.getUpdatedDate());
+            gen.writeFieldName(DELETED);
+            gen.writeBoolean(event.isDeleted());
+            gen.writeEndObject();
+        }
+
+        private static void writeTimeIfPresent(JsonGenerator gen, SerializedString name, LocalDateTime value) throws IOException {
+            if (value != null) {
+                gen.writeFieldName(name);
+                IsoLocalDateTimeSerializer.write(value, gen);
+            }
+        }
+    }
+
+    static class UserJsonSerializer extends StdSerializer<User> {
+
+        UserJsonSerializer() {
+            super(User.class);
+        }
+
+        @Override
+        public void serialize(User user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(user, gen);
+        }
+
+        static void write(User user, JsonGenerator gen) throws IOException {
+            gen.writeStartObject(user);
+            gen.writeFieldName(ID);
+            if (user.getId() != null) {
+                gen.writeNumber(user.getId());
+            } else {
+                gen.writeNull();
+            }
+            gen.writeFieldName(USERNAME);
+            gen.writeString(user.getUsername());
+            gen.writeFieldName(EMAIL);
+            gen.writeString(user.getEmail());
+            writeTime(gen, CREATED_AT, user.getCreatedAt());
+            writeTime(gen, CREATED_DATE, user.getCreatedDate());
+            writeTime(gen, UPDATED_DATE, user.getUpdatedDate());
+            gen.writeFieldName(DELETED);
+            gen.writeBoolean(user.isDeleted());
+            gen.writeEndObject();
+        }
+
+        private static void writeTime(JsonGenerator gen, SerializedString name, LocalDateTime value) throws IOException {
+            gen.writeFieldName(name);
+            if (value != null) {
+                IsoLocalDateTimeSerializer.write(value, gen);
+            } else {
+                gen.writeNull();
+            }
+        }
+    }
+
+    static class EventJsonDeserializer extends StdDeserializer<Event> {
+
+        EventJsonDeserializer() {
+            super(Event.class);
+        }
+
+        @Override
+        public Event deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                return (Event) ctxt.handleUnexpectedToken(Event.class, p);
+            }
+            Event event = new Event();
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                JsonToken token = p.nextToken();
+                switch (name) {
+                    case "id" -> event.setId(readString(p, ctxt, token));
+                    case "type" -> event.setType(readType(p, ctxt, token));
+                    case "description" -> event.setDescription(readString(p, ctxt, token));
+                    case "version" -> event.setVersion(readInt(p, ctxt, token));
+                    case "payload" -> event.setPayload(token == JsonToken.VALUE_NULL ? null : USER_DESERIALIZER.deserialize(p, ctxt));
+                    case "aggregateId" -> event.setAggregateId(readString(p, ctxt, token));
+                    case "sequence" -> event.setSequence(readLong(p, ctxt, token));
+                    case "timestamp" -> event.setTimestamp(readTime(p, ctxt, token));
+                    case "createdDate" -> event.setCreatedDate(readTime(p, ctxt, token));
+                    case "updatedDate" -> event.setUpdatedDate(readTime(p, ctxt, token));
+                    case "deleted" -> event.setDeleted(readBoolean(p, ctxt, token));
+                    default -> ctxt.handleUnknownProperty(p, this, Event.class, name);
+                }
+            }
+            return event;
+        }
+
+        private static EventType readType(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+            if (token != JsonToken.VALUE_STRING) {
+                return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, EventType.class);
+            }
+            String text = p.getText();
+            try {
+                return EventType.valueOf(text);
+            } catch (IllegalArgumentException e) {
+                return (EventType) ctxt.handleWeirdStringValue(EventType.class, text, "not one of the EventType values");
+            }
+        }
+    }
+
+    static class UserJsonDeserializer extends StdDeserializer<User> {
+
+        UserJsonDeserializer() {
+            super(User.class);
+        }
+
+        @Override
+        public User deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                return (User) ctxt.handleUnexpectedToken(User.class, p);
+            }
+            User user = new User();
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                JsonToken token = p.nextToken();
+                switch (name) {
+                    case "id" -> user.setId(readLong(p, ctxt, token));
+                    case "username" -> user.setUsername(readString(p, ctxt, token));
+                    case "email" -> user.setEmail(readString(p, ctxt, token));
+                    case "createdAt" -> user.setCreatedAt(readTime(p, ctxt, token));
+                    case "createdDate" -> user.setCreatedDate(readTime(p, ctxt, token));
+                    case "updatedDate" -> user.setUpdatedDate(readTime(p, ctxt, token));
+                    case "deleted" -> user.setDeleted(readBoolean(p, ctxt, token));
+                    default -> ctxt.handleUnknownProperty(p, this, User.class, name);
+                }
+            }
+            return user;
+        }
+    }
+
+    // Each reader handles the token we write directly and leaves anything else (coercions,
+    // errors) to the mapper's standard handling
+
+    private static String readString(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, String.class);
+    }
+
+    private static int readInt(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return p.getIntValue();
+        }
+        Integer value = token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, Integer.class);
+        return value != null ? value : 0;
+    }
+
+    private static Long readLong(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return p.getLongValue();
+        }
+        return token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, Long.class);
+    }
+
+    private static boolean readBoolean(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        Boolean value = token == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, Boolean.class);
+        return value != null && value;
+    }
+
+    private static LocalDateTime readTime(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : TIME_DESERIALIZER.deserialize(p, ctxt);
+    }
+}
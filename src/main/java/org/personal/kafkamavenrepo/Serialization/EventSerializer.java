@@ -0,0 +1,66 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kafka serializer for {@link Event} values. Each topic is written in its configured format,
+ * falling back to a default, and the format name is recorded in the {@link EventCodec#FORMAT_HEADER}
+ * header.
+ */
+public class EventSerializer implements Serializer<Event> {
+
+    private final EventCodec defaultCodec;
+    private final Map<String, EventCodec> codecsByTopic;
+
+    /**
+     * @param defaultCodec The format of every topic without an override.
+     * @param codecsByTopic Per-topic format overrides.
+     */
+    public EventSerializer(EventCodec defaultCodec, Map<String, EventCodec> codecsByTopic) {
+        this.defaultCodec = defaultCodec;
+        this.codecsByTopic = Map.copyOf(codecsByTopic);
+    }
+
+    /**
+     * Writes the given topics with one codec and every other topic with the default codec.
+     */
+    public static EventSerializer withTopics(EventCodec defaultCodec, EventCodec topicCodec, Set<String> topics) {
+        Map<String, EventCodec> codecsByTopic = new HashMap<>();
+        topics.forEach(topic -> codecsByTopic.put(topic, topicCodec));
+        return new EventSerializer(defaultCodec, codecsByTopic);
+    }
+
+    /**
+     * @return The codec a topic is written with.
+     */
+    public EventCodec codecFor(String topic) {
+        return codecsByTopic.getOrDefault(topic, defaultCodec);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Event event) {
+        // Without headers only the default format can be told apart on the consumer side
+        return event != null ? defaultCodec.encode(event, null) : null;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Event event) {
+        if (event == null) {
+            return null;
+        }
+        EventCodec codec = codecFor(topic);
+        if (headers == null) {
+            return serialize(topic, event);
+        }
+        headers.remove(EventCodec.FORMAT_HEADER);
+        headers.add(EventCodec.FORMAT_HEADER, codec.getFormat().getBytes(StandardCharsets.UTF_8));
+        return codec.encode(event, headers);
+    }
+}
@@ -0,0 +1,101 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link SchemaRegistry} kept in a local JSON file, as a stand-in for a schema registry service
+ * that works offline. Ids are the first 8 bytes of the SHA-256 of the schema text.
+ */
+public class FileSchemaRegistry implements SchemaRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSchemaRegistry.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+    private final Map<Long, RegisteredSchema> schemas = new LinkedHashMap<>();
+
+    public FileSchemaRegistry(Path file) {
+        this.file = file;
+        load();
+    }
+
+    @Override
+    public synchronized long register(String subject, String schema) {
+        long id = fingerprint(schema);
+        if (schemas.containsKey(id)) {
+            return id;
+        }
+        schemas.put(id, new RegisteredSchema(id, subject, schema));
+        save();
+        logger.info("Registered schema {} for subject '{}' in {}", id, subject, file);
+        return id;
+    }
+
+    @Override
+    public synchronized Optional<String> findSchema(long id) {
+        RegisteredSchema registered = schemas.get(id);
+        return registered != null ? Optional.of(registered.schema()) : Optional.empty();
+    }
+
+    /**
+     * @return The id a schema gets, whether or not it is registered.
+     */
+    public static long fingerprint(String schema) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(schema.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<RegisteredSchema> stored = objectMapper.readValue(file.toFile(), new TypeReference<>() {});
+            stored.forEach(registered -> schemas.put(registered.id(), registered));
+            logger.info("Loaded {} schemas from {}", schemas.size(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading schema registry " + file, e);
+        }
+    }
+
+    private void save() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            // Write a temporary file and move it over the registry so readers never see a partial file
+            Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), new ArrayList<>(schemas.values()));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing schema registry " + file, e);
+        }
+    }
+
+    /**
+     * One entry of the registry file.
+     */
+    public record RegisteredSchema(long id, String subject, String schema) {
+    }
+}
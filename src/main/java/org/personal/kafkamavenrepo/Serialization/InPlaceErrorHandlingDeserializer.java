@@ -0,0 +1,35 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ErrorHandlingDeserializer} that hands the consumer's fetch buffer to the delegate as is.
+ * The stock one only implements the byte[] variant, so Kafka copies every value into a new array
+ * before the delegate sees it. Only a failed value is copied, to let the superclass record the
+ * failure for the container's error handler.
+ *
+ * @param <T> The value type.
+ */
+public class InPlaceErrorHandlingDeserializer<T> extends ErrorHandlingDeserializer<T> {
+
+    private final Deserializer<T> delegate;
+
+    public InPlaceErrorHandlingDeserializer(Deserializer<T> delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        try {
+            return delegate.deserialize(topic, headers, data);
+        } catch (Exception e) {
+            return super.deserialize(topic, headers, Utils.toNullableArray(data));
+        }
+    }
+}
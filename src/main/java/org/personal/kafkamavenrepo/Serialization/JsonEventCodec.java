@@ -0,0 +1,35 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The original JSON wire format. Records without a format header are read as JSON.
+ */
+public class JsonEventCodec implements EventCodec {
+
+    public static final String FORMAT = "json";
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] encode(Event event, Headers headers) {
+        return JsonUtil.serializeToBytes(event);
+    }
+
+    @Override
+    public Event decode(byte[] data, Headers headers) {
+        return JsonUtil.deserialize(data, Event.class);
+    }
+
+    @Override
+    public Event decode(ByteBuffer data, Headers headers) {
+        return JsonUtil.deserialize(data, Event.class);
+    }
+}
@@ -0,0 +1,26 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import java.util.Optional;
+
+/**
+ * Catalogue of the schemas record values are written with. Schema ids are fingerprints of the
+ * schema text, so every producer and consumer derives the same id for the same schema without
+ * talking to a shared service.
+ */
+public interface SchemaRegistry {
+
+    /**
+     * Registers a schema, or returns the id it already has.
+     *
+     * @param subject What the schema describes, e.g. "event".
+     * @param schema The schema definition.
+     * @return The schema id.
+     */
+    long register(String subject, String schema);
+
+    /**
+     * @param id A schema id.
+     * @return The schema definition, or empty if the id is unknown.
+     */
+    Optional<String> findSchema(long id);
+}
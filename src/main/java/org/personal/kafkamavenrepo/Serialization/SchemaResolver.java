@@ -0,0 +1,322 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.kafka.common.errors.SerializationException;
+import org.personal.kafkamavenrepo.Serialization.AvroSchema.Field;
+import org.personal.kafkamavenrepo.Serialization.AvroSchema.Kind;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avro schema resolution: reads data written with one schema as another. Record fields are
+ * matched by name; fields only the writer has are skipped, and fields only the reader has take
+ * their default. Numbers are promoted (int to long, float or double; long to float or double;
+ * float to double), strings and bytes are interchangeable, enum symbols are matched by name and
+ * unions by the first compatible branch.
+ * <p>
+ * Records are read as maps of field name to value, enums as their symbol, and timestamps as the
+ * long they are encoded as. Schemas that can never be resolved fail when the reader is built;
+ * writer union branches and enum symbols the reader has no match for fail when they are read.
+ */
+final class SchemaResolver {
+
+    /**
+     * Returned for the writer fields the reader does not have.
+     */
+    private static final Object SKIPPED = new Object();
+
+    /**
+     * Reads one value written with the writer schema as the reader schema.
+     */
+    interface ValueReader {
+        Object read(BinaryReader reader);
+    }
+
+    /**
+     * Record readers by writer and reader schema, which compare by identity.
+     */
+    private final Map<List<AvroSchema>, ValueReader> records = new HashMap<>();
+
+    private SchemaResolver() {
+    }
+
+    /**
+     * @throws SerializationException If data written with the writer schema cannot be read as the
+     * reader schema.
+     */
+    static ValueReader resolve(AvroSchema writer, AvroSchema reader) {
+        return new SchemaResolver().resolver(writer, reader);
+    }
+
+    private ValueReader resolver(AvroSchema writer, AvroSchema reader) {
+        if (writer.kind == Kind.UNION) {
+            List<ValueReader> branches = new ArrayList<>();
+            for (AvroSchema branch : writer.branches) {
+                branches.add(branchResolver(branch, reader));
+            }
+            return in -> {
+                int index = in.readInt();
+                if (index < 0 || index >= branches.size()) {
+                    throw new SerializationException("Invalid union branch " + index);
+                }
+                return branches.get(index).read(in);
+            };
+        }
+        if (reader.kind == Kind.UNION) {
+            for (AvroSchema branch : reader.branches) {
+                if (matches(writer, branch)) {
+                    return resolver(writer, branch);
+                }
+            }
+            throw incompatible(writer, reader);
+        }
+        return switch (writer.kind) {
+            case NULL -> expect(writer, reader, Kind.NULL, in -> null);
+            case BOOLEAN -> expect(writer, reader, Kind.BOOLEAN, BinaryReader::readBoolean);
+            case INT -> switch (reader.kind) {
+                case INT -> BinaryReader::readInt;
+                case LONG -> in -> (long) in.readInt();
+                case FLOAT -> in -> (float) in.readInt();
+                case DOUBLE -> in -> (double) in.readInt();
+                default -> throw incompatible(writer, reader);
+            };
+            case LONG -> switch (reader.kind) {
+                case LONG -> BinaryReader::readLong;
+                case FLOAT -> in -> (float) in.readLong();
+                case DOUBLE -> in -> (double) in.readLong();
+                default -> throw incompatible(writer, reader);
+            };
+            case FLOAT -> switch (reader.kind) {
+                case FLOAT -> BinaryReader::readFloat;
+                case DOUBLE -> in -> (double) in.readFloat();
+                default -> throw incompatible(writer, reader);
+            };
+            case DOUBLE -> expect(writer, reader, Kind.DOUBLE, BinaryReader::readDouble);
+            case STRING, BYTES -> switch (reader.kind) {
+                case STRING -> writer.kind == Kind.STRING ? BinaryReader::readString
+                        : in -> new String(in.readBytes(), StandardCharsets.UTF_8);
+                case BYTES -> BinaryReader::readBytes;
+                default -> throw incompatible(writer, reader);
+            };
+            case FIXED -> {
+                if (reader.kind != Kind.FIXED || writer.size != reader.size || !writer.name.equals(reader.name)) {
+                    throw incompatible(writer, reader);
+                }
+                yield in -> in.readFixed(writer.size);
+            }
+            case ENUM -> enumResolver(writer, reader);
+            case ARRAY -> {
+                if (reader.kind != Kind.ARRAY) {
+                    throw incompatible(writer, reader);
+                }
+                ValueReader items = resolver(writer.elements, reader.elements);
+                yield in -> {
+                    List<Object> values = new ArrayList<>();
+                    readBlocks(in, () -> values.add(items.read(in)));
+                    return values;
+                };
+            }
+            case MAP -> {
+                if (reader.kind != Kind.MAP) {
+                    throw incompatible(writer, reader);
+                }
+                ValueReader values = resolver(writer.elements, reader.elements);
+                yield in -> {
+                    Map<String, Object> entries = new LinkedHashMap<>();
+                    readBlocks(in, () -> entries.put(in.readString(), values.read(in)));
+                    return entries;
+                };
+            }
+            case RECORD -> recordResolver(writer, reader);
+            case UNION -> throw new IllegalStateException("Unions are resolved above");
+        };
+    }
+
+    /**
+     * A writer union branch the reader has no match for only fails if it is actually written.
+     */
+    private ValueReader branchResolver(AvroSchema branch, AvroSchema reader) {
+        try {
+            return resolver(branch, reader);
+        } catch (SerializationException e) {
+            return in -> {
+                throw e;
+            };
+        }
+    }
+
+    private ValueReader enumResolver(AvroSchema writer, AvroSchema reader) {
+        if (reader.kind != Kind.ENUM || !writer.name.equals(reader.name)) {
+            throw incompatible(writer, reader);
+        }
+        String[] symbols = new String[writer.symbols.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            String symbol = writer.symbols.get(i);
+            symbols[i] = reader.symbols.contains(symbol) ? symbol : reader.enumDefault;
+        }
+        return in -> {
+            int index = in.readInt();
+            if (index < 0 || index >= symbols.length) {
+                throw new SerializationException("Unknown " + writer.name + " index " + index);
+            }
+            if (symbols[index] == null) {
+                throw new SerializationException(writer.name + " symbol " + writer.symbols.get(index)
+                        + " is unknown to the reader");
+            }
+            return symbols[index];
+        };
+    }
+
+    private ValueReader recordResolver(AvroSchema writer, AvroSchema reader) {
+        if (reader.kind != Kind.RECORD || !writer.name.equals(reader.name)) {
+            throw incompatible(writer, reader);
+        }
+        // Recursive records refer back to the reader being built
+        List<AvroSchema> key = List.of(writer, reader);
+        ValueReader known = records.get(key);
+        if (known != null) {
+            return known;
+        }
+        List<Field> writerFields = writer.fields;
+        ValueReader[] fieldReaders = new ValueReader[writerFields.size()];
+        Map<String, Object> defaults = defaults(writer, reader);
+        records.put(key, in -> readRecord(in, writerFields, fieldReaders, defaults));
+        for (int i = 0; i < fieldReaders.length; i++) {
+            Field field = writerFields.get(i);
+            Field readerField = reader.field(field.name());
+            fieldReaders[i] = readerField != null ? resolver(field.schema(), readerField.schema()) : skipper(field.schema());
+        }
+        return records.get(key);
+    }
+
+    private static Map<String, Object> readRecord(BinaryReader in, List<Field> writerFields,
+                                                  ValueReader[] fieldReaders, Map<String, Object> defaults) {
+        Map<String, Object> values = new HashMap<>(defaults);
+        for (int i = 0; i < fieldReaders.length; i++) {
+            Object value = fieldReaders[i].read(in);
+            if (value != SKIPPED) {
+                values.put(writerFields.get(i).name(), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return The values of the reader fields the writer does not have.
+     */
+    private static Map<String, Object> defaults(AvroSchema writer, AvroSchema reader) {
+        Map<String, Object> defaults = new HashMap<>();
+        for (Field field : reader.fields) {
+            if (writer.field(field.name()) == null) {
+                if (field.defaultValue() == null) {
+                    throw new SerializationException("Field " + reader.name + "." + field.name()
+                            + " is not written and has no default");
+                }
+                defaults.put(field.name(), defaultValue(field.schema(), field.defaultValue()));
+            }
+        }
+        return defaults;
+    }
+
+    /**
+     * The default of a union is of its first branch.
+     */
+    private static Object defaultValue(AvroSchema schema, JsonNode value) {
+        AvroSchema type = schema.kind == Kind.UNION ? schema.branches.get(0) : schema;
+        return switch (type.kind) {
+            case NULL -> null;
+            case BOOLEAN -> value.asBoolean();
+            case INT -> value.asInt();
+            case LONG -> value.asLong();
+            case FLOAT -> (float) value.asDouble();
+            case DOUBLE -> value.asDouble();
+            case STRING, ENUM -> value.asText();
+            default -> throw new SerializationException("Unsupported default for a " + type.kind + " field");
+        };
+    }
+
+    private static ValueReader skipper(AvroSchema schema) {
+        return in -> {
+            skip(in, schema);
+            return SKIPPED;
+        };
+    }
+
+    private static void skip(BinaryReader in, AvroSchema schema) {
+        switch (schema.kind) {
+            case NULL -> {
+            }
+            case BOOLEAN -> in.skip(1);
+            case INT, ENUM -> in.readInt();
+            case LONG -> in.readLong();
+            case FLOAT -> in.skip(Float.BYTES);
+            case DOUBLE -> in.skip(Double.BYTES);
+            case STRING, BYTES -> in.skip(-1);
+            case FIXED -> in.skip(schema.size);
+            case ARRAY -> readBlocks(in, () -> skip(in, schema.elements));
+            case MAP -> readBlocks(in, () -> {
+                in.skip(-1);
+                skip(in, schema.elements);
+            });
+            case RECORD -> schema.fields.forEach(field -> skip(in, field.schema()));
+            case UNION -> {
+                int index = in.readInt();
+                if (index < 0 || index >= schema.branches.size()) {
+                    throw new SerializationException("Invalid union branch " + index);
+                }
+                skip(in, schema.branches.get(index));
+            }
+        }
+    }
+
+    /**
+     * Arrays and maps are written as blocks, each a count followed by that many items; a negative
+     * count is followed by the block's size in bytes. A zero count ends the value.
+     */
+    private static void readBlocks(BinaryReader in, Runnable item) {
+        for (long count = in.readLong(); count != 0; count = in.readLong()) {
+            if (count < 0) {
+                in.readLong();
+                count = -count;
+            }
+            for (long i = 0; i < count; i++) {
+                item.run();
+            }
+        }
+    }
+
+    /**
+     * @return True if the writer type resolves to the reader one without a union in between.
+     */
+    private static boolean matches(AvroSchema writer, AvroSchema reader) {
+        return switch (writer.kind) {
+            case INT -> reader.kind == Kind.INT || reader.kind == Kind.LONG
+                    || reader.kind == Kind.FLOAT || reader.kind == Kind.DOUBLE;
+            case LONG -> reader.kind == Kind.LONG || reader.kind == Kind.FLOAT || reader.kind == Kind.DOUBLE;
+            case FLOAT -> reader.kind == Kind.FLOAT || reader.kind == Kind.DOUBLE;
+            case STRING, BYTES -> reader.kind == Kind.STRING || reader.kind == Kind.BYTES;
+            case RECORD, ENUM, FIXED -> reader.kind == writer.kind && writer.name.equals(reader.name);
+            default -> reader.kind == writer.kind;
+        };
+    }
+
+    private static ValueReader expect(AvroSchema writer, AvroSchema reader, Kind kind, ValueReader valueReader) {
+        if (reader.kind != kind) {
+            throw incompatible(writer, reader);
+        }
+        return valueReader;
+    }
+
+    private static SerializationException incompatible(AvroSchema writer, AvroSchema reader) {
+        return new SerializationException("Cannot read " + describe(writer) + " as " + describe(reader));
+    }
+
+    private static String describe(AvroSchema schema) {
+        return schema.name != null ? schema.kind + " " + schema.name : schema.kind.toString();
+    }
+}
@@ -1,66 +1,423 @@
 package org.personal.kafkamavenrepo.Service;
 
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.ReplayCheckpoint;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshot;
 import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Mongo.ReplayCheckpointRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserBatchWriter;
 import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
-import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.personal.kafkamavenrepo.Utilities.EventTypeTimers;
+import org.personal.kafkamavenrepo.Utilities.LogRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Service
 public class BusinessRebuildService {
 
     private static final Logger logger = LoggerFactory.getLogger(BusinessRebuildService.class);
+    private static final LogRateLimiter debugLimiter = new LogRateLimiter();
+
+    static final String REBUILD_CHECKPOINT_ID = "business-rebuild";
 
     private final EventService eventService;
     private final UserRepository userRepository;
+    private final ReplayCheckpointRepository checkpointRepository;
+    private final UserBatchWriter userBatchWriter;
+    private final SnapshotService snapshotService;
+    private final EventTypeTimers applyTimers;
+    private final Timer replayPageTimer;
+    private final ReplayProgress replayProgress;
+    private final EventDeduplicator deduplicator;
+    private final Counter duplicateEvents;
+    private final Counter staleEvents;
+    private final Counter malformedEvents;
+
+    @Value("${replay.page-size:1000}")
+    private int pageSize = 1000;
+
+    @Value("${replay.checkpoint-interval:10000}")
+    private int checkpointInterval = 10000;
+
+    @Value("${replay.write.batch-size:5000}")
+    private int writeBatchSize = 5000;
+
+    @Value("${replay.write.flush-interval-ms:1000}")
+    private long flushIntervalMillis = 1000;
+
+    @Value("${replay.shadow-table:true}")
+    private boolean shadowTable = true;
+
+    @Value("${replay.parallelism:0}")
+    private int parallelism = 0;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize = 10;
+
+    @Value("${replay.connection-headroom:2}")
+    private int connectionHeadroom = 2;
 
     @Autowired
-    public BusinessRebuildService(EventService eventService, UserRepository userRepository) {
+    public BusinessRebuildService(EventService eventService, UserRepository userRepository,
+                                  ReplayCheckpointRepository checkpointRepository, UserBatchWriter userBatchWriter,
+                                  SnapshotService snapshotService, MeterRegistry meterRegistry,
+                                  @Value("${kafka.consumer.dedup.window:100000}") int dedupWindow) {
         this.eventService = eventService;
         this.userRepository = userRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.userBatchWriter = userBatchWriter;
+        this.snapshotService = snapshotService;
+        this.applyTimers = new EventTypeTimers(meterRegistry, "event.apply",
+                "Time to apply one consumed event to the business state, by handler");
+        this.replayPageTimer = Timer.builder("event.replay.page")
+                .description("Time to apply one page of replayed events to the write buffer, or hand it to the replay lanes")
+                .register(meterRegistry);
+        this.replayProgress = new ReplayProgress(meterRegistry);
+        this.deduplicator = new EventDeduplicator(dedupWindow);
+        this.duplicateEvents = Counter.builder("event.apply.skipped")
+                .description("Consumed events dropped instead of applied")
+                .tag("reason", "duplicate")
+                .register(meterRegistry);
+        this.staleEvents = Counter.builder("event.apply.skipped")
+                .description("Consumed events dropped instead of applied")
+                .tag("reason", "stale")
+                .register(meterRegistry);
+        this.malformedEvents = Counter.builder("event.apply.skipped")
+                .description("Consumed events dropped instead of applied")
+                .tag("reason", "malformed")
+                .register(meterRegistry);
     }
 
     /**
      * Rebuild the business state from events.
+     * Events are read page by page in (timestamp, id) order so memory stays flat whatever the log size.
+     * A checkpoint is written every {@code replay.checkpoint-interval} events; if one is found on start,
+     * the replay resumes after it instead of clearing the current state again.
+     * Events stored after the replay went past their timestamp are not read; on the live table the
+     * consumer has applied them already, and the replay's writes, guarded by the event sequences,
+     * do not roll them back.
+     * User changes are collapsed per id and written in JDBC batches rather than one save per event.
+     * A fresh rebuild starts from the newest snapshot and only replays the events after it; new
+     * snapshots are taken as the replay progresses and once it completes.
+     * With {@code replay.parallelism} above 1, events are applied on that many lanes partitioned by
+     * user (see {@link ReplayLanes}); the lanes are drained before each checkpoint.
+     * <p>
+     * With {@code replay.shadow-table}, the live users table is neither cleared nor written: the
+     * replay is loaded into a shadow table that is indexed and swapped in once it completes, so reads
+     * keep being served from the old state until then. The events stored while the shadow table is
+     * built are applied to it before the swap, the last of them with the live table locked against
+     * writers, and so are the users written to the live table since the replay started, so no
+     * change written meanwhile is lost, even one whose event was stored after the replay went past
+     * its timestamp. Changes whose events were not stored yet are applied by the consumer once
+     * they are, on the swapped-in table.
+     * Snapshots are not taken mid-replay in this mode, as they copy the live table; one is taken
+     * after the swap.
      */
     public void rebuildFromEvents() {
         logger.info("Starting to rebuild business state from events.");
 
         try {
-            userRepository.deleteAll(); // Clear current state
-            logger.info("All users deleted from the repository. Starting event replay.");
-
-            List<Event> events = eventService.getAllEvents();
+            ReplayCheckpoint checkpoint = checkpointRepository.findById(REBUILD_CHECKPOINT_ID).orElse(null);
+            if (checkpoint != null && !canResume(checkpoint)) {
+                checkpoint = null;
+            }
+            if (checkpoint == null) {
+                checkpoint = new ReplayCheckpoint(REBUILD_CHECKPOINT_ID);
+                checkpoint.setShadowTable(shadowTable);
+                Optional<UserSnapshot> restored;
+                if (shadowTable) {
+                    userBatchWriter.createShadowChanges();
+                    logger.info("Replaying into a shadow table, the live users stay readable. Starting event replay.");
+                    restored = snapshotService.restoreLatestSnapshot(userBatchWriter::appendShadowChanges);
+                } else {
+                    userRepository.deleteAll(); // Clear current state
+                    logger.info("All users deleted from the repository. Starting event replay.");
+                    restored = snapshotService.restoreLatestSnapshot();
+                }
+                ReplayCheckpoint start = checkpoint;
+                restored.ifPresent(snapshot -> {
+                    start.setLastTimestamp(snapshot.getLastTimestamp());
+                    start.setLastEventId(snapshot.getLastEventId());
+                    start.setAppliedEvents(snapshot.getAppliedEvents());
+                    logger.info("Replaying events after snapshot '{}'.", snapshot.getId());
+                });
+            } else {
+                logger.info("Resuming event replay after event '{}' ({} events already applied).",
+                        checkpoint.getLastEventId(), checkpoint.getAppliedEvents());
+            }
 
-            for (Event event : events) {
-                handleEvent(event);
+            replayProgress.start(eventService.countEventsFrom(checkpoint.getLastTimestamp()));
+            long replayed;
+            try (ReplayLanes lanes = new ReplayLanes(replayLanes(),
+                    shadowTable ? this::newShadowWriteBuffer : this::newWriteBuffer, this::replayEvent)) {
+                replayed = replay(checkpoint, lanes);
+            }
+            if (shadowTable) {
+                // Saved so an interrupted build or swap is retried without replaying again
+                saveCheckpoint(checkpoint);
+                userBatchWriter.buildShadow();
+                // Most of the tail is applied with the live table still served, the rest under the swap's lock
+                ReplayCheckpoint position = checkpoint;
+                catchUpShadow(position);
+                userBatchWriter.swapInShadow(() -> catchUpShadow(position));
+            }
+            userBatchWriter.resyncIdentity();
+            if (shadowTable && replayed > 0 && snapshotService.isEnabled()) {
+                snapshotService.takeSnapshot(checkpoint);
             }
 
-            logger.info("Rebuilding business state from events completed successfully.");
+            checkpointRepository.deleteById(REBUILD_CHECKPOINT_ID);
+            logger.info("Rebuilding business state from events completed successfully ({} events applied).",
+                    checkpoint.getAppliedEvents());
         } catch (Exception e) {
             logger.error("Error occurred while rebuilding from events", e);
             throw new RuntimeException("Failed to rebuild from events", e); // Optionally rethrow or handle differently
+        } finally {
+            replayProgress.finish();
         }
     }
 
     /**
-     * Handle an individual event based on its type.
+     * Reads the log after the checkpoint page by page and hands each page to the lanes.
+     * The checkpoint is advanced as pages are handed out but only saved once the lanes are drained.
+     *
+     * @return The number of events replayed.
+     */
+    private long replay(ReplayCheckpoint checkpoint, ReplayLanes lanes) throws InterruptedException {
+        logger.info("Replaying events on {} lane(s).", lanes.parallelism());
+        long replayed = 0;
+        long sinceCheckpoint = 0;
+        long sinceSnapshot = 0;
+        LocalDateTime lastSnapshotTime = LocalDateTime.now();
+        List<Event> page = eventService.getEventsAfter(checkpoint.getLastTimestamp(), checkpoint.getLastEventId(), pageSize);
+        while (!page.isEmpty()) {
+            long pageStart = System.nanoTime();
+            lanes.apply(page);
+            for (Event event : page) {
+                checkpoint.advanceTo(event);
+            }
+            replayPageTimer.record(System.nanoTime() - pageStart, TimeUnit.NANOSECONDS);
+            replayProgress.advance(page.size());
+            replayed += page.size();
+            sinceCheckpoint += page.size();
+            sinceSnapshot += page.size();
+            boolean snapshotDue = !shadowTable && snapshotService.isSnapshotDue(sinceSnapshot, lastSnapshotTime);
+            if (sinceCheckpoint >= checkpointInterval || snapshotDue) {
+                // Everything before the checkpoint must be durable before the checkpoint is
+                lanes.flush();
+                saveCheckpoint(checkpoint);
+                sinceCheckpoint = 0;
+                logger.info("Replaying at {} events/s, about {} events and {}s left.",
+                        Math.round(replayProgress.eventsPerSecond()), replayProgress.remaining(),
+                        Math.round(replayProgress.etaSeconds()));
+            }
+            if (snapshotDue) {
+                snapshotService.takeSnapshot(checkpoint);
+                sinceSnapshot = 0;
+                lastSnapshotTime = LocalDateTime.now();
+            }
+            page = eventService.getEventsAfter(checkpoint.getLastTimestamp(), checkpoint.getLastEventId(), pageSize);
+        }
+        lanes.flush();
+        if (!shadowTable && sinceSnapshot > 0 && snapshotService.isEnabled()) {
+            snapshotService.takeSnapshot(checkpoint);
+        }
+        return replayed;
+    }
+
+    /**
+     * Applies the events stored after the checkpoint to the built shadow table and advances the
+     * checkpoint past them, then carries over the users written to the live table meanwhile. The
+     * events are read by timestamp, which is set when they are sent: one stored after the replay
+     * went past its timestamp is never read, but the consumer applied it to the live table, from
+     * which it is carried over. The checkpoint is not saved: an interrupted rebuild replays the
+     * events into the change table and builds the shadow table again, and the live writes stay
+     * recorded until the swap.
+     *
+     * @return The number of events applied.
+     */
+    private long catchUpShadow(ReplayCheckpoint checkpoint) {
+        UserWriteBuffer buffer = new UserWriteBuffer(userBatchWriter::writeShadow, writeBatchSize, flushIntervalMillis);
+        long applied = 0;
+        List<Event> page = eventService.getEventsAfter(checkpoint.getLastTimestamp(), checkpoint.getLastEventId(), pageSize);
+        while (!page.isEmpty()) {
+            for (Event event : page) {
+                replayEvent(event, buffer);
+                checkpoint.advanceTo(event);
+            }
+            buffer.flushIfDue();
+            applied += page.size();
+            page = eventService.getEventsAfter(checkpoint.getLastTimestamp(), checkpoint.getLastEventId(), pageSize);
+        }
+        buffer.flush();
+        if (applied > 0) {
+            logger.info("Applied {} events stored since the replay to the shadow table.", applied);
+        }
+        userBatchWriter.carryOverLiveChanges();
+        return applied;
+    }
+
+    /**
+     * A checkpoint only resumes a replay into the same table, and a shadow one only while its
+     * change table is still there.
+     */
+    private boolean canResume(ReplayCheckpoint checkpoint) {
+        if (checkpoint.isShadowTable() != shadowTable) {
+            logger.warn("Discarding the replay checkpoint, it was written for the {} table.",
+                    checkpoint.isShadowTable() ? "shadow" : "live");
+            return false;
+        }
+        if (shadowTable && !userBatchWriter.shadowChangesExist()) {
+            logger.warn("Discarding the replay checkpoint, the shadow change table is gone.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * One lane per core unless configured. Each lane holds a pooled connection while it writes, so
+     * there are never more lanes than the pool has connections once the headroom is set aside for
+     * the consumers, the outbox relay and requests running alongside the replay.
+     */
+    int replayLanes() {
+        int lanes = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        int available = Math.max(1, maximumPoolSize - connectionHeadroom);
+        if (lanes > available) {
+            logger.warn("Replay parallelism {} exceeds the {} connections the pool can spare, using {} lanes.",
+                    lanes, available, available);
+            lanes = available;
+        }
+        return Math.max(1, lanes);
+    }
+
+    /**
+     * Discards any saved replay position so the next rebuild starts from an empty state.
+     */
+    public void resetRebuildCheckpoint() {
+        checkpointRepository.deleteById(REBUILD_CHECKPOINT_ID);
+        logger.info("Rebuild checkpoint cleared.");
+    }
+
+    /**
+     * Apply a batch of events in a single transaction.
+     * Changes are collapsed per user and written with batched statements, so the whole batch
+     * costs a handful of round trips instead of one per event. Events already applied, or older
+     * than one already applied to their user, are dropped; the batch's events are only
+     * remembered as applied, and their users snapshotted when due, once the transaction commits.
+     *
+     * @param events The events to apply, in consumption order.
+     */
+    @Transactional
+    public void applyBatch(List<Event> events) {
+        UserWriteBuffer buffer = newWriteBuffer();
+        List<Event> applied = new ArrayList<>(events.size());
+        for (Event event : events) {
+            if (isAlreadyApplied(event)) {
+                continue;
+            }
+            replayEvent(event, buffer);
+            applied.add(event);
+        }
+        buffer.flush();
+        afterCommit(() -> applied.forEach(event -> {
+            deduplicator.recordApplied(event);
+            snapshotService.snapshotAggregateIfDue(event);
+        }));
+    }
+
+    /**
+     * Creates a write buffer configured with the replay batch settings.
+     */
+    public UserWriteBuffer newWriteBuffer() {
+        return new UserWriteBuffer(userBatchWriter, userRepository, writeBatchSize, flushIntervalMillis);
+    }
+
+    /**
+     * Creates a write buffer appending to the shadow change table, for rebuilds that must not
+     * touch the live users table.
+     */
+    public UserWriteBuffer newShadowWriteBuffer() {
+        return new UserWriteBuffer(userBatchWriter::appendShadowChanges, writeBatchSize, flushIntervalMillis);
+    }
+
+    /**
+     * Apply an event to a write buffer instead of writing it straight to the repository.
+     *
+     * @param event The event to replay.
+     * @param buffer The buffer collecting the resulting user changes.
+     */
+    public void replayEvent(Event event, UserWriteBuffer buffer) {
+        EventType eventType = event.getType();
+
+        switch (eventType) {
+            case CREATION:
+            case EDITION: {
+                User user = sequencedUser(event);
+                if (!isMissingUser(event, user)) {
+                    buffer.upsert(user);
+                }
+                break;
+            }
+
+            case DELETION: {
+                User user = EventUsers.resolveUser(event);
+                if (!isMissingUser(event, user)) {
+                    buffer.delete(user);
+                }
+                break;
+            }
+
+            case INTEGRATION:
+                handleIntegrationEvent(event);
+                break;
+
+            default:
+                logger.error("Unknown event type encountered: {}", eventType);
+                throw new IllegalArgumentException("Unknown event type: " + eventType);
+        }
+    }
+
+    private void saveCheckpoint(ReplayCheckpoint checkpoint) {
+        checkpoint.setUpdatedDate(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        logger.info("Replay checkpoint saved after {} events (last event '{}').",
+                checkpoint.getAppliedEvents(), checkpoint.getLastEventId());
+    }
+
+    /**
+     * Handle an individual event based on its type. Redelivered events and events older than
+     * one already applied to their user are dropped without touching the database. The user is
+     * snapshotted once the event is applied, when due.
      *
      * @param event The event to handle.
      */
     public void handleEvent(Event event) {
-        logger.info("Handling event: {}", event);
-
+        if (isAlreadyApplied(event)) {
+            return;
+        }
+        EventType eventType = event.getType();
+        long start = System.nanoTime();
+        boolean applied = false;
         try {
-            EventType eventType = event.getType();
-
             switch (eventType) {
                 case CREATION:
                     handleCreationEvent(event);
@@ -82,9 +439,14 @@ public class BusinessRebuildService {
                     logger.error("Unknown event type encountered: {}", eventType);
                     throw new IllegalArgumentException("Unknown event type: " + eventType);
             }
+            applied = true;
+            deduplicator.recordApplied(event);
+            snapshotService.snapshotAggregateIfDue(event);
         } catch (Exception e) {
             logger.error("Error handling event: {}", event, e);
             throw new RuntimeException("Failed to handle event", e); // Optionally rethrow or handle differently
+        } finally {
+            applyTimers.record(eventType, applied, start);
         }
     }
 
@@ -94,9 +456,12 @@ public class BusinessRebuildService {
      * @param event The event containing user creation details.
      */
     private void handleCreationEvent(Event event) {
-        User createdUser = JsonUtil.deserialize(event.getDescription(), User.class);
+        User createdUser = sequencedUser(event);
+        if (isMissingUser(event, createdUser) || isBehindStoredUser(event, createdUser)) {
+            return;
+        }
         userRepository.save(createdUser);
-        logger.info("User created successfully from event: {}", createdUser);
+        logUserChange("created", createdUser);
     }
 
     /**
@@ -105,9 +470,12 @@ public class BusinessRebuildService {
      * @param event The event containing user deletion details.
      */
     private void handleDeletionEvent(Event event) {
-        User deletedUser = JsonUtil.deserialize(event.getDescription(), User.class);
+        User deletedUser = EventUsers.resolveUser(event);
+        if (isMissingUser(event, deletedUser)) {
+            return;
+        }
         userRepository.delete(deletedUser);
-        logger.info("User deleted successfully from event: {}", deletedUser);
+        logUserChange("deleted", deletedUser);
     }
 
     /**
@@ -116,9 +484,12 @@ public class BusinessRebuildService {
      * @param event The event containing user edition details.
      */
     private void handleEditionEvent(Event event) {
-        User editedUser = JsonUtil.deserialize(event.getDescription(), User.class);
+        User editedUser = sequencedUser(event);
+        if (isMissingUser(event, editedUser) || isBehindStoredUser(event, editedUser)) {
+            return;
+        }
         userRepository.save(editedUser);
-        logger.info("User updated successfully from event: {}", editedUser);
+        logUserChange("updated", editedUser);
     }
 
     /**
@@ -128,6 +499,94 @@ public class BusinessRebuildService {
      */
     private void handleIntegrationEvent(Event event) {
         // Handle integration event
-        logger.info("Integration event handled: {}", event);
+        if (logger.isDebugEnabled() && debugLimiter.tryAcquire()) {
+            logger.debug("Integration event handled {}", kv("eventId", event.getId()));
+        }
+    }
+
+    /**
+     * Checks the event against the recently applied ones, counting it if it is dropped.
+     */
+    private boolean isAlreadyApplied(Event event) {
+        EventDeduplicator.Verdict verdict = deduplicator.check(event);
+        if (verdict == EventDeduplicator.Verdict.APPLY) {
+            return false;
+        }
+        countSkipped(event, verdict);
+        return true;
+    }
+
+    /**
+     * Checks the event against the sequence stored with its user, for users that fell out of the
+     * dedup window or were changed by another instance.
+     */
+    private boolean isBehindStoredUser(Event event, User user) {
+        if (user.getId() == null || user.getEventSequence() == null) {
+            return false;
+        }
+        Long stored = userRepository.findEventSequenceById(user.getId());
+        if (stored == null || stored < user.getEventSequence()) {
+            return false;
+        }
+        countSkipped(event, stored.equals(user.getEventSequence())
+                ? EventDeduplicator.Verdict.DUPLICATE : EventDeduplicator.Verdict.STALE);
+        return true;
+    }
+
+    /**
+     * Checks that a user event carries its user, in its payload or description, counting it as
+     * skipped if not. A malformed event is dropped rather than failing the replay or the
+     * consumer.
+     */
+    private boolean isMissingUser(Event event, User user) {
+        if (user != null) {
+            return false;
+        }
+        malformedEvents.increment();
+        logger.warn("Skipped {} event without a user {} {}", event.getType(),
+                kv("eventId", event.getId()), kv("aggregateId", event.getAggregateId()));
+        return true;
+    }
+
+    private void countSkipped(Event event, EventDeduplicator.Verdict verdict) {
+        (verdict == EventDeduplicator.Verdict.STALE ? staleEvents : duplicateEvents).increment();
+        if (logger.isDebugEnabled() && debugLimiter.tryAcquire()) {
+            logger.debug("Skipped {} event {} {} {}", verdict == EventDeduplicator.Verdict.STALE ? "stale" : "duplicate",
+                    kv("eventId", event.getId()), kv("aggregateId", event.getAggregateId()),
+                    kv("sequence", event.getSequence()));
+        }
+    }
+
+    /**
+     * @return The user the event is about, carrying the event's sequence if it has one.
+     */
+    private static User sequencedUser(Event event) {
+        User user = EventUsers.resolveUser(event);
+        if (user != null && event.getSequence() != null) {
+            user.setEventSequence(event.getSequence());
+        }
+        return user;
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away outside of one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void logUserChange(String change, User user) {
+        if (logger.isDebugEnabled() && debugLimiter.tryAcquire()) {
+            logger.debug("User {} from event {}", change, kv("userId", user.getId()));
+        }
     }
-}
\ No newline at end of file
+}
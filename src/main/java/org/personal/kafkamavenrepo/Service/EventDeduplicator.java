@@ -0,0 +1,75 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the events the consumer applied recently, so redelivered and out-of-order events are
+ * dropped before they reach the database. Keeps the ids of the last {@code window} events and
+ * the highest sequence applied to each of the last {@code window} users, both evicted least
+ * recently used first. Past the window, the sequence stored with each user still keeps older
+ * events from overwriting it; deleted users are only remembered here.
+ * <p>
+ * Thread-safe; the events of one user come from one partition, so from one listener thread.
+ */
+class EventDeduplicator {
+
+    enum Verdict {
+        APPLY,
+        // Already applied: same id, or same sequence for the user
+        DUPLICATE,
+        // Older than an event already applied to the user
+        STALE
+    }
+
+    private final Map<String, Boolean> appliedIds;
+    private final Map<String, Long> lastSequences;
+
+    /**
+     * @param window The number of event ids, and of user sequences, kept; 0 disables the checks.
+     */
+    EventDeduplicator(int window) {
+        this.appliedIds = lruMap(window);
+        this.lastSequences = lruMap(window);
+    }
+
+    /**
+     * @return Whether the event should be applied, judged from the events recorded so far.
+     */
+    synchronized Verdict check(Event event) {
+        if (event.getId() != null && appliedIds.get(event.getId()) != null) {
+            return Verdict.DUPLICATE;
+        }
+        if (event.getSequence() != null && event.getAggregateId() != null) {
+            Long last = lastSequences.get(event.getAggregateId());
+            if (last != null && last >= event.getSequence()) {
+                return last.equals(event.getSequence()) ? Verdict.DUPLICATE : Verdict.STALE;
+            }
+        }
+        return Verdict.APPLY;
+    }
+
+    /**
+     * Records an event whose effects are durable. Must not be called before, or a redelivery
+     * after a failed write would be dropped.
+     */
+    synchronized void recordApplied(Event event) {
+        if (event.getId() != null) {
+            appliedIds.put(event.getId(), Boolean.TRUE);
+        }
+        if (event.getSequence() != null && event.getAggregateId() != null) {
+            lastSequences.merge(event.getAggregateId(), event.getSequence(), Math::max);
+        }
+    }
+
+    private static <V> Map<String, V> lruMap(int window) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > window;
+            }
+        };
+    }
+}
@@ -1,6 +1,10 @@
 package org.personal.kafkamavenrepo.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.personal.kafkamavenrepo.Persistence.Mongo.EventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +13,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class EventService {
@@ -16,37 +21,107 @@ public class EventService {
     private static final Logger logger = LoggerFactory.getLogger(EventService.class);
 
     private final EventRepository eventRepository;
+    private final Timer pageReadTimer;
+    private final Timer saveTimer;
+    private final Timer appendTimer;
+    private final Counter duplicateAppends;
 
     @Autowired
-    public EventService(EventRepository eventRepository) {
+    public EventService(EventRepository eventRepository, MeterRegistry meterRegistry) {
         this.eventRepository = eventRepository;
+        this.pageReadTimer = Timer.builder("event.store.page.read")
+                .description("Time to read one page of events for replay")
+                .register(meterRegistry);
+        this.saveTimer = Timer.builder("event.store.save")
+                .description("Time to store one event")
+                .register(meterRegistry);
+        this.appendTimer = Timer.builder("event.store.append")
+                .description("Time to append one batch of consumed events")
+                .register(meterRegistry);
+        this.duplicateAppends = Counter.builder("event.store.append.duplicates")
+                .description("Consumed events not appended because they were already stored")
+                .register(meterRegistry);
     }
 
     /**
-     * Retrieves an event by its name.
+     * Retrieves the most recent event of a type.
      *
-     * @param eventName The name of the event.
+     * @param type The type of the event.
      * @return The event if found, or null otherwise.
      */
-    public Event getEventByName(String eventName) {
+    public Event getLatestEventByType(EventType type) {
         try {
-            Event event = eventRepository.findByEventName(eventName);
+            Event event = eventRepository.findFirstByTypeOrderByTimestampDescIdDesc(type);
             if (event != null) {
-                logger.info("Event found by name '{}': {}", eventName, event);
+                logger.debug("Latest event of type '{}' is {}", type, event.getId());
             } else {
-                logger.warn("No event found with name '{}'", eventName);
+                logger.debug("No event found with type '{}'", type);
             }
             return event;
         } catch (Exception e) {
-            logger.error("Error retrieving event by name '{}'", eventName, e);
-            throw new RuntimeException("Error retrieving event by name", e); // Optionally rethrow
+            logger.error("Error retrieving latest event of type '{}'", type, e);
+            throw new RuntimeException("Error retrieving event by type", e); // Optionally rethrow
         }
     }
 
     /**
-     * Retrieves all events up to a specific timestamp.
+     * Retrieves the events of one aggregate (e.g. a user id), in sequence order.
      *
-     * @param timestamp The timestamp up to which events should be retrieved.
+     * @param aggregateId The id of the aggregate.
+     * @return A list of events.
+     */
+    public List<Event> getEventsForAggregate(String aggregateId) {
+        try {
+            List<Event> events = eventRepository.findByAggregateIdOrderBySequenceAsc(aggregateId);
+            logger.debug("Found {} events for aggregate '{}'", events.size(), aggregateId);
+            return events;
+        } catch (Exception e) {
+            logger.error("Error retrieving events for aggregate '{}'", aggregateId, e);
+            throw new RuntimeException("Error retrieving events by aggregate", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * Retrieves the live events of one aggregate up to a point in time, in replay order and with
+     * only the fields replay needs.
+     *
+     * @param aggregateId The id of the aggregate.
+     * @param upTo The last timestamp to include.
+     * @return A list of events.
+     */
+    public List<Event> getEventsForAggregateUpTo(String aggregateId, LocalDateTime upTo) {
+        try {
+            List<Event> events = eventRepository.findReplayEventsForAggregateUpTo(aggregateId, upTo);
+            logger.debug("Found {} events for aggregate '{}' up to '{}'", events.size(), aggregateId, upTo);
+            return events;
+        } catch (Exception e) {
+            logger.error("Error retrieving events for aggregate '{}' up to '{}'", aggregateId, upTo, e);
+            throw new RuntimeException("Error retrieving events by aggregate", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * Retrieves the live events of one aggregate after a sequence of it and up to a timestamp,
+     * inclusive, in replay order.
+     */
+    public List<Event> getEventsForAggregateAfterSequenceUpTo(String aggregateId, long sequence, LocalDateTime upTo) {
+        try {
+            List<Event> events = eventRepository.findReplayEventsForAggregateAfterSequenceUpTo(aggregateId, sequence, upTo);
+            logger.debug("Found {} events for aggregate '{}' after sequence {} up to '{}'",
+                    events.size(), aggregateId, sequence, upTo);
+            return events;
+        } catch (Exception e) {
+            logger.error("Error retrieving events for aggregate '{}' after sequence {} up to '{}'", aggregateId, sequence, upTo, e);
+            throw new RuntimeException("Error retrieving events by aggregate", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * Retrieves all live events up to a specific timestamp, in replay order and with only the
+     * fields replay needs. Loads the whole range at once; use {@link #getEventsAfter(LocalDateTime, String, LocalDateTime, int)}
+     * for large ranges.
+     *
+     * @param timestamp The timestamp up to which events should be retrieved, inclusive.
      * @return A list of events.
      */
     public List<Event> getEventsUpTo(LocalDateTime timestamp) {
@@ -55,15 +130,15 @@ public class EventService {
         }
 
         try {
-            List<Event> events = eventRepository.findByTimestampBefore(timestamp);
+            List<Event> events = eventRepository.findReplayEventsUpTo(timestamp);
             if (events.isEmpty()) {
-                logger.info("No events found before timestamp '{}'", timestamp);
+                logger.info("No events found up to timestamp '{}'", timestamp);
             } else {
-                logger.info("Found {} events before timestamp '{}'", events.size(), timestamp);
+                logger.info("Found {} events up to timestamp '{}'", events.size(), timestamp);
             }
             return events;
         } catch (Exception e) {
-            logger.error("Error retrieving events before timestamp '{}'", timestamp, e);
+            logger.error("Error retrieving events up to timestamp '{}'", timestamp, e);
             throw new RuntimeException("Error retrieving events by timestamp", e); // Optionally rethrow
         }
     }
@@ -79,15 +154,48 @@ public class EventService {
             event.setCreatedDate(LocalDateTime.now());
             event.setUpdatedDate(LocalDateTime.now());
             event.setDeleted(false);
-            Event savedEvent = eventRepository.save(event);
-            logger.info("Event created: {}", savedEvent);
+            Event savedEvent = saveTimer.record(() -> eventRepository.save(event));
+            logger.debug("Event {} created", savedEvent.getId());
             return savedEvent;
         } catch (Exception e) {
-            logger.error("Error creating event: {}", event, e);
+            logger.error("Error creating event {}", event.getId(), e);
             throw new RuntimeException("Error creating event", e); // Optionally rethrow
         }
     }
 
+    /**
+     * Appends consumed events to the store with one bulk write. Events that are already stored,
+     * by id or by source key, are skipped, so a redelivered batch can be appended again safely.
+     * Events without an id are given one.
+     *
+     * @param events The events to append.
+     * @return The number of events newly stored.
+     */
+    public int appendEvents(List<Event> events) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (Event event : events) {
+                // The bulk insert does not hand generated ids back, and ObjectIds would not compare with the string ones
+                if (event.getId() == null) {
+                    event.setId(UUID.randomUUID().toString());
+                }
+                event.setCreatedDate(now);
+                event.setUpdatedDate(now);
+                event.setDeleted(false);
+            }
+            int appended = appendTimer.record(() -> eventRepository.appendAll(events));
+            int duplicates = events.size() - appended;
+            if (duplicates > 0) {
+                duplicateAppends.increment(duplicates);
+                logger.info("Skipped {} already stored events out of {}", duplicates, events.size());
+            }
+            return appended;
+        } catch (Exception e) {
+            logger.error("Error appending {} events", events.size(), e);
+            throw new RuntimeException("Error appending events", e); // Optionally rethrow
+        }
+    }
+
     /**
      * Updates an existing event.
      *
@@ -101,10 +209,12 @@ public class EventService {
             if (existingEvent != null) {
                 existingEvent.setType(updatedEvent.getType());
                 existingEvent.setDescription(updatedEvent.getDescription());
+                existingEvent.setVersion(updatedEvent.getVersion());
+                existingEvent.setPayload(updatedEvent.getPayload());
                 existingEvent.setTimestamp(updatedEvent.getTimestamp());
                 existingEvent.setUpdatedDate(LocalDateTime.now());
                 Event savedEvent = eventRepository.save(existingEvent);
-                logger.info("Event updated: {}", savedEvent);
+                logger.debug("Event {} updated", savedEvent.getId());
                 return savedEvent;
             } else {
                 logger.warn("No event found with id '{}'", id);
@@ -126,7 +236,7 @@ public class EventService {
         try {
             Event event = eventRepository.findById(id).orElse(null);
             if (event != null) {
-                logger.info("Event found by id '{}': {}", id, event);
+                logger.debug("Event found by id '{}'", id);
             } else {
                 logger.warn("No event found with id '{}'", id);
             }
@@ -153,6 +263,59 @@ public class EventService {
         }
     }
 
+    /**
+     * Retrieves the next page of live events in replay order, i.e. sorted by timestamp then id.
+     *
+     * @param timestamp The timestamp of the last event already read, or null.
+     * @param eventId The id of the last event already read, or null to start from the first event.
+     * @param pageSize The maximum number of events to return.
+     * @return The next page of events, empty once the log is exhausted.
+     */
+    public List<Event> getEventsAfter(LocalDateTime timestamp, String eventId, int pageSize) {
+        try {
+            return pageReadTimer.record(() -> eventRepository.findPageAfter(timestamp, eventId, pageSize));
+        } catch (Exception e) {
+            logger.error("Error retrieving events after event '{}'", eventId, e);
+            throw new RuntimeException("Error retrieving events page", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * Retrieves the next page of live events in replay order, stopping at a point in time.
+     *
+     * @param timestamp The timestamp of the last event already read, or null.
+     * @param eventId The id of the last event already read, or null to start from the first event.
+     * @param upTo The last timestamp to include.
+     * @param pageSize The maximum number of events to return.
+     * @return The next page of events, empty once {@code upTo} has been reached.
+     */
+    public List<Event> getEventsAfter(LocalDateTime timestamp, String eventId, LocalDateTime upTo, int pageSize) {
+        try {
+            return pageReadTimer.record(() -> eventRepository.findPageAfter(timestamp, eventId, upTo, pageSize));
+        } catch (Exception e) {
+            logger.error("Error retrieving events after event '{}' up to '{}'", eventId, upTo, e);
+            throw new RuntimeException("Error retrieving events page", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * Counts the live events a replay resuming at a timestamp still has to apply. Events sharing
+     * the timestamp are included, so the count may be slightly high.
+     *
+     * @param timestamp The timestamp of the last event already read, or null to count every live event.
+     * @return The number of live events at or after the timestamp.
+     */
+    public long countEventsFrom(LocalDateTime timestamp) {
+        try {
+            return timestamp == null
+                    ? eventRepository.countByDeletedFalse()
+                    : eventRepository.countByDeletedFalseAndTimestampGreaterThanEqual(timestamp);
+        } catch (Exception e) {
+            logger.error("Error counting events from '{}'", timestamp, e);
+            throw new RuntimeException("Error counting events", e); // Optionally rethrow
+        }
+    }
+
     /**
      * Marks an event as deleted by its ID.
      *
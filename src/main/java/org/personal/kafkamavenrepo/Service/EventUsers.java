@@ -0,0 +1,25 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+
+/**
+ * Reads the user an event is about, whatever the version of the event. Kept out of {@link Event}
+ * so the domain does not depend on the JSON mapping, which depends on the domain.
+ */
+public final class EventUsers {
+
+    private EventUsers() {
+    }
+
+    /**
+     * @return The user the event is about, from the payload or, for version 1 events, the description.
+     */
+    public static User resolveUser(Event event) {
+        if (event.getPayload() != null || event.getDescription() == null) {
+            return event.getPayload();
+        }
+        return JsonUtil.deserialize(event.getDescription(), User.class);
+    }
+}
@@ -0,0 +1,84 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Domain.Postgres.Outbox.OutboxEvent;
+import org.personal.kafkamavenrepo.Persistence.Postgres.OutboxEventRepository;
+import org.personal.kafkamavenrepo.Producer.Producer;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records events in the transactional outbox. Must be called inside the transaction that
+ * changes the business state, so the change and its event commit or roll back together.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Producer producer;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository, Producer producer) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.producer = producer;
+    }
+
+    /**
+     * Adds an event about a user to the outbox.
+     *
+     * @param type The type of the event.
+     * @param user The user the event is about.
+     * @return The stored outbox entry.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(EventType type, User user) {
+        OutboxEvent outboxEvent = outboxEventRepository.save(toOutboxEvent(type, user));
+        logger.debug("Event '{}' of type '{}' added to the outbox", outboxEvent.getDedupKey(), type);
+        return outboxEvent;
+    }
+
+    /**
+     * Adds one event per user to the outbox.
+     *
+     * @param type The type of the events.
+     * @param users The users the events are about, in publish order.
+     * @return The stored outbox entries.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OutboxEvent> enqueueAll(EventType type, List<User> users) {
+        List<OutboxEvent> outboxEvents = new ArrayList<>(users.size());
+        for (User user : users) {
+            outboxEvents.add(toOutboxEvent(type, user));
+        }
+        return outboxEventRepository.saveAll(outboxEvents);
+    }
+
+    private OutboxEvent toOutboxEvent(EventType type, User user) {
+        // The event id doubles as the dedup key so consumers can drop redelivered copies
+        Event event = producer.createEvent(type, user);
+        String dedupKey = event.getId();
+
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setDedupKey(dedupKey);
+        outboxEvent.setAggregateKey(producer.resolveKey(type, user));
+        outboxEvent.setEventType(type);
+        outboxEvent.setPayload(JsonUtil.serialize(event));
+        outboxEvent.setCreatedDate(now);
+        outboxEvent.setUpdatedDate(now);
+        return outboxEvent;
+    }
+}
@@ -0,0 +1,81 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.personal.kafkamavenrepo.Utilities.LogRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Logs one INFO line per interval summarizing what the pipeline did, in place of a line per
+ * event: events sent and applied (with their rates), failures, and the per-event DEBUG lines the
+ * rate limiters dropped. The figures are deltas of the pipeline meters, so this costs nothing on
+ * the hot path. Nothing is logged for an idle interval.
+ */
+@Component
+public class PipelineThroughputReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineThroughputReporter.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private long lastReportNanos = System.nanoTime();
+    private long lastSent;
+    private long lastSendFailures;
+    private long lastApplied;
+    private long lastApplyFailures;
+
+    @Autowired
+    public PipelineThroughputReporter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${pipeline.logging.summary-interval-ms:60000}",
+            initialDelayString = "${pipeline.logging.summary-interval-ms:60000}")
+    public synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = (now - lastReportNanos) / 1e9;
+        lastReportNanos = now;
+
+        long sentTotal = timerCount("event.producer.send", "success");
+        long sendFailuresTotal = timerCount("event.producer.send", "failure");
+        // Single-record listeners go through event.apply, batch listeners through the batch size
+        long appliedTotal = timerCount("event.apply", "success") + batchedRecords();
+        long applyFailuresTotal = timerCount("event.apply", "failure");
+
+        long sent = sentTotal - lastSent;
+        long sendFailures = sendFailuresTotal - lastSendFailures;
+        long applied = appliedTotal - lastApplied;
+        long applyFailures = applyFailuresTotal - lastApplyFailures;
+        long suppressed = LogRateLimiter.drainSuppressed();
+        lastSent = sentTotal;
+        lastSendFailures = sendFailuresTotal;
+        lastApplied = appliedTotal;
+        lastApplyFailures = applyFailuresTotal;
+
+        if (sent == 0 && sendFailures == 0 && applied == 0 && applyFailures == 0 && suppressed == 0) {
+            return;
+        }
+        logger.info("Pipeline summary over {}s: {} {} {} {} {} {} {}", Math.round(seconds),
+                kv("sent", sent), kv("sentPerSecond", Math.round(sent / seconds)), kv("sendFailures", sendFailures),
+                kv("applied", applied), kv("appliedPerSecond", Math.round(applied / seconds)),
+                kv("applyFailures", applyFailures), kv("suppressedDebugLines", suppressed));
+    }
+
+    private long timerCount(String name, String outcome) {
+        return meterRegistry.find(name).tag("outcome", outcome).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private long batchedRecords() {
+        DistributionSummary batchSizes = meterRegistry.find("event.consumer.batch.size").summary();
+        return batchSizes != null ? (long) batchSizes.totalAmount() : 0;
+    }
+}
@@ -0,0 +1,192 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserAggregateSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshot;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reconstructs the users projection as it was at a given point in time, in memory and without
+ * touching the live table. Starts from the newest snapshot taken at or before that time and
+ * replays only the events between the snapshot and the requested time.
+ */
+@Service
+public class PointInTimeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointInTimeService.class);
+
+    private final EventService eventService;
+    private final SnapshotService snapshotService;
+
+    @Value("${replay.page-size:1000}")
+    private int pageSize = 1000;
+
+    @Autowired
+    public PointInTimeService(EventService eventService, SnapshotService snapshotService) {
+        this.eventService = eventService;
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Rebuilds the users as of a point in time.
+     *
+     * @param asOf The point in time; events with a later timestamp are ignored.
+     * @return The users that existed at that time, keyed and ordered by id.
+     */
+    public Map<Long, User> getUsersAsOf(LocalDateTime asOf) {
+        if (asOf == null) {
+            throw new IllegalArgumentException("Timestamp cannot be null");
+        }
+
+        try {
+            Map<Long, User> users = new TreeMap<>();
+            LocalDateTime lastTimestamp = null;
+            String lastEventId = null;
+
+            UserSnapshot snapshot = snapshotService.findLatestSnapshotAsOf(asOf).orElse(null);
+            if (snapshot != null) {
+                snapshotService.forEachChunk(snapshot, chunk -> chunk.forEach(user -> users.put(user.getId(), user)));
+                lastTimestamp = snapshot.getLastTimestamp();
+                lastEventId = snapshot.getLastEventId();
+            }
+
+            long replayed = 0;
+            long skipped = 0;
+            List<Event> page = eventService.getEventsAfter(lastTimestamp, lastEventId, asOf, pageSize);
+            while (!page.isEmpty()) {
+                for (Event event : page) {
+                    if (!apply(event, users)) {
+                        skipped++;
+                    }
+                }
+                replayed += page.size();
+                Event last = page.get(page.size() - 1);
+                page = eventService.getEventsAfter(last.getTimestamp(), last.getId(), asOf, pageSize);
+            }
+
+            logger.info("Reconstructed {} users as of '{}' from snapshot '{}' and {} events, {} skipped without a user.",
+                    users.size(), asOf, snapshot != null ? snapshot.getId() : null, replayed, skipped);
+            return users;
+        } catch (Exception e) {
+            logger.error("Error reconstructing users as of '{}'", asOf, e);
+            throw new RuntimeException("Error reconstructing users as of timestamp", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * Looks up a single user as of a point in time. Starts from the newest snapshot of that user
+     * alone, or from the user in the newest full snapshot if that one is later, and replays only
+     * the user's own events after it. Events recorded without an aggregate id are only seen
+     * through full snapshots.
+     *
+     * @param userId The id of the user.
+     * @param asOf The point in time; events with a later timestamp are ignored.
+     * @return The user as it was then, or null if it did not exist.
+     */
+    public User getUserAsOf(Long userId, LocalDateTime asOf) {
+        if (userId == null || asOf == null) {
+            throw new IllegalArgumentException("User id and timestamp cannot be null");
+        }
+
+        try {
+            String aggregateId = String.valueOf(userId);
+            Map<Long, User> users = new TreeMap<>();
+            UserSnapshot snapshot = snapshotService.findLatestSnapshotAsOf(asOf).orElse(null);
+            UserAggregateSnapshot userSnapshot = snapshotService.findLatestAggregateSnapshotAsOf(aggregateId, asOf)
+                    .filter(candidate -> snapshot == null
+                            || isAfter(candidate.getLastTimestamp(), candidate.getLastEventId(), snapshot))
+                    .orElse(null);
+
+            List<Event> events;
+            if (userSnapshot != null) {
+                users.put(userId, userSnapshot.getUser());
+                events = eventService.getEventsForAggregateAfterSequenceUpTo(aggregateId, userSnapshot.getSequence(), asOf);
+            } else {
+                if (snapshot != null) {
+                    snapshotService.findUser(snapshot, userId).ifPresent(user -> users.put(userId, user));
+                }
+                events = eventService.getEventsForAggregateUpTo(aggregateId, asOf);
+            }
+
+            long replayed = 0;
+            long skipped = 0;
+            for (Event event : events) {
+                if (userSnapshot != null || snapshot == null
+                        || isAfter(event.getTimestamp(), event.getId(), snapshot)) {
+                    if (!apply(event, users)) {
+                        skipped++;
+                    }
+                    replayed++;
+                }
+            }
+
+            logger.debug("Reconstructed user {} as of '{}' from snapshot '{}' and {} events, {} skipped without a user.",
+                    userId, asOf, userSnapshot != null ? userSnapshot.getId() : snapshot != null ? snapshot.getId() : null,
+                    replayed, skipped);
+            return users.get(userId);
+        } catch (Exception e) {
+            logger.error("Error reconstructing user {} as of '{}'", userId, asOf, e);
+            throw new RuntimeException("Error reconstructing user as of timestamp", e); // Optionally rethrow
+        }
+    }
+
+    /**
+     * @return True if the event at this position comes after the last one reflected in the
+     * snapshot, in replay order, where missing timestamps and ids sort first.
+     */
+    private static boolean isAfter(LocalDateTime timestamp, String eventId, UserSnapshot snapshot) {
+        if (snapshot.getLastTimestamp() == null) {
+            return true;
+        }
+        int byTimestamp = Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())
+                .compare(timestamp, snapshot.getLastTimestamp());
+        return byTimestamp > 0 || (byTimestamp == 0
+                && Comparator.nullsFirst(Comparator.<String>naturalOrder()).compare(eventId, snapshot.getLastEventId()) > 0);
+    }
+
+    /**
+     * @return False if the event is about a user but carries none, and was skipped.
+     */
+    private boolean apply(Event event, Map<Long, User> users) {
+        switch (event.getType()) {
+            case CREATION:
+            case EDITION: {
+                User user = EventUsers.resolveUser(event);
+                if (user == null) {
+                    return false;
+                }
+                if (user.getId() != null) {
+                    users.put(user.getId(), user);
+                }
+                break;
+            }
+
+            case DELETION: {
+                User user = EventUsers.resolveUser(event);
+                if (user == null) {
+                    return false;
+                }
+                if (user.getId() != null) {
+                    users.remove(user.getId());
+                }
+                break;
+            }
+
+            default:
+                // Integration events do not change the users projection
+                break;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,172 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Utilities.PipelineThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Applies replayed events on a fixed number of lanes. Events are hash-partitioned by user, so
+ * all the events of one user go to the same lane and are applied in log order, while different
+ * users are applied concurrently. Each lane has its own {@link UserWriteBuffer} and so writes its
+ * batches in its own transaction, on its own connection. Lanes run on virtual threads when
+ * {@code pipeline.threads.virtual} is on.
+ * <p>
+ * With a single lane, events are applied on the calling thread, as a serial replay does.
+ * Not thread-safe: one instance per replay, fed by a single reader.
+ */
+class ReplayLanes implements AutoCloseable {
+
+    // Pages a lane may have queued before the reader waits for it, so memory stays bounded
+    private static final int QUEUED_CHUNKS_PER_LANE = 4;
+
+    private final UserWriteBuffer[] buffers;
+    private final ExecutorService[] executors;
+    private final BiConsumer<Event, UserWriteBuffer> replay;
+    private final Semaphore queued;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param parallelism The number of lanes; 1 applies every event on the calling thread.
+     * @param bufferFactory Creates the write buffer of each lane.
+     * @param replay Applies one event to a write buffer.
+     */
+    ReplayLanes(int parallelism, Supplier<UserWriteBuffer> bufferFactory, BiConsumer<Event, UserWriteBuffer> replay) {
+        int lanes = Math.max(1, parallelism);
+        this.replay = replay;
+        this.buffers = new UserWriteBuffer[lanes];
+        for (int i = 0; i < lanes; i++) {
+            buffers[i] = bufferFactory.get();
+        }
+        if (lanes == 1) {
+            this.executors = null;
+            this.queued = null;
+            return;
+        }
+        this.executors = new ExecutorService[lanes];
+        for (int i = 0; i < lanes; i++) {
+            String name = "replay-lane-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(runnable -> PipelineThreads.newThread(name, runnable));
+        }
+        this.queued = new Semaphore(lanes * QUEUED_CHUNKS_PER_LANE);
+    }
+
+    int parallelism() {
+        return buffers.length;
+    }
+
+    /**
+     * Hands a page of events to the lanes. Returns once every event is queued, not applied;
+     * call {@link #flush()} before relying on their effects.
+     *
+     * @param events The events to apply, in log order.
+     */
+    void apply(List<Event> events) throws InterruptedException {
+        if (executors == null) {
+            for (Event event : events) {
+                replay.accept(event, buffers[0]);
+                buffers[0].flushIfDue();
+            }
+            return;
+        }
+        throwIfFailed();
+        List<List<Event>> chunks = new ArrayList<>(buffers.length);
+        for (int i = 0; i < buffers.length; i++) {
+            chunks.add(new ArrayList<>());
+        }
+        for (Event event : events) {
+            chunks.get(laneOf(event)).add(event);
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            List<Event> chunk = chunks.get(i);
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            UserWriteBuffer buffer = buffers[i];
+            submit(i, () -> {
+                for (Event event : chunk) {
+                    replay.accept(event, buffer);
+                    buffer.flushIfDue();
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits until every lane has applied all the events handed to it and written them.
+     * Rethrows the first failure of any lane.
+     */
+    void flush() throws InterruptedException {
+        if (executors == null) {
+            buffers[0].flush();
+            return;
+        }
+        List<Future<?>> flushes = new ArrayList<>(buffers.length);
+        for (int i = 0; i < buffers.length; i++) {
+            flushes.add(submit(i, buffers[i]::flush));
+        }
+        for (Future<?> flush : flushes) {
+            try {
+                flush.get();
+            } catch (ExecutionException e) {
+                // Lane tasks record their failure instead of throwing
+                throw new IllegalStateException("Replay lane task failed", e.getCause());
+            }
+        }
+        throwIfFailed();
+    }
+
+    @Override
+    public void close() {
+        if (executors == null) {
+            return;
+        }
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    int laneOf(Event event) {
+        String key = event.getAggregateId();
+        if (key == null && event.getType() != EventType.INTEGRATION) {
+            // Events written before aggregate ids were stamped carry the user only in their body
+            User user = EventUsers.resolveUser(event);
+            key = user != null && user.getId() != null ? String.valueOf(user.getId()) : null;
+        }
+        return key == null ? 0 : Math.floorMod(key.hashCode(), buffers.length);
+    }
+
+    private Future<?> submit(int lane, Runnable task) throws InterruptedException {
+        queued.acquire();
+        return executors[lane].submit(() -> {
+            try {
+                // Once a lane has failed the replay is abandoned, so the others stop writing too
+                if (failure.get() == null) {
+                    task.run();
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                queued.release();
+            }
+        });
+    }
+
+    private void throwIfFailed() {
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new IllegalStateException("Replay lane failed", t);
+        }
+    }
+}
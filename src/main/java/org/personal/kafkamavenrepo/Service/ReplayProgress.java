@@ -0,0 +1,72 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of the running replay, published as gauges: events applied and left, the rate since
+ * the replay started and the estimated time to completion. Only the replay thread writes it; the
+ * gauges read it when scraped, so recording costs a volatile write per page.
+ */
+class ReplayProgress {
+
+    private volatile boolean running;
+    private volatile long startNanos;
+    private volatile long expected;
+    private volatile long applied;
+
+    ReplayProgress(MeterRegistry registry) {
+        Gauge.builder("event.replay.running", this, progress -> progress.running ? 1 : 0)
+                .description("1 while a replay is running")
+                .register(registry);
+        Gauge.builder("event.replay.applied", this, progress -> progress.applied)
+                .description("Events applied by the running or last replay")
+                .register(registry);
+        Gauge.builder("event.replay.remaining", this, ReplayProgress::remaining)
+                .description("Events the running replay has left to apply")
+                .register(registry);
+        Gauge.builder("event.replay.rate", this, ReplayProgress::eventsPerSecond)
+                .description("Events applied per second since the replay started")
+                .baseUnit("events/s")
+                .register(registry);
+        TimeGauge.builder("event.replay.eta", this, TimeUnit.SECONDS, ReplayProgress::etaSeconds)
+                .description("Estimated time until the running replay completes")
+                .register(registry);
+    }
+
+    /**
+     * @param expected The number of events the replay is expected to apply.
+     */
+    void start(long expected) {
+        this.expected = expected;
+        this.applied = 0;
+        this.startNanos = System.nanoTime();
+        this.running = true;
+    }
+
+    void advance(int events) {
+        // Single writer, so the non-atomic increment is safe
+        applied += events;
+    }
+
+    void finish() {
+        running = false;
+    }
+
+    long remaining() {
+        return running ? Math.max(0, expected - applied) : 0;
+    }
+
+    double eventsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return running && seconds > 0 ? applied / seconds : 0;
+    }
+
+    double etaSeconds() {
+        double rate = eventsPerSecond();
+        return rate > 0 ? remaining() / rate : 0;
+    }
+}
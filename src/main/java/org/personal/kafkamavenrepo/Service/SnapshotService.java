@@ -0,0 +1,249 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.ReplayCheckpoint;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserAggregateSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshotChunk;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Mongo.UserAggregateSnapshotRepository;
+import org.personal.kafkamavenrepo.Persistence.Mongo.UserSnapshotChunkRepository;
+import org.personal.kafkamavenrepo.Persistence.Mongo.UserSnapshotRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserBatchWriter;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserChangeWriter;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Persists the materialized users together with the last applied event position, so a
+ * rebuild can start from the newest snapshot and only replay the events after it.
+ * <p>
+ * Single users are also snapshotted as the consumer applies their events, every few events of
+ * each user, so looking one user up at a point in time only replays its events since then.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final UserRepository userRepository;
+    private final UserBatchWriter userBatchWriter;
+    private final UserSnapshotRepository snapshotRepository;
+    private final UserSnapshotChunkRepository chunkRepository;
+    private final UserAggregateSnapshotRepository aggregateSnapshotRepository;
+
+    @Value("${snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${snapshot.every-events:100000}")
+    private long everyEvents = 100000;
+
+    @Value("${snapshot.every-minutes:10}")
+    private long everyMinutes = 10;
+
+    @Value("${snapshot.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${snapshot.retain:3}")
+    private int retain = 3;
+
+    @Value("${snapshot.aggregate.every-events:100}")
+    private long aggregateEveryEvents = 100;
+
+    @Value("${snapshot.aggregate.retain:3}")
+    private int aggregateRetain = 3;
+
+    @Autowired
+    public SnapshotService(UserRepository userRepository, UserBatchWriter userBatchWriter,
+                           UserSnapshotRepository snapshotRepository, UserSnapshotChunkRepository chunkRepository,
+                           UserAggregateSnapshotRepository aggregateSnapshotRepository) {
+        this.userRepository = userRepository;
+        this.userBatchWriter = userBatchWriter;
+        this.snapshotRepository = snapshotRepository;
+        this.chunkRepository = chunkRepository;
+        this.aggregateSnapshotRepository = aggregateSnapshotRepository;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Tells whether enough events or time have passed since the last snapshot to take a new one.
+     *
+     * @param eventsSinceSnapshot Events applied since the last snapshot.
+     * @param lastSnapshotTime When the last snapshot was taken (or the replay started).
+     */
+    public boolean isSnapshotDue(long eventsSinceSnapshot, LocalDateTime lastSnapshotTime) {
+        if (!enabled || eventsSinceSnapshot == 0) {
+            return false;
+        }
+        return eventsSinceSnapshot >= everyEvents
+                || Duration.between(lastSnapshotTime, LocalDateTime.now()).toMinutes() >= everyMinutes;
+    }
+
+    /**
+     * Copies the current users table into a new snapshot. The caller must have written every
+     * change up to {@code position} and nothing after it.
+     *
+     * @param position The last event reflected in the users table.
+     * @return The completed snapshot.
+     */
+    public UserSnapshot takeSnapshot(ReplayCheckpoint position) {
+        LocalDateTime now = LocalDateTime.now();
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setLastTimestamp(position.getLastTimestamp());
+        snapshot.setLastEventId(position.getLastEventId());
+        snapshot.setAppliedEvents(position.getAppliedEvents());
+        snapshot.setCreatedDate(now);
+        snapshot.setUpdatedDate(now);
+        snapshot = snapshotRepository.save(snapshot);
+
+        long userCount = 0;
+        int sequence = 0;
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(chunkSize));
+        while (!users.isEmpty()) {
+            chunkRepository.save(new UserSnapshotChunk(snapshot.getId(), sequence++, users));
+            userCount += users.size();
+            users = userRepository.findByIdGreaterThanOrderByIdAsc(users.get(users.size() - 1).getId(), Limit.of(chunkSize));
+        }
+
+        snapshot.setUserCount(userCount);
+        snapshot.setChunkCount(sequence);
+        snapshot.setComplete(true);
+        snapshot.setUpdatedDate(LocalDateTime.now());
+        snapshot = snapshotRepository.save(snapshot);
+        logger.info("Snapshot '{}' taken: {} users after event '{}' ({} events).",
+                snapshot.getId(), userCount, position.getLastEventId(), position.getAppliedEvents());
+
+        pruneOldSnapshots();
+        return snapshot;
+    }
+
+    /**
+     * Finds the newest complete snapshot.
+     */
+    public Optional<UserSnapshot> findLatestSnapshot() {
+        return snapshotRepository.findFirstByCompleteTrueOrderByLastTimestampDescLastEventIdDesc();
+    }
+
+    /**
+     * Finds the newest complete snapshot taken at or before a point in time.
+     */
+    public Optional<UserSnapshot> findLatestSnapshotAsOf(LocalDateTime timestamp) {
+        return snapshotRepository.findFirstByCompleteTrueAndLastTimestampLessThanEqualOrderByLastTimestampDescLastEventIdDesc(timestamp);
+    }
+
+    /**
+     * Streams the users of a snapshot chunk by chunk, in id order.
+     *
+     * @param snapshot The snapshot to read.
+     * @param chunkConsumer Receives each chunk of users.
+     */
+    public void forEachChunk(UserSnapshot snapshot, Consumer<List<User>> chunkConsumer) {
+        try (Stream<UserSnapshotChunk> chunks = chunkRepository.streamBySnapshotIdOrderBySequenceAsc(snapshot.getId())) {
+            chunks.forEach(chunk -> chunkConsumer.accept(chunk.getUsers()));
+        }
+    }
+
+    /**
+     * Reads one user of a snapshot, loading only the chunk that holds it.
+     *
+     * @return The user as of the snapshot, or empty if it did not exist then.
+     */
+    public Optional<User> findUser(UserSnapshot snapshot, Long userId) {
+        return chunkRepository.findFirstBySnapshotIdAndUsersId(snapshot.getId(), userId)
+                .flatMap(chunk -> chunk.getUsers().stream().filter(user -> userId.equals(user.getId())).findFirst());
+    }
+
+    /**
+     * Snapshots the user an applied event is about, if the event's sequence is a multiple of
+     * {@code snapshot.aggregate.every-events}. The events carry the whole user, so the snapshot
+     * is the event's user. Only the newest few snapshots of the user are kept. A failure is
+     * logged and left out: the user can still be rebuilt from its events.
+     *
+     * @param event An event the consumer applied.
+     */
+    public void snapshotAggregateIfDue(Event event) {
+        if (!enabled || aggregateEveryEvents <= 0 || event.getSequence() == null
+                || event.getAggregateId() == null || event.getTimestamp() == null
+                || event.getSequence() % aggregateEveryEvents != 0
+                || (event.getType() != EventType.CREATION && event.getType() != EventType.EDITION)) {
+            return;
+        }
+        User user = EventUsers.resolveUser(event);
+        if (user == null) {
+            return;
+        }
+        user.setEventSequence(event.getSequence());
+        try {
+            aggregateSnapshotRepository.save(new UserAggregateSnapshot(event.getAggregateId(), event.getSequence(),
+                    event.getTimestamp(), event.getId(), user));
+            aggregateSnapshotRepository.deleteByAggregateIdAndSequenceLessThan(event.getAggregateId(),
+                    event.getSequence() - (aggregateRetain - 1) * aggregateEveryEvents);
+            logger.debug("Snapshot of user {} taken at sequence {}.", event.getAggregateId(), event.getSequence());
+        } catch (Exception e) {
+            logger.warn("Error taking a snapshot of user {} at sequence {}", event.getAggregateId(), event.getSequence(), e);
+        }
+    }
+
+    /**
+     * Finds the newest snapshot of a user taken at or before a point in time.
+     */
+    public Optional<UserAggregateSnapshot> findLatestAggregateSnapshotAsOf(String aggregateId, LocalDateTime timestamp) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return aggregateSnapshotRepository.findFirstByAggregateIdAndLastTimestampLessThanEqualOrderBySequenceDesc(
+                aggregateId, timestamp);
+    }
+
+    /**
+     * Loads the newest complete snapshot into the (empty) users table.
+     *
+     * @return The restored snapshot, or empty if there is none.
+     */
+    public Optional<UserSnapshot> restoreLatestSnapshot() {
+        return restoreLatestSnapshot((upserts, deletes, unkeyed, batchSize) -> userBatchWriter.write(upserts, deletes, batchSize));
+    }
+
+    /**
+     * Loads the newest complete snapshot through the given writer, e.g. into a shadow table.
+     *
+     * @return The restored snapshot, or empty if there is none.
+     */
+    public Optional<UserSnapshot> restoreLatestSnapshot(UserChangeWriter writer) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<UserSnapshot> latest = findLatestSnapshot();
+        latest.ifPresent(snapshot -> {
+            forEachChunk(snapshot, users -> writer.write(users, List.of(), List.of(), chunkSize));
+            logger.info("Snapshot '{}' restored: {} users up to event '{}'.",
+                    snapshot.getId(), snapshot.getUserCount(), snapshot.getLastEventId());
+        });
+        return latest;
+    }
+
+    private void pruneOldSnapshots() {
+        List<UserSnapshot> snapshots = snapshotRepository.findByCompleteTrueOrderByLastTimestampDescLastEventIdDesc();
+        for (UserSnapshot old : snapshots.subList(Math.min(retain, snapshots.size()), snapshots.size())) {
+            chunkRepository.deleteBySnapshotId(old.getId());
+            snapshotRepository.delete(old);
+            logger.info("Snapshot '{}' pruned.", old.getId());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.personal.kafkamavenrepo.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * In-process read-through cache of users in front of {@link UserRepository}, bounded in size and
+ * age. Caffeine's W-TinyLFU eviction keeps frequently read users over ones read once. Hit, miss
+ * and eviction counts are published as the {@code cache.*} meters, tagged
+ * {@code cache=users.by-id} and {@code cache=users.by-username}.
+ * <p>
+ * Users are cached by id; usernames map to ids and are checked against the cached user on read,
+ * so a rename never serves the user under its old username. The instance that writes a user
+ * caches or evicts it once the transaction commits. Every other instance learns of the change
+ * from the event, through {@code UserCacheInvalidator}: cached users are replaced by the event's
+ * payload, unless they are already at a later sequence, and evicted on deletion. Loads racing
+ * with an event on a user not cached yet may leave it stale until the entry expires.
+ * <p>
+ * The cache holds its own copies of the users, detached from any persistence context, and hands
+ * out a new copy on every read, so callers may modify what they get.
+ */
+@Component
+@ConditionalOnProperty(name = "user.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class UserCache {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE_MILLIS = 600_000;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, User> usersById;
+    private final Cache<String, Long> idsByUsername;
+
+    public UserCache(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this(userRepository, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE_MILLIS, meterRegistry);
+    }
+
+    /**
+     * @param maximumSize The number of users, and of usernames, kept.
+     * @param expireAfterWriteMillis How long a user is served before it is read again, which
+     * bounds the staleness left by missed events.
+     */
+    @Autowired
+    public UserCache(UserRepository userRepository,
+                     @Value("${user.cache.maximum-size:100000}") long maximumSize,
+                     @Value("${user.cache.expire-after-write-ms:600000}") long expireAfterWriteMillis,
+                     MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+        this.idsByUsername = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByUsername, "users.by-username");
+    }
+
+    /**
+     * @return The user with this username, or null if there is none.
+     */
+    public User findByUsername(String username) {
+        Long id = idsByUsername.getIfPresent(username);
+        if (id != null) {
+            User user = usersById.getIfPresent(id);
+            if (user != null && username.equals(user.getUsername())) {
+                return copy(user);
+            }
+        }
+        User user = userRepository.findByUsername(username);
+        if (user != null) {
+            cache(user);
+        }
+        return user;
+    }
+
+    /**
+     * @return The user with this id, if any. Concurrent calls for one id share a single load.
+     */
+    public Optional<User> findById(Long id) {
+        User user = usersById.get(id, key -> userRepository.findById(key).map(UserCache::copy).orElse(null));
+        return Optional.ofNullable(user).map(UserCache::copy);
+    }
+
+    /**
+     * Caches a user the current transaction wrote, once it commits.
+     */
+    public void putAfterCommit(User user) {
+        afterCommit(() -> cache(user));
+    }
+
+    /**
+     * Evicts a user the current transaction deletes, right away and again once it commits, so a
+     * load racing with the transaction does not keep it.
+     */
+    public void evictAfterCommit(Long id) {
+        usersById.invalidate(id);
+        afterCommit(() -> usersById.invalidate(id));
+    }
+
+    /**
+     * Brings a cached user up to date with an event about it. Users not cached are left out.
+     */
+    public void apply(Event event) {
+        if (event.getType() == EventType.INTEGRATION) {
+            return;
+        }
+        User payload = EventUsers.resolveUser(event);
+        if (payload == null || payload.getId() == null) {
+            return;
+        }
+        User user = copy(payload);
+        if (event.getType() == EventType.DELETION) {
+            usersById.invalidate(user.getId());
+            return;
+        }
+        user.setEventSequence(event.getSequence());
+        User cached = usersById.asMap().computeIfPresent(user.getId(), (id, current) -> newer(current, user));
+        if (cached == user && user.getUsername() != null) {
+            idsByUsername.put(user.getUsername(), user.getId());
+        }
+    }
+
+    private void cache(User loaded) {
+        if (loaded.getId() == null) {
+            return;
+        }
+        User user = copy(loaded);
+        usersById.asMap().merge(user.getId(), user, UserCache::newer);
+        if (user.getUsername() != null) {
+            idsByUsername.put(user.getUsername(), user.getId());
+        }
+    }
+
+    /**
+     * @return The later of two states of a user, by event sequence; the incoming one if either is
+     * unknown.
+     */
+    static User newer(User current, User incoming) {
+        if (current.getEventSequence() != null && incoming.getEventSequence() != null
+                && incoming.getEventSequence() < current.getEventSequence()) {
+            return current;
+        }
+        return incoming;
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setEmail(user.getEmail());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setCreatedDate(user.getCreatedDate());
+        copy.setUpdatedDate(user.getUpdatedDate());
+        copy.setEventSequence(user.getEventSequence());
+        copy.setDeleted(user.isDeleted());
+        return copy;
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away outside of one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -4,57 +4,149 @@ package org.personal.kafkamavenrepo.Service;
 import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
 import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
-import org.personal.kafkamavenrepo.Producer.Producer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
+    // Each user's events are numbered from here, in the transaction that makes the change
+    private static final long FIRST_EVENT_SEQUENCE = 1;
+
     private final UserRepository userRepository;
-    private final Producer producer;
+    private final OutboxService outboxService;
+    private final UserView userView;
+    private final UserCache userCache;
+
+    /**
+     * A service that reads users from Postgres only.
+     */
+    public UserService(UserRepository userRepository, OutboxService outboxService) {
+        this(userRepository, outboxService, Optional.empty(), Optional.empty());
+    }
 
     @Autowired
-    public UserService(UserRepository userRepository, Producer producer) {
+    public UserService(UserRepository userRepository, OutboxService outboxService, Optional<UserView> userView,
+                       Optional<UserCache> userCache) {
         this.userRepository = userRepository;
-        this.producer = producer;
+        this.outboxService = outboxService;
+        this.userView = userView.orElse(null);
+        this.userCache = userCache.orElse(null);
     }
 
+    /**
+     * Creates a user. The creation event is written to the outbox in the same transaction
+     * and published by the relay, so the request does not wait for Kafka.
+     *
+     * @param user The user to create.
+     * @return The saved user.
+     */
+    @Transactional
     public User createUser(User user) {
-        logger.info("Attempting to create user: {}", user);
+        logger.debug("Attempting to create a user");
 
         try {
             user.setCreatedAt(LocalDateTime.now());
+            user.setEventSequence(FIRST_EVENT_SEQUENCE);
+            User savedUser = userRepository.save(user);
+            cacheAfterCommit(savedUser);
+
+            // Publish an event
+            outboxService.enqueue(EventType.CREATION, savedUser);
+
+            logger.debug("User {} created", savedUser.getId());
+            return savedUser;
+        } catch (Exception e) {
+            logger.error("Error creating user", e);
+            // Optionally rethrow or handle differently
+            throw e;
+        }
+    }
+
+    /**
+     * Creates several users at once; their creation events are relayed to Kafka as one ordered batch.
+     *
+     * @param users The users to create.
+     * @return The saved users.
+     */
+    @Transactional
+    public List<User> createUsers(List<User> users) {
+        logger.debug("Attempting to create {} users", users.size());
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            users.forEach(user -> {
+                user.setCreatedAt(now);
+                user.setEventSequence(FIRST_EVENT_SEQUENCE);
+            });
+            List<User> savedUsers = userRepository.saveAll(users);
+            savedUsers.forEach(this::cacheAfterCommit);
+
+            // Publish the events
+            outboxService.enqueueAll(EventType.CREATION, savedUsers);
+
+            logger.debug("{} users created", savedUsers.size());
+            return savedUsers;
+        } catch (Exception e) {
+            logger.error("Error creating {} users", users.size(), e);
+            // Optionally rethrow or handle differently
+            throw e;
+        }
+    }
+
+    /**
+     * Updates an existing user and records the edition event in the outbox.
+     *
+     * @param user The user with its new state; must have an id.
+     * @return The saved user.
+     */
+    @Transactional
+    public User updateUser(User user) {
+        logger.debug("Attempting to update user {}", user.getId());
+
+        try {
+            user.setUpdatedDate(LocalDateTime.now());
+            user.setEventSequence(nextEventSequence(user.getId()));
             User savedUser = userRepository.save(user);
+            cacheAfterCommit(savedUser);
 
             // Publish an event
-            producer.sendEvent(EventType.CREATION, savedUser);
+            outboxService.enqueue(EventType.EDITION, savedUser);
 
-            logger.info("User created successfully: {}", savedUser);
+            logger.debug("User {} updated", savedUser.getId());
             return savedUser;
         } catch (Exception e) {
-            logger.error("Error creating user: {}", user, e);
+            logger.error("Error updating user {}", user.getId(), e);
             // Optionally rethrow or handle differently
             throw e;
         }
     }
 
+    @Transactional
     public void deleteUser(Long userId) {
-        logger.info("Attempting to delete user with id: {}", userId);
+        logger.debug("Attempting to delete user {}", userId);
 
         try {
-            User userToDelete = userRepository.findById(userId).orElse(null);
-            if (userToDelete != null) {
-                userRepository.deleteById(userId);
+            User userToDelete = findUserById(userId).orElse(null);
+            // A cached user may be gone already: only a row still there gets a sequence and an event
+            if (userToDelete != null && userRepository.incrementEventSequence(userId) > 0) {
+                if (userCache != null) {
+                    userCache.evictAfterCommit(userId);
+                }
+                userToDelete.setEventSequence(userRepository.findEventSequenceById(userId));
+                userRepository.deleteUserById(userId);
                 // Publish an event
-                producer.sendEvent(EventType.DELETION, userToDelete);
-                logger.info("User deleted successfully: {}", userToDelete);
+                outboxService.enqueue(EventType.DELETION, userToDelete);
+                logger.debug("User {} deleted", userId);
             } else {
                 logger.warn("No user found with id '{}'", userId);
             }
@@ -65,19 +157,54 @@ public class UserService {
         }
     }
 
+    private Optional<User> findUserById(Long userId) {
+        return userCache != null ? userCache.findById(userId) : userRepository.findById(userId);
+    }
+
+    private void cacheAfterCommit(User user) {
+        if (userCache != null) {
+            userCache.putAfterCommit(user);
+        }
+    }
+
+    /**
+     * @return The sequence of the next event about a user, 1 for a user that is not stored yet.
+     */
+    private long nextEventSequence(Long userId) {
+        if (userId == null || userRepository.incrementEventSequence(userId) == 0) {
+            return FIRST_EVENT_SEQUENCE;
+        }
+        Long sequence = userRepository.findEventSequenceById(userId);
+        return sequence != null ? sequence : FIRST_EVENT_SEQUENCE;
+    }
+
+    /**
+     * Looks a user up in the local user view when it is enabled and holds the username, and
+     * otherwise through the user cache in front of Postgres. The view may lag behind the latest
+     * writes.
+     *
+     * @param username The username.
+     * @return The user, or null if there is none.
+     */
     public User getUserByUsername(String username) {
-        logger.info("Attempting to retrieve user by username: {}", username);
+        if (userView != null) {
+            Optional<User> user = userView.findByUsername(username);
+            if (user.isPresent()) {
+                return user.get();
+            }
+        }
+        logger.debug("Retrieving a user by username");
 
         try {
-            User user = userRepository.findByUsername(username);
+            User user = userCache != null ? userCache.findByUsername(username) : userRepository.findByUsername(username);
             if (user != null) {
-                logger.info("User found by username '{}': {}", username, user);
+                logger.debug("User {} found by username", user.getId());
             } else {
-                logger.warn("No user found with username '{}'", username);
+                logger.debug("No user found with that username");
             }
             return user;
         } catch (Exception e) {
-            logger.error("Error retrieving user by username '{}'", username, e);
+            logger.error("Error retrieving user by username", e);
             // Optionally rethrow or handle differently
             throw e;
         }
@@ -0,0 +1,72 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Reads users from the local state of {@link UserViewTopology}, without a database round trip.
+ * <p>
+ * The view is eventually consistent: a change shows once the relay has published its event and
+ * the topology has applied it. Each instance only holds the usernames of the partitions assigned
+ * to it, and none while the stores are restoring or rebalancing, so an empty result means
+ * "ask Postgres", not "no such user".
+ */
+public class UserView {
+
+    private final Supplier<ReadOnlyKeyValueStore<String, Event>> usersByUsername;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter unavailable;
+
+    /**
+     * @param usersByUsername Returns the store of users by username, null or throwing
+     * {@link InvalidStateStoreException} while it cannot be queried.
+     */
+    public UserView(Supplier<ReadOnlyKeyValueStore<String, Event>> usersByUsername, MeterRegistry meterRegistry) {
+        this.usersByUsername = usersByUsername;
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.unavailable = lookups(meterRegistry, "unavailable");
+    }
+
+    /**
+     * @return The user with this username in the local state, if any.
+     */
+    public Optional<User> findByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        Event event;
+        try {
+            ReadOnlyKeyValueStore<String, Event> store = usersByUsername.get();
+            if (store == null) {
+                unavailable.increment();
+                return Optional.empty();
+            }
+            event = store.get(username);
+        } catch (InvalidStateStoreException e) {
+            unavailable.increment();
+            return Optional.empty();
+        }
+        if (event == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.ofNullable(EventUsers.resolveUser(event));
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("user.view.lookups")
+                .description("Username lookups served by the local user view, or passed on to Postgres")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,94 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KTable;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Folds the user event topic into two tables: the last event applied to each user, keyed by user
+ * id, and the last event of each live user, keyed by username. Both are state stores that
+ * {@link UserView} queries in place.
+ * <p>
+ * Events are applied in sequence order: a redelivered or replayed event older than the one
+ * already applied to its user is dropped, as {@link BusinessRebuildService} does. A deletion is
+ * kept in the by-id table, so older events cannot bring the user back, and removes its username.
+ * A rename moves the user from its old username to the new one.
+ */
+public final class UserViewTopology {
+
+    public static final String USERS_BY_ID = "users-by-id";
+    public static final String USERS_BY_USERNAME = "users-by-username";
+
+    private UserViewTopology() {
+    }
+
+    /**
+     * Adds the view to a topology.
+     *
+     * @param topic The user event topic.
+     * @param eventSerde Reads the topic and writes events to the stores and their changelogs.
+     * @param stores Creates the store of each table, by name: RocksDB in production.
+     * @return The table of live users, keyed by username.
+     */
+    public static KTable<String, Event> define(StreamsBuilder builder, String topic, Serde<Event> eventSerde,
+                                               Function<String, KeyValueBytesStoreSupplier> stores) {
+        KTable<String, Event> usersById = builder.stream(topic, Consumed.with(Serdes.String(), eventSerde))
+                .filter((key, event) -> userIdOf(event) != null)
+                // The record key is whatever the EventKeyResolver chose, not necessarily the user id
+                .groupBy((key, event) -> userIdOf(event), Grouped.with(Serdes.String(), eventSerde))
+                .aggregate(() -> null, (userId, event, last) -> latest(last, event),
+                        Materialized.<String, Event>as(stores.apply(USERS_BY_ID))
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(eventSerde));
+
+        return usersById
+                .filter((userId, event) -> event.getType() != EventType.DELETION && usernameOf(event) != null)
+                .groupBy((userId, event) -> KeyValue.pair(usernameOf(event), event), Grouped.with(Serdes.String(), eventSerde))
+                .reduce((current, added) -> added,
+                        // Only the user that left the username frees it, not one that took it since
+                        (current, removed) -> Objects.equals(userIdOf(current), userIdOf(removed)) ? null : current,
+                        Materialized.<String, Event>as(stores.apply(USERS_BY_USERNAME))
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(eventSerde));
+    }
+
+    /**
+     * @return The event to keep for a user: the new one, unless the user already has a later one.
+     */
+    static Event latest(Event last, Event event) {
+        if (last != null && last.getSequence() != null && event.getSequence() != null
+                && event.getSequence() <= last.getSequence()) {
+            return last;
+        }
+        return event;
+    }
+
+    private static String userIdOf(Event event) {
+        if (event == null || event.getType() == EventType.INTEGRATION) {
+            return null;
+        }
+        if (event.getAggregateId() != null) {
+            return event.getAggregateId();
+        }
+        // Events written before aggregate ids were stamped carry the user only in their body
+        User user = EventUsers.resolveUser(event);
+        return user != null && user.getId() != null ? String.valueOf(user.getId()) : null;
+    }
+
+    private static String usernameOf(Event event) {
+        User user = EventUsers.resolveUser(event);
+        return user != null ? user.getUsername() : null;
+    }
+}
@@ -0,0 +1,118 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserBatchWriter;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserChangeWriter;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collapses user changes into their final state per id and writes them in batches.
+ * Only the last change of each user within a window reaches the database.
+ * Not thread-safe: one buffer per replay.
+ */
+public class UserWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserWriteBuffer.class);
+
+    private final UserChangeWriter writer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Map<Long, User> upserts = new LinkedHashMap<>();
+    private final Set<Long> deletes = new LinkedHashSet<>();
+    private final List<User> unkeyed = new ArrayList<>();
+    private long lastFlush = System.currentTimeMillis();
+    private long written;
+
+    /**
+     * Writes to the live users table: keyed changes as JDBC batches, users without an id through JPA.
+     */
+    public UserWriteBuffer(UserBatchWriter userBatchWriter, UserRepository userRepository,
+                           int batchSize, long flushIntervalMillis) {
+        this((upserts, deletes, unkeyed, size) -> {
+            userBatchWriter.write(upserts, deletes, size);
+            if (!unkeyed.isEmpty()) {
+                userRepository.saveAll(unkeyed);
+            }
+        }, batchSize, flushIntervalMillis);
+    }
+
+    public UserWriteBuffer(UserChangeWriter writer, int batchSize, long flushIntervalMillis) {
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Records the latest state of a created or edited user. A state from an older event than the
+     * one already pending for the user is ignored.
+     */
+    public void upsert(User user) {
+        if (user.getId() == null) {
+            // Without an id there is nothing to collapse on; keep it to be inserted as is
+            unkeyed.add(user);
+            return;
+        }
+        User pending = upserts.get(user.getId());
+        if (pending != null && pending.getEventSequence() != null && user.getEventSequence() != null
+                && pending.getEventSequence() > user.getEventSequence()) {
+            return;
+        }
+        deletes.remove(user.getId());
+        upserts.put(user.getId(), user);
+    }
+
+    /**
+     * Records the removal of a user.
+     */
+    public void delete(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        upserts.remove(user.getId());
+        deletes.add(user.getId());
+    }
+
+    public int size() {
+        return upserts.size() + deletes.size() + unkeyed.size();
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Flushes when the buffer is full or the flush interval has elapsed.
+     */
+    public void flushIfDue() {
+        if (size() >= batchSize || System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes every pending change.
+     */
+    public void flush() {
+        lastFlush = System.currentTimeMillis();
+        if (size() == 0) {
+            return;
+        }
+        int pending = size();
+        writer.write(upserts.values(), deletes, unkeyed, batchSize);
+        written += pending;
+        logger.debug("Flushed {} user changes ({} upserts, {} deletes).", pending, upserts.size() + unkeyed.size(), deletes.size());
+        upserts.clear();
+        deletes.clear();
+        unkeyed.clear();
+    }
+}
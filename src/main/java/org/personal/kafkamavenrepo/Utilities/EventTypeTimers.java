@@ -0,0 +1,56 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timer per event type and outcome, tagged {@code type} and {@code outcome}. All timers are
+ * registered up front, so recording is an array lookup instead of a registry lookup, and the
+ * tags can only take a fixed set of values.
+ */
+public class EventTypeTimers {
+
+    private static final String UNKNOWN_TYPE = "UNKNOWN";
+
+    private final Map<EventType, Timer> successes = new EnumMap<>(EventType.class);
+    private final Map<EventType, Timer> failures = new EnumMap<>(EventType.class);
+    private final Timer unknownSuccess;
+    private final Timer unknownFailure;
+
+    public EventTypeTimers(MeterRegistry registry, String name, String description) {
+        for (EventType type : EventType.values()) {
+            successes.put(type, register(registry, name, description, type.name(), "success"));
+            failures.put(type, register(registry, name, description, type.name(), "failure"));
+        }
+        unknownSuccess = register(registry, name, description, UNKNOWN_TYPE, "success");
+        unknownFailure = register(registry, name, description, UNKNOWN_TYPE, "failure");
+    }
+
+    /**
+     * @param type The type of the event, or null if it has none.
+     * @param success Whether the operation succeeded.
+     * @param startNanos The {@link System#nanoTime()} at which the operation started.
+     */
+    public void record(EventType type, boolean success, long startNanos) {
+        Timer timer;
+        if (type == null) {
+            timer = success ? unknownSuccess : unknownFailure;
+        } else {
+            timer = success ? successes.get(type) : failures.get(type);
+        }
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer register(MeterRegistry registry, String name, String description, String type, String outcome) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,93 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * Reads the ISO local date-time layout we write ({@code yyyy-MM-ddTHH:mm[:ss[.fffffffff]]})
+ * straight from the parser's character buffer. The stock deserializer builds a String and runs
+ * it through a DateTimeFormatter, which dominates the allocation of decoding an event. Anything
+ * else (other layouts, numeric timestamps, invalid values) goes to the stock deserializer.
+ */
+public class IsoLocalDateTimeDeserializer extends StdScalarDeserializer<LocalDateTime> {
+
+    private static final int[] NANO_SCALE = {0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    public IsoLocalDateTimeDeserializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_STRING)) {
+            LocalDateTime value = parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (value != null) {
+                return value;
+            }
+        }
+        return LocalDateTimeDeserializer.INSTANCE.deserialize(p, ctxt);
+    }
+
+    /**
+     * @return The date-time, or null if the text is not in the expected layout or out of range.
+     */
+    static LocalDateTime parse(char[] text, int offset, int length) {
+        int end = offset + length;
+        if (length < 16 || text[offset + 4] != '-' || text[offset + 7] != '-'
+                || text[offset + 10] != 'T' || text[offset + 13] != ':') {
+            return null;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int hour = digits(text, offset + 11, 2);
+        int minute = digits(text, offset + 14, 2);
+        int second = 0;
+        int nano = 0;
+
+        int position = offset + 16;
+        if (position < end) {
+            if (end - position < 3 || text[position] != ':') {
+                return null;
+            }
+            second = digits(text, position + 1, 2);
+            position += 3;
+            if (position < end) {
+                int fractionDigits = end - position - 1;
+                if (text[position] != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    return null;
+                }
+                int fraction = digits(text, position + 1, fractionDigits);
+                nano = fraction < 0 ? -1 : fraction * NANO_SCALE[fractionDigits];
+            }
+        }
+
+        if ((year | month | day | hour | minute | second | nano) < 0) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(char[] text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
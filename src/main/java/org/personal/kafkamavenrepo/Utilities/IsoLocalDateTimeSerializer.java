@@ -0,0 +1,73 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes LocalDateTime exactly as {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} does (seconds always
+ * present, fraction without trailing zeros) but into a small char array instead of through the
+ * formatter. Years outside 0000-9999 need a sign and go through the formatter.
+ */
+public class IsoLocalDateTimeSerializer extends StdScalarSerializer<LocalDateTime> {
+
+    private static final int MAX_LENGTH = 29;
+
+    public IsoLocalDateTimeSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(value, gen);
+    }
+
+    /**
+     * Writes the value as a JSON string.
+     *
+     * @param value The date-time; must not be null.
+     * @param gen The generator to write to.
+     */
+    public static void write(LocalDateTime value, JsonGenerator gen) throws IOException {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+        char[] text = new char[MAX_LENGTH];
+        put(text, 0, year, 4);
+        text[4] = '-';
+        put(text, 5, value.getMonthValue(), 2);
+        text[7] = '-';
+        put(text, 8, value.getDayOfMonth(), 2);
+        text[10] = 'T';
+        put(text, 11, value.getHour(), 2);
+        text[13] = ':';
+        put(text, 14, value.getMinute(), 2);
+        text[16] = ':';
+        put(text, 17, value.getSecond(), 2);
+        int length = 19;
+
+        int nano = value.getNano();
+        if (nano != 0) {
+            text[19] = '.';
+            put(text, 20, nano, 9);
+            length = MAX_LENGTH;
+            while (text[length - 1] == '0') {
+                length--;
+            }
+        }
+        gen.writeString(text, 0, length);
+    }
+
+    private static void put(char[] text, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -1,21 +1,79 @@
 package org.personal.kafkamavenrepo.Utilities;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.personal.kafkamavenrepo.Serialization.EventJsonModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class JsonUtil {
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Parser and generator buffers come from a pool shared by all threads rather than one per
+    // thread, so they are reused on virtual threads too
+    private static final ObjectMapper objectMapper = new ObjectMapper(JsonFactory.builder()
+            .recyclerPool(JsonRecyclerPools.newConcurrentDequePool())
+            .build())
+            .registerModule(new JavaTimeModule())
+            // Registered after JavaTimeModule so they take precedence for LocalDateTime
+            .registerModule(new SimpleModule()
+                    .addSerializer(LocalDateTime.class, new IsoLocalDateTimeSerializer())
+                    .addDeserializer(LocalDateTime.class, new IsoLocalDateTimeDeserializer()))
+            .registerModule(new EventJsonModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     private static final Logger logger = LoggerFactory.getLogger(JsonUtil.class);
 
+    // Readers and writers resolve their root (de)serializer once, instead of on every call
+    private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private static volatile Level failureLogLevel = Level.WARN;
+    private static volatile int payloadPreviewLength = 0;
+
+    /**
+     * Sets how (de)serialization failures are logged. The exception is always rethrown to the
+     * caller; the log line names the type, size and error position, and never the payload beyond
+     * the preview.
+     *
+     * @param level The level of the log line.
+     * @param previewLength The number of leading payload characters to include; 0 for none.
+     */
+    public static void configureFailureLogging(Level level, int previewLength) {
+        failureLogLevel = level;
+        payloadPreviewLength = Math.max(0, previewLength);
+    }
+
     // Generic method to serialize an object to JSON string
     public static <T> String serialize(T object) {
         try {
-            return objectMapper.writeValueAsString(object);
+            return writerFor(object).writeValueAsString(object);
+        } catch (JsonProcessingException e) {
+            logSerializationFailure(object, e);
+            throw new RuntimeException("Error serializing object", e);
+        }
+    }
+
+    // Serialize an object straight to UTF-8 JSON bytes, without an intermediate String
+    public static <T> byte[] serializeToBytes(T object) {
+        try {
+            return writerFor(object).writeValueAsBytes(object);
         } catch (JsonProcessingException e) {
-            logger.error("Error serializing object: {}", object, e);
+            logSerializationFailure(object, e);
             throw new RuntimeException("Error serializing object", e);
         }
     }
@@ -23,10 +81,76 @@ public class JsonUtil {
     // Generic method to deserialize JSON string to an object
     public static <T> T deserialize(String json, Class<T> clazz) {
         try {
-            return objectMapper.readValue(json, clazz);
+            return readerFor(clazz).readValue(json);
         } catch (JsonProcessingException e) {
-            logger.error("Error deserializing JSON: {} to class: {}", json, clazz.getName(), e);
+            logDeserializationFailure(json.length() + " chars", clazz, preview(json), e);
             throw new RuntimeException("Error deserializing JSON", e);
         }
     }
+
+    // Deserialize UTF-8 JSON bytes to an object, without an intermediate String
+    public static <T> T deserialize(byte[] json, Class<T> clazz) {
+        try {
+            return readerFor(clazz).readValue(json);
+        } catch (IOException e) {
+            logDeserializationFailure(json.length + " bytes", clazz, preview(ByteBuffer.wrap(json)), e);
+            throw new RuntimeException("Error deserializing JSON", e);
+        }
+    }
+
+    // Deserialize UTF-8 JSON straight from a buffer (e.g. a Kafka fetch buffer) without copying it;
+    // the buffer's position is not moved
+    public static <T> T deserialize(ByteBuffer json, Class<T> clazz) {
+        try {
+            if (json.hasArray()) {
+                return readerFor(clazz).readValue(json.array(), json.arrayOffset() + json.position(), json.remaining());
+            }
+            return readerFor(clazz).readValue(new ByteBufferBackedInputStream(json.duplicate()));
+        } catch (IOException e) {
+            logDeserializationFailure(json.remaining() + " bytes", clazz, preview(json), e);
+            throw new RuntimeException("Error deserializing JSON", e);
+        }
+    }
+
+    private static ObjectReader readerFor(Class<?> clazz) {
+        return readers.computeIfAbsent(clazz, objectMapper::readerFor);
+    }
+
+    private static ObjectWriter writerFor(Object object) {
+        return object == null ? objectMapper.writer() : writers.computeIfAbsent(object.getClass(), objectMapper::writerFor);
+    }
+
+    private static void logSerializationFailure(Object object, JsonProcessingException e) {
+        logger.atLevel(failureLogLevel).log("Error serializing object of class {}: {}",
+                object.getClass().getName(), e.getOriginalMessage());
+    }
+
+    private static void logDeserializationFailure(String size, Class<?> clazz, String preview, IOException e) {
+        String reason = e instanceof JsonProcessingException jpe ? jpe.getOriginalMessage() : e.getMessage();
+        String location = e instanceof JsonProcessingException jpe && jpe.getLocation() != null
+                ? " at line " + jpe.getLocation().getLineNr() + ", column " + jpe.getLocation().getColumnNr()
+                : "";
+        if (preview == null) {
+            logger.atLevel(failureLogLevel).log("Error deserializing {} of JSON to class {}{}: {}",
+                    size, clazz.getName(), location, reason);
+        } else {
+            logger.atLevel(failureLogLevel).log("Error deserializing {} of JSON to class {}{}: {}; payload starts: {}",
+                    size, clazz.getName(), location, reason, preview);
+        }
+    }
+
+    private static String preview(String json) {
+        int length = payloadPreviewLength;
+        return length == 0 ? null : json.substring(0, Math.min(length, json.length()));
+    }
+
+    private static String preview(ByteBuffer json) {
+        int length = payloadPreviewLength;
+        if (length == 0) {
+            return null;
+        }
+        byte[] head = new byte[Math.min(length, json.remaining())];
+        json.duplicate().get(head);
+        return new String(head, StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,54 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps how many per-event log lines one call site writes per second. Check it after the level,
+ * so a disabled level costs nothing:
+ * <pre>{@code
+ * if (logger.isDebugEnabled() && debugLimiter.tryAcquire()) {
+ *     logger.debug(...);
+ * }
+ * }</pre>
+ * Lines over the cap are dropped and counted; the periodic pipeline summary reports them. The
+ * cap is shared by every limiter and set from {@code pipeline.logging.debug-lines-per-second}.
+ */
+public class LogRateLimiter {
+
+    private static final AtomicLong totalSuppressed = new AtomicLong();
+    private static volatile int linesPerSecond = 100;
+
+    private final AtomicLong currentSecond = new AtomicLong();
+    private final AtomicInteger linesThisSecond = new AtomicInteger();
+
+    /**
+     * @param perSecond The number of lines each call site may write per second; 0 drops every line.
+     */
+    public static void configure(int perSecond) {
+        linesPerSecond = Math.max(0, perSecond);
+    }
+
+    /**
+     * @return The number of lines dropped by all limiters since the last call.
+     */
+    public static long drainSuppressed() {
+        return totalSuppressed.getAndSet(0);
+    }
+
+    /**
+     * @return Whether the caller may write its line now.
+     */
+    public boolean tryAcquire() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = currentSecond.get();
+        if (second != current && currentSecond.compareAndSet(current, second)) {
+            linesThisSecond.set(0);
+        }
+        if (linesThisSecond.incrementAndGet() <= linesPerSecond) {
+            return true;
+        }
+        totalSuppressed.incrementAndGet();
+        return false;
+    }
+}
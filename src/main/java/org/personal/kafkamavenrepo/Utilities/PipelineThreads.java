@@ -0,0 +1,49 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads of the pipeline's own workers, platform or virtual depending on
+ * {@code pipeline.threads.virtual}. Static, like {@link LogRateLimiter}, so workers that are not
+ * beans (replay lanes) can use it; {@code ThreadingConfig} sets the mode at startup.
+ */
+public final class PipelineThreads {
+
+    private static volatile boolean virtual;
+
+    private PipelineThreads() {
+    }
+
+    /**
+     * @param useVirtualThreads Whether new workers run on virtual threads.
+     */
+    public static void configure(boolean useVirtualThreads) {
+        virtual = useVirtualThreads;
+    }
+
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Creates an unstarted worker thread in the configured mode. Platform threads are daemons.
+     */
+    public static Thread newThread(String name, Runnable task) {
+        return builder(virtual).name(name).unstarted(task);
+    }
+
+    /**
+     * @return A factory naming its threads {@code prefix0}, {@code prefix1}, ...
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        return threadFactory(prefix, virtual);
+    }
+
+    public static ThreadFactory threadFactory(String prefix, boolean useVirtualThreads) {
+        return builder(useVirtualThreads).name(prefix, 0).factory();
+    }
+
+    private static Thread.Builder builder(boolean useVirtualThreads) {
+        return useVirtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+    }
+}
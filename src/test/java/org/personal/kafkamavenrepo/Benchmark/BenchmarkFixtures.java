@@ -0,0 +1,79 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.InMemoryRepositories;
+import org.personal.kafkamavenrepo.Service.EventService;
+import org.personal.kafkamavenrepo.Service.SnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shared inputs and stand-ins for the benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Keeps per-operation INFO logging out of the measurements.
+     */
+    static void quietLogging() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    /**
+     * Snapshots are written to Mongo, which the benchmarks leave out.
+     */
+    static SnapshotService disabledSnapshots() {
+        SnapshotService snapshotService = new SnapshotService(null, null, null, null, null);
+        ReflectionTestUtils.setField(snapshotService, "enabled", false);
+        return snapshotService;
+    }
+
+    /**
+     * An event store kept in memory. The benchmarks send one event over and over, so it stays at
+     * one entry.
+     */
+    static EventService inMemoryEvents() {
+        return new EventService(InMemoryRepositories.eventRepository(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * A user whose username is padded to the given number of characters, which sets the size of
+     * the encoded event.
+     */
+    static User user(long id, int payloadSize) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0, 30, 123_456_000);
+        StringBuilder username = new StringBuilder("user-").append(id).append('-');
+        while (username.length() < payloadSize) {
+            username.append('x');
+        }
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username.toString());
+        user.setEmail("user-" + id + "@example.com");
+        user.setCreatedAt(now);
+        user.setCreatedDate(now);
+        user.setUpdatedDate(now);
+        return user;
+    }
+
+    static Event event(EventType type, User user) {
+        Event event = new Event();
+        event.setId("665f1c2b9d3e4a00" + String.format("%08d", user.getId()));
+        event.setType(type);
+        event.setVersion(Event.CURRENT_VERSION);
+        event.setPayload(user);
+        event.setAggregateId(String.valueOf(user.getId()));
+        event.setTimestamp(user.getUpdatedDate());
+        return event;
+    }
+}
@@ -0,0 +1,85 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Consumer.Consumer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Persistence.InMemoryRepositories;
+import org.personal.kafkamavenrepo.Serialization.BinaryEventCodec;
+import org.personal.kafkamavenrepo.Serialization.EventDeserializer;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.FileSchemaRegistry;
+import org.personal.kafkamavenrepo.Serialization.InPlaceErrorHandlingDeserializer;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One consumed record end to end minus the network: the value is decoded from a fetch buffer by
+ * the configured deserializer chain, then {@code Consumer.listen} dispatches it to
+ * {@code BusinessRebuildService} over an in-memory user repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumerDispatchBenchmark {
+
+    private static final String TOPIC = "test-topic";
+
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+
+    @Param({"json", "binary"})
+    private String format;
+
+    private Path registryDir;
+    private Deserializer<Event> deserializer;
+    private Consumer consumer;
+    private RecordHeaders headers;
+    private ByteBuffer value;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFixtures.quietLogging();
+        registryDir = Files.createTempDirectory("schema-registry");
+        BinaryEventCodec binaryCodec = new BinaryEventCodec(new FileSchemaRegistry(registryDir.resolve("registry.json")));
+        Set<String> binaryTopics = BinaryEventCodec.FORMAT.equals(format) ? Set.of(TOPIC) : Set.of();
+        EventSerializer serializer = EventSerializer.withTopics(new JsonEventCodec(), binaryCodec, binaryTopics);
+        deserializer = new InPlaceErrorHandlingDeserializer<>(new EventDeserializer(new JsonEventCodec(), List.of(binaryCodec)));
+
+        BusinessRebuildService rebuildService = new BusinessRebuildService(null,
+                InMemoryRepositories.userRepository(), null, null, BenchmarkFixtures.disabledSnapshots(),
+                new SimpleMeterRegistry(), 100000);
+        consumer = new Consumer(rebuildService, BenchmarkFixtures.inMemoryEvents(), new SimpleMeterRegistry());
+
+        headers = new RecordHeaders();
+        Event event = BenchmarkFixtures.event(EventType.EDITION, BenchmarkFixtures.user(123456L, payloadSize));
+        value = ByteBuffer.wrap(serializer.serialize(TOPIC, headers, event));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(registryDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void decodeAndDispatch() {
+        consumer.listen(new ConsumerRecord<>(TOPIC, 0, 0L, null, deserializer.deserialize(TOPIC, headers, value)));
+    }
+}
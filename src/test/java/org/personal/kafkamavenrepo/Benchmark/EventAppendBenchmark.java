@@ -0,0 +1,106 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Persistence.Mongo.EventRepositoryCustomImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends a poll's worth of consumed events to the event store, either one {@code save()} per
+ * event, as {@code EventService.createEvent} does, or as one unordered bulk insert through
+ * {@link EventRepositoryCustomImpl#appendAll}. Both go through the collection's indexes,
+ * including the unique source key. Throughput is events per second.
+ * <p>
+ * Starts a MongoDB container, so it needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventAppendBenchmark {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"save", "bulk"})
+    private String mode;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private MongoDBContainer mongo;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private EventRepositoryCustomImpl repository;
+    private long nextOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+        mongo.start();
+        client = MongoClients.create(mongo.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "events-append-benchmark");
+        repository = new EventRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCollection() {
+        // Start each iteration from an empty collection, so index sizes stay comparable
+        mongoTemplate.dropCollection(Event.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Event.class)
+                .forEach(index -> mongoTemplate.indexOps(Event.class).ensureIndex(index));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        mongo.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int append() {
+        // Scores are per event: a 100-event batch runs ten times per invocation
+        int appended = 0;
+        for (int batches = 1000 / batchSize; batches > 0; batches--) {
+            List<Event> events = nextBatch();
+            if (mode.equals("save")) {
+                for (Event event : events) {
+                    mongoTemplate.save(event);
+                }
+                appended += events.size();
+            } else {
+                appended += repository.appendAll(events);
+            }
+        }
+        return appended;
+    }
+
+    private List<Event> nextBatch() {
+        List<Event> events = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long offset = nextOffset++;
+            Event event = BenchmarkFixtures.event(EventType.EDITION, BenchmarkFixtures.user(offset % 1000, 256));
+            // Let the store assign ids, as it does for consumed events
+            event.setId(null);
+            event.setTimestamp(T0.plusSeconds(offset));
+            event.setDeleted(false);
+            event.setSourceKey(Event.sourceKey("test-topic", 0, offset));
+            events.add(event);
+        }
+        return events;
+    }
+}
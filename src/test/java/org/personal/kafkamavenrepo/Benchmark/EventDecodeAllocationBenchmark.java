@@ -0,0 +1,127 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Serialization.*;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of turning a value in the consumer's fetch buffer into an {@link Event}: through
+ * an intermediate String, through the stock error handling deserializer (which copies the value
+ * into a new array first), and in place. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDecodeAllocationBenchmark {
+
+    private static final String TOPIC = "test-topic";
+
+    private Path registryDir;
+    private Deserializer<Event> copyingDeserializer;
+    private Deserializer<Event> inPlaceDeserializer;
+    private ByteBuffer jsonValue;
+    private Headers jsonHeaders;
+    private ByteBuffer binaryValue;
+    private Headers binaryHeaders;
+
+    @Setup
+    public void setUp() throws IOException {
+        registryDir = Files.createTempDirectory("schema-registry");
+        BinaryEventCodec binaryCodec = new BinaryEventCodec(new FileSchemaRegistry(registryDir.resolve("registry.json")));
+        EventSerializer serializer = EventSerializer.withTopics(new JsonEventCodec(), binaryCodec, Set.of());
+        EventDeserializer deserializer = new EventDeserializer(new JsonEventCodec(), List.of(binaryCodec));
+        copyingDeserializer = new ErrorHandlingDeserializer<>(deserializer);
+        inPlaceDeserializer = new InPlaceErrorHandlingDeserializer<>(deserializer);
+
+        Event event = standardEvent();
+        jsonHeaders = new RecordHeaders();
+        jsonValue = inFetchBuffer(serializer.serialize(TOPIC, jsonHeaders, event));
+        binaryHeaders = new RecordHeaders();
+        binaryHeaders.add(EventCodec.FORMAT_HEADER, BinaryEventCodec.FORMAT.getBytes(StandardCharsets.UTF_8));
+        binaryValue = inFetchBuffer(binaryCodec.encode(event, binaryHeaders));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(registryDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Event jsonViaString() {
+        byte[] bytes = new byte[jsonValue.remaining()];
+        jsonValue.duplicate().get(bytes);
+        return JsonUtil.deserialize(new String(bytes, StandardCharsets.UTF_8), Event.class);
+    }
+
+    @Benchmark
+    public Event jsonCopied() {
+        return copyingDeserializer.deserialize(TOPIC, jsonHeaders, jsonValue);
+    }
+
+    @Benchmark
+    public Event jsonInPlace() {
+        return inPlaceDeserializer.deserialize(TOPIC, jsonHeaders, jsonValue);
+    }
+
+    @Benchmark
+    public Event binaryCopied() {
+        return copyingDeserializer.deserialize(TOPIC, binaryHeaders, binaryValue);
+    }
+
+    @Benchmark
+    public Event binaryInPlace() {
+        return inPlaceDeserializer.deserialize(TOPIC, binaryHeaders, binaryValue);
+    }
+
+    /**
+     * Places the value in the middle of a larger array, as it sits in a fetched record batch.
+     */
+    private static ByteBuffer inFetchBuffer(byte[] value) {
+        byte[] batch = new byte[value.length + 128];
+        System.arraycopy(value, 0, batch, 64, value.length);
+        return ByteBuffer.wrap(batch, 64, value.length).slice();
+    }
+
+    private static Event standardEvent() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        User user = new User();
+        user.setId(123456L);
+        user.setUsername("benchmark-user");
+        user.setEmail("benchmark-user@example.com");
+        user.setCreatedAt(now);
+        user.setCreatedDate(now);
+        user.setUpdatedDate(now);
+
+        Event event = new Event();
+        event.setId("665f1c2b9d3e4a0012345678");
+        event.setType(EventType.EDITION);
+        event.setVersion(Event.CURRENT_VERSION);
+        event.setPayload(user);
+        event.setAggregateId("123456");
+        event.setTimestamp(now);
+        return event;
+    }
+}
@@ -0,0 +1,77 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Service.EventUsers;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of the version 1 event layout (user as JSON text in the description, so
+ * encoded and decoded twice) against the version 2 envelope with the user embedded as payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventEncodingBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventEncodingBenchmark.class);
+
+    private User user;
+    private String legacyMessage;
+    private String envelopeMessage;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        user = new User();
+        user.setId(123456L);
+        user.setUsername("benchmark-user");
+        user.setEmail("benchmark-user@example.com");
+        user.setCreatedAt(now);
+        user.setCreatedDate(now);
+        user.setUpdatedDate(now);
+
+        legacyMessage = encodeLegacy();
+        envelopeMessage = encodeEnvelope();
+        logger.info("Wire size: legacy {} chars, envelope {} chars", legacyMessage.length(), envelopeMessage.length());
+    }
+
+    @Benchmark
+    public String encodeLegacy() {
+        Event event = new Event();
+        event.setType(EventType.EDITION);
+        event.setDescription(JsonUtil.serialize(user));
+        event.setTimestamp(LocalDateTime.now());
+        return JsonUtil.serialize(event);
+    }
+
+    @Benchmark
+    public String encodeEnvelope() {
+        Event event = new Event();
+        event.setType(EventType.EDITION);
+        event.setVersion(Event.CURRENT_VERSION);
+        event.setPayload(user);
+        event.setTimestamp(LocalDateTime.now());
+        return JsonUtil.serialize(event);
+    }
+
+    @Benchmark
+    public User decodeLegacy() {
+        return EventUsers.resolveUser(JsonUtil.deserialize(legacyMessage, Event.class));
+    }
+
+    @Benchmark
+    public User decodeEnvelope() {
+        return EventUsers.resolveUser(JsonUtil.deserialize(envelopeMessage, Event.class));
+    }
+}
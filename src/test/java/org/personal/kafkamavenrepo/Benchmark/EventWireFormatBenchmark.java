@@ -0,0 +1,97 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Serialization.BinaryEventCodec;
+import org.personal.kafkamavenrepo.Serialization.FileSchemaRegistry;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost and record size of the JSON wire format against the compact binary one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventWireFormatBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventWireFormatBenchmark.class);
+
+    private Path registryDir;
+    private JsonEventCodec jsonCodec;
+    private BinaryEventCodec binaryCodec;
+    private Event event;
+    private byte[] jsonRecord;
+    private byte[] binaryRecord;
+    private Headers binaryHeaders;
+
+    @Setup
+    public void setUp() throws IOException {
+        registryDir = Files.createTempDirectory("schema-registry");
+        jsonCodec = new JsonEventCodec();
+        binaryCodec = new BinaryEventCodec(new FileSchemaRegistry(registryDir.resolve("registry.json")));
+
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        User user = new User();
+        user.setId(123456L);
+        user.setUsername("benchmark-user");
+        user.setEmail("benchmark-user@example.com");
+        user.setCreatedAt(now);
+        user.setCreatedDate(now);
+        user.setUpdatedDate(now);
+
+        event = new Event();
+        event.setId("665f1c2b9d3e4a0012345678");
+        event.setType(EventType.EDITION);
+        event.setVersion(Event.CURRENT_VERSION);
+        event.setPayload(user);
+        event.setAggregateId("123456");
+        event.setTimestamp(now);
+
+        jsonRecord = jsonCodec.encode(event, new RecordHeaders());
+        binaryHeaders = new RecordHeaders();
+        binaryRecord = binaryCodec.encode(event, binaryHeaders);
+        logger.info("Record size: json {} bytes, binary {} bytes", jsonRecord.length, binaryRecord.length);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(registryDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonCodec.encode(event, new RecordHeaders());
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binaryCodec.encode(event, new RecordHeaders());
+    }
+
+    @Benchmark
+    public Event decodeJson() {
+        return jsonCodec.decode(jsonRecord, null);
+    }
+
+    @Benchmark
+    public Event decodeBinary() {
+        return binaryCodec.decode(binaryRecord, binaryHeaders);
+    }
+}
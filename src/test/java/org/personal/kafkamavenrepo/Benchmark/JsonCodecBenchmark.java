@@ -0,0 +1,68 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event serialize/deserialize throughput of JsonUtil (cached readers and writers, hand-written
+ * Event/User codecs) against a plain ObjectMapper with the bean (de)serializers, called the way
+ * JsonUtil used to call it. Run with {@code -prof gc} for bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+
+    private ObjectMapper beanMapper;
+    private Event event;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        beanMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        event = BenchmarkFixtures.event(EventType.EDITION, BenchmarkFixtures.user(123456L, payloadSize));
+        json = JsonUtil.serializeToBytes(event);
+    }
+
+    @Benchmark
+    public byte[] serializeBean() throws IOException {
+        return beanMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonUtil() {
+        return JsonUtil.serializeToBytes(event);
+    }
+
+    @Benchmark
+    public Event deserializeBean() throws IOException {
+        return beanMapper.readValue(json, Event.class);
+    }
+
+    @Benchmark
+    public Event deserializeJsonUtil() {
+        return JsonUtil.deserialize(json, Event.class);
+    }
+
+    @Benchmark
+    public Event roundTripJsonUtil() {
+        return JsonUtil.deserialize(JsonUtil.serializeToBytes(event), Event.class);
+    }
+}
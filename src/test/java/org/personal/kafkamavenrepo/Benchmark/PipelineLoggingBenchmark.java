@@ -0,0 +1,115 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.personal.kafkamavenrepo.Consumer.Consumer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Persistence.InMemoryRepositories;
+import org.personal.kafkamavenrepo.Producer.Producer;
+import org.personal.kafkamavenrepo.Producer.UserIdKeyResolver;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
+import org.personal.kafkamavenrepo.Service.EventUsers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost of one event through the pipeline: sent by the {@link Producer} (acknowledged at
+ * once by a mock producer), then dispatched by {@link Consumer#listen} to the rebuild service over
+ * an in-memory repository. Log lines are formatted and encoded with the console pattern into a
+ * discarding stream, synchronously, so their whole CPU cost lands on the calling thread.
+ * <p>
+ * {@code current} is the pipeline as it is; {@code legacy} adds back the per-event INFO lines
+ * with full payload toString that it used to write, so the difference is what they cost. At
+ * DEBUG, the per-event lines are written up to the rate limit and dropped after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineLoggingBenchmark {
+
+    private static final String TOPIC = "test-topic";
+
+    private static final Logger producerLogger = LoggerFactory.getLogger(Producer.class);
+    private static final Logger consumerLogger = LoggerFactory.getLogger(Consumer.class);
+    private static final Logger rebuildLogger = LoggerFactory.getLogger(BusinessRebuildService.class);
+
+    @Param({"64", "1024"})
+    private int payloadSize;
+
+    @Param({"INFO", "DEBUG"})
+    private String level;
+
+    private Producer producer;
+    private Consumer consumer;
+    private Event event;
+    private String key;
+    private ConsumerRecord<String, Event> record;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        root.setLevel(Level.WARN);
+        for (Logger logger : new Logger[]{producerLogger, consumerLogger, rebuildLogger}) {
+            ((ch.qos.logback.classic.Logger) logger).setLevel(Level.toLevel(level));
+        }
+
+        // Acknowledges at once without keeping the records
+        ProducerEncodeBenchmark.EncodingProducer encodingProducer = new ProducerEncodeBenchmark.EncodingProducer(
+                new EventSerializer(new JsonEventCodec(), Map.of()), blackhole);
+        producer = new Producer(new KafkaTemplate<>(new MockProducerFactory<>(() -> encodingProducer)), new UserIdKeyResolver(),
+                10000, new SimpleMeterRegistry());
+        consumer = new Consumer(new BusinessRebuildService(null, InMemoryRepositories.userRepository(), null, null,
+                BenchmarkFixtures.disabledSnapshots(), new SimpleMeterRegistry(), 100000),
+                BenchmarkFixtures.inMemoryEvents(), new SimpleMeterRegistry());
+        event = BenchmarkFixtures.event(EventType.EDITION, BenchmarkFixtures.user(123456L, payloadSize));
+        key = producer.resolveKey(EventType.EDITION, EventUsers.resolveUser(event));
+        record = new ConsumerRecord<>(TOPIC, 0, 0L, key, event);
+    }
+
+    @Benchmark
+    public void current() {
+        producer.sendAsync(key, event);
+        consumer.listen(record);
+    }
+
+    @Benchmark
+    public void legacy() {
+        producer.sendAsync(key, event);
+        producerLogger.info("Successfully sent event: {}", event);
+        consumer.listen(record);
+        rebuildLogger.info("Handling event: {}", event);
+        rebuildLogger.info("User updated successfully from event: {}", EventUsers.resolveUser(event));
+        consumerLogger.info("Received event from topic {}: {}", TOPIC, event);
+    }
+}
@@ -0,0 +1,113 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Producer.Producer;
+import org.personal.kafkamavenrepo.Producer.UserIdKeyResolver;
+import org.personal.kafkamavenrepo.Serialization.BinaryEventCodec;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.FileSchemaRegistry;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Producer.sendEvent} up to the bytes handed to the network layer: event creation, key
+ * resolution, KafkaTemplate and the value serializer, in each wire format. The Kafka producer is
+ * replaced by one that serializes the record and acknowledges it at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProducerEncodeBenchmark {
+
+    private static final String TOPIC = "test-topic";
+
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+
+    @Param({"json", "binary"})
+    private String format;
+
+    private Path registryDir;
+    private Producer producer;
+    private EncodingProducer encodingProducer;
+    private User user;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws IOException {
+        BenchmarkFixtures.quietLogging();
+        registryDir = Files.createTempDirectory("schema-registry");
+        BinaryEventCodec binaryCodec = new BinaryEventCodec(new FileSchemaRegistry(registryDir.resolve("registry.json")));
+        Set<String> binaryTopics = BinaryEventCodec.FORMAT.equals(format) ? Set.of(TOPIC) : Set.of();
+        EventSerializer serializer = EventSerializer.withTopics(new JsonEventCodec(), binaryCodec, binaryTopics);
+
+        encodingProducer = new EncodingProducer(serializer, blackhole);
+        producer = new Producer(new KafkaTemplate<>(new MockProducerFactory<>(() -> encodingProducer)), new UserIdKeyResolver(),
+                10000, new SimpleMeterRegistry());
+        user = BenchmarkFixtures.user(123456L, payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(registryDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void sendEvent() {
+        producer.sendEvent(EventType.EDITION, user);
+    }
+
+    /**
+     * Serializes and acknowledges every record immediately, without keeping it.
+     */
+    static class EncodingProducer extends MockProducer<String, Event> {
+
+        private final StringSerializer keySerializer = new StringSerializer();
+        private final EventSerializer valueSerializer;
+        private final Blackhole blackhole;
+
+        EncodingProducer(EventSerializer valueSerializer, Blackhole blackhole) {
+            super(true, new StringSerializer(), valueSerializer);
+            this.valueSerializer = valueSerializer;
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<String, Event> record, Callback callback) {
+            byte[] key = keySerializer.serialize(record.topic(), record.headers(), record.key());
+            byte[] value = valueSerializer.serialize(record.topic(), record.headers(), record.value());
+            blackhole.consume(key);
+            blackhole.consume(value);
+            RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), 0), 0, 0,
+                    record.timestamp() != null ? record.timestamp() : 0L, key.length, value.length);
+            if (callback != null) {
+                callback.onCompletion(metadata, null);
+            }
+            return CompletableFuture.completedFuture(metadata);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Persistence.InMemoryRepositories;
+import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code BusinessRebuildService.handleEvent} against an in-memory user repository, so the
+ * numbers are the service's own dispatch cost. Cycles through creations, editions and deletions
+ * of a fixed set of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayApplyBenchmark {
+
+    private static final int USERS = 1024;
+    private static final EventType[] CYCLE = {EventType.CREATION, EventType.EDITION, EventType.DELETION};
+
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+
+    private BusinessRebuildService rebuildService;
+    private Event[] events;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quietLogging();
+        rebuildService = new BusinessRebuildService(null, InMemoryRepositories.userRepository(), null, null,
+                BenchmarkFixtures.disabledSnapshots(), new SimpleMeterRegistry(), 100000);
+        events = new Event[USERS * CYCLE.length];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = BenchmarkFixtures.event(CYCLE[i / USERS], BenchmarkFixtures.user(i % USERS, payloadSize));
+        }
+    }
+
+    @Benchmark
+    public void handleEvent() {
+        rebuildService.handleEvent(events[next]);
+        next = (next + 1) % events.length;
+    }
+}
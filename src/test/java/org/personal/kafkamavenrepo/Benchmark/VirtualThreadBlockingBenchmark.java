@@ -0,0 +1,98 @@
+package org.personal.kafkamavenrepo.Benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.personal.kafkamavenrepo.Utilities.PipelineThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events whose handling fans out into many concurrent blocking database calls, each simulated by
+ * a 1 ms wait, run on platform or virtual threads. {@code platform} is a pool sized like a
+ * servlet container's (200 threads); {@code virtual} starts a virtual thread per call;
+ * {@code virtual-pinned} makes the same calls inside {@code synchronized}, as a driver that pins
+ * its carrier would, which is what pipeline.threads.require-pinning-safe-drivers guards against.
+ * <p>
+ * Throughput is events per second. Run with {@code -prof gc} for heap allocated per event; the
+ * peak number of platform threads, each reserving its own stack, is printed after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBlockingBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBlockingBenchmark.class);
+
+    private static final int PLATFORM_POOL_SIZE = 200;
+    private static final long CALL_MILLIS = 1;
+
+    @Param({"platform", "virtual", "virtual-pinned"})
+    private String threads;
+
+    @Param({"16", "256", "1024"})
+    private int callsPerEvent;
+
+    private ExecutorService executor;
+    private boolean pinned;
+
+    @Setup
+    public void setUp() {
+        executor = threads.equals("platform")
+                ? Executors.newFixedThreadPool(PLATFORM_POOL_SIZE, PipelineThreads.threadFactory("db-call-", false))
+                : Executors.newThreadPerTaskExecutor(PipelineThreads.threadFactory("db-call-", true));
+        pinned = threads.equals("virtual-pinned");
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        logger.info("{}, {} calls per event: peak {} platform threads",
+                threads, callsPerEvent, threadBean.getPeakThreadCount());
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void handleEvent() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(callsPerEvent);
+        for (int i = 0; i < callsPerEvent; i++) {
+            executor.execute(() -> {
+                try {
+                    blockingCall();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void blockingCall() {
+        if (pinned) {
+            // An uncontended monitor still pins the virtual thread to its carrier while it waits
+            synchronized (new Object()) {
+                waitForDatabase();
+            }
+        } else {
+            waitForDatabase();
+        }
+    }
+
+    private static void waitForDatabase() {
+        try {
+            Thread.sleep(CALL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.personal.kafkamavenrepo.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class KafkaConfigTest {
+
+    private KafkaConfig kafkaConfig;
+
+    @BeforeEach
+    void setUp() {
+        kafkaConfig = new KafkaConfig(new SimpleMeterRegistry(), mock(ThreadingConfig.class));
+        ReflectionTestUtils.setField(kafkaConfig, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(kafkaConfig, "partitionerClass", "");
+    }
+
+    @Test
+    void testIdempotentProducerRequiresAcksAll() {
+        ReflectionTestUtils.setField(kafkaConfig, "enableIdempotence", true);
+        ReflectionTestUtils.setField(kafkaConfig, "acks", "1");
+
+        assertThrows(IllegalStateException.class, () -> kafkaConfig.producerProperties());
+
+        ReflectionTestUtils.setField(kafkaConfig, "acks", "all");
+        assertEquals("all", kafkaConfig.producerProperties().get(ProducerConfig.ACKS_CONFIG));
+    }
+
+    @Test
+    void testNonIdempotentProducerTakesAnyAcks() {
+        ReflectionTestUtils.setField(kafkaConfig, "enableIdempotence", false);
+        ReflectionTestUtils.setField(kafkaConfig, "acks", "1");
+
+        assertEquals("1", kafkaConfig.producerProperties().get(ProducerConfig.ACKS_CONFIG));
+    }
+}
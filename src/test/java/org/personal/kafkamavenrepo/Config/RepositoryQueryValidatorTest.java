@@ -0,0 +1,41 @@
+package org.personal.kafkamavenrepo.Config;
+
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.KafkaMavenRepoApplication;
+import org.personal.kafkamavenrepo.Persistence.Mongo.EventRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepositoryQueryValidatorTest {
+
+    interface BrokenEventRepository extends MongoRepository<Event, String> {
+        Event findByEventName(String eventName);
+        List<Event> getAllEvents();
+    }
+
+    @Test
+    void testReportsMethodsWithoutABackingField() {
+        List<String> problems = RepositoryQueryValidator.validate(BrokenEventRepository.class);
+
+        assertEquals(2, problems.size());
+        assertTrue(problems.stream().anyMatch(problem -> problem.startsWith("BrokenEventRepository.findByEventName")));
+        assertTrue(problems.stream().anyMatch(problem -> problem.startsWith("BrokenEventRepository.getAllEvents")));
+    }
+
+    @Test
+    void testAcceptsTheApplicationRepositories() {
+        assertEquals(List.of(), RepositoryQueryValidator.validate(EventRepository.class));
+        assertEquals(List.of(), RepositoryQueryValidator.validate(UserRepository.class));
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AutoConfigurationPackages.register(beanFactory, KafkaMavenRepoApplication.class.getPackageName());
+        assertDoesNotThrow(() -> new RepositoryQueryValidator().postProcessBeanFactory(beanFactory));
+    }
+}
@@ -0,0 +1,90 @@
+package org.personal.kafkamavenrepo.Consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
+import org.personal.kafkamavenrepo.Service.EventService;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+public class ConsumerTest {
+
+    private BusinessRebuildService businessRebuildService;
+    private EventService eventService;
+    private Consumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        businessRebuildService = mock(BusinessRebuildService.class);
+        eventService = mock(EventService.class);
+        consumer = new Consumer(businessRebuildService, eventService, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testSourceKeyIsTheRecordPosition() {
+        Event event = event("event-1", EventType.EDITION, user(1L, "alice"), null);
+        ConsumerRecord<String, Event> record = new ConsumerRecord<>("test-topic", 2, 41L, "1", event);
+
+        assertEquals("test-topic-2-41", Consumer.sourceKeyOf(record));
+    }
+
+    @Test
+    void testRetriedRecordKeepsTheSourceKeyOfItsFirstDelivery() {
+        Event event = event("event-1", EventType.EDITION, user(1L, "alice"), null);
+        ConsumerRecord<String, Event> record = new ConsumerRecord<>("test-topic-retry-1", 0, 7L, "1", event);
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "test-topic".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(2).array());
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(41L).array());
+
+        assertEquals("test-topic-2-41", Consumer.sourceKeyOf(record));
+    }
+
+    @Test
+    void testFailureIsRethrownForTheRetryTiers() {
+        Event event = event("event-1", EventType.EDITION, user(1L, "alice"), null);
+        doThrow(new IllegalStateException("database down")).when(businessRebuildService).handleEvent(any());
+
+        assertThrows(IllegalStateException.class,
+                () -> consumer.listen(new ConsumerRecord<>("test-topic", 0, 3L, "1", event)));
+
+        // Stored before applying, so a retry appends a duplicate that the store ignores
+        verify(eventService).appendEvents(List.of(event));
+        assertEquals("test-topic-0-3", event.getSourceKey());
+    }
+
+    @Test
+    void testFailedBatchReportsTheIndexOfTheFailingRecord() {
+        Event first = event("event-1", EventType.EDITION, user(1L, "alice"), null);
+        Event failing = event("event-2", EventType.EDITION, user(1L, "alice"), null);
+        Event last = event("event-3", EventType.EDITION, user(1L, "alice"), null);
+        doThrow(new IllegalStateException("constraint violation"))
+                .when(businessRebuildService).applyBatch(argThat(events -> events.contains(failing)));
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.listenBatch(List.of(
+                        new ConsumerRecord<>("test-topic", 0, 10L, "1", first),
+                        new ConsumerRecord<>("test-topic", 0, 11L, "1", (Event) null),
+                        new ConsumerRecord<>("test-topic", 0, 12L, "1", failing),
+                        new ConsumerRecord<>("test-topic", 0, 13L, "1", last))));
+
+        assertEquals(2, exception.getIndex());
+        // The records before it are applied, so committing their offsets loses nothing
+        verify(businessRebuildService).applyBatch(List.of(first));
+        verify(businessRebuildService, never()).applyBatch(List.of(last));
+    }
+}
@@ -0,0 +1,137 @@
+package org.personal.kafkamavenrepo.Consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DeadLetterReplayerTest {
+
+    private static final String TOPIC = "test-topic";
+    private static final TopicPartition DLT_PARTITION = new TopicPartition(TOPIC + Consumer.DLT_TOPIC_SUFFIX, 0);
+
+    private MockConsumer<String, byte[]> consumer;
+    private KafkaTemplate<String, Object> template;
+    private DeadLetterReplayer replayer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+            @Override
+            public synchronized void close() {
+                // Kept open so the tests can read the committed offsets after the replay
+            }
+        };
+        consumer.updatePartitions(DLT_PARTITION.topic(),
+                List.of(new PartitionInfo(DLT_PARTITION.topic(), 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(DLT_PARTITION, 0L));
+        ConsumerFactory<String, byte[]> consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(eq(DeadLetterReplayer.REPLAY_GROUP), isNull())).thenReturn(consumer);
+        template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        replayer = new DeadLetterReplayer(consumerFactory, template, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRecordsAreSentBackWithoutTheirFailureDetails() {
+        deadLetters(2);
+
+        assertEquals(2, replayer.replay(null));
+
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(template, times(2)).send(sent.capture());
+        ProducerRecord<String, Object> first = sent.getAllValues().get(0);
+        assertEquals(TOPIC, first.topic());
+        assertEquals("user-0", first.key());
+        assertArrayEquals(bytes("event-0"), (byte[]) first.value());
+        // The original position is the event's idempotency key, the failure and attempt count are not
+        assertNotNull(first.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET));
+        assertNotNull(first.headers().lastHeader("format"));
+        assertNull(first.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+        assertNull(first.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_STACKTRACE));
+        assertNull(first.headers().lastHeader("retry_topic-attempts"));
+        assertEquals(2, committedOffset());
+    }
+
+    @Test
+    void testReplayStopsAtMaxRecords() {
+        deadLetters(3);
+
+        assertEquals(2, replayer.replay(2));
+
+        verify(template, times(2)).send(any(ProducerRecord.class));
+        assertEquals(2, committedOffset());
+    }
+
+    @Test
+    void testRecordsDeadLetteredDuringTheReplayAreLeftForTheNextOne() {
+        deadLetters(3);
+        consumer.updateEndOffsets(Map.of(DLT_PARTITION, 2L));
+
+        assertEquals(2, replayer.replay(null));
+
+        assertEquals(2, committedOffset());
+    }
+
+    @Test
+    void testNothingIsCommittedWhenASendFails() {
+        deadLetters(2);
+        when(template.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThrows(IllegalStateException.class, () -> replayer.replay(null));
+
+        assertNull(consumer.committed(Set.of(DLT_PARTITION)).get(DLT_PARTITION));
+    }
+
+    private void deadLetters(int count) {
+        consumer.assign(List.of(DLT_PARTITION));
+        for (int i = 0; i < count; i++) {
+            RecordHeaders headers = new RecordHeaders();
+            headers.add("format", bytes("json"));
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, bytes(TOPIC));
+            headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(i).array());
+            headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, bytes("boom"));
+            headers.add(KafkaHeaders.DLT_EXCEPTION_STACKTRACE, bytes("at ..."));
+            headers.add("retry_topic-attempts", bytes("4"));
+            consumer.addRecord(new ConsumerRecord<>(DLT_PARTITION.topic(), 0, i, 0L, TimestampType.CREATE_TIME,
+                    -1, -1, "user-" + i, bytes("event-" + i), headers, Optional.empty()));
+        }
+        consumer.updateEndOffsets(Map.of(DLT_PARTITION, (long) count));
+    }
+
+    private long committedOffset() {
+        OffsetAndMetadata committed = consumer.committed(Set.of(DLT_PARTITION)).get(DLT_PARTITION);
+        return committed.offset();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
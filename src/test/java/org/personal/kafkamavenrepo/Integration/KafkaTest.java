@@ -1,6 +1,11 @@
 package org.personal.kafkamavenrepo.Integration;
 
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -11,16 +16,18 @@ import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
 import org.personal.kafkamavenrepo.Producer.Producer;
 import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
+import org.personal.kafkamavenrepo.Service.EventService;
 import org.personal.kafkamavenrepo.TestKafkaMavenRepoApplication;
-import org.personal.kafkamavenrepo.Utilities.JsonUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.TestcontainersConfiguration;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +47,8 @@ public class KafkaTest {
     private KafkaTemplate kafkaTemplate;
     @Autowired
     private Producer producer;
+    @Autowired
+    private ProducerFactory<String, Event> producerFactory;
 
     @Autowired
     private BusinessRebuildService businessRebuildService;
@@ -52,7 +61,7 @@ public class KafkaTest {
     @BeforeEach
     void setUp() {
         // Re-initialize the Consumer with the mocked BusinessRebuildService
-        consumer = new Consumer(businessRebuildService);
+        consumer = new Consumer(businessRebuildService, mock(EventService.class), new SimpleMeterRegistry());
 
         // Reset the mock for each test
         reset(businessRebuildService);
@@ -62,16 +71,11 @@ public class KafkaTest {
     void testSendAndReceiveEvent() throws Exception {
         // Prepare the User object
         User user = new User();
+        user.setId(1L);
         user.setUsername("testuser");
         user.setEmail("testuser@example.com");
         user.setCreatedAt(LocalDateTime.now());
 
-        // Prepare the event
-        Event event = new Event();
-        event.setType(EventType.CREATION);
-        event.setDescription(JsonUtil.serialize(user));
-        event.setTimestamp(LocalDateTime.now());
-
         // Send the event
         producer.sendEvent(EventType.CREATION, user);
 
@@ -87,14 +91,20 @@ public class KafkaTest {
         verify(businessRebuildService).handleEvent(eventCaptor.capture());
         Event receivedEvent = eventCaptor.getValue();
 
-        assertEquals(event.getType(), receivedEvent.getType());
-        assertEquals(event.getDescription(), receivedEvent.getDescription());
+        // Version 2 events carry the user as a payload, without a description
+        assertEquals(EventType.CREATION, receivedEvent.getType());
+        assertEquals(Event.CURRENT_VERSION, receivedEvent.getVersion());
+        assertNotNull(receivedEvent.getTimestamp());
+        assertEquals(user.getUsername(), receivedEvent.getPayload().getUsername());
+        assertEquals(user.getEmail(), receivedEvent.getPayload().getEmail());
     }
 
     @Test
     void testEmptyMessage() throws Exception {
-        // Prepare the event with an empty User object
-        producer.sendEvent(EventType.CREATION, new User());
+        // Prepare the event with a User object holding nothing but its id, which keys the record
+        User user = new User();
+        user.setId(2L);
+        producer.sendEvent(EventType.CREATION, user);
 
         // Wait for the message to be received
         boolean messageReceived = COUNTDOWNLATCH.await(10, TimeUnit.SECONDS);
@@ -109,15 +119,20 @@ public class KafkaTest {
         Event receivedEvent = eventCaptor.getValue();
 
         assertEquals(EventType.CREATION, receivedEvent.getType());
-        assertNotNull(receivedEvent.getDescription()); // Check if description is not null
+        assertEquals(Event.CURRENT_VERSION, receivedEvent.getVersion());
+        assertNotNull(receivedEvent.getPayload());
+        assertNull(receivedEvent.getPayload().getUsername());
     }
 
     @Test
     void testInvalidMessage() throws Exception {
-        // Inject the KafkaTemplate directly
-        // Send an invalid message directly to the Kafka topic
+        // Send an invalid message directly to the Kafka topic, through the brokers of the test configuration
         String invalidMessage = "{ \"type\": \"INVALID_TYPE\", \"description\": \"Invalid message\", \"timestamp\": \"Not a date\" }";
-        kafkaTemplate.send("test-topic", invalidMessage);
+        try (KafkaProducer<String, byte[]> rawProducer = new KafkaProducer<>(producerFactory.getConfigurationProperties(),
+                new StringSerializer(), new ByteArraySerializer())) {
+            rawProducer.send(new ProducerRecord<>("test-topic", invalidMessage.getBytes(StandardCharsets.UTF_8)))
+                    .get(10, TimeUnit.SECONDS);
+        }
 
         // Wait for the message to be processed
         boolean messageReceived = COUNTDOWNLATCH.await(10, TimeUnit.SECONDS);
@@ -135,6 +150,7 @@ public class KafkaTest {
 
         // Prepare the User object
         User user = new User();
+        user.setId(3L);
         user.setUsername("testuser");
         user.setEmail("testuser@example.com");
         user.setCreatedAt(LocalDateTime.now());
@@ -154,10 +170,12 @@ public class KafkaTest {
     void testMultipleMessages() throws Exception {
         // Prepare the User objects
         User user1 = new User();
+        user1.setId(4L);
         user1.setUsername("user1");
         user1.setEmail("user1@example.com");
 
         User user2 = new User();
+        user2.setId(5L);
         user2.setUsername("user2");
         user2.setEmail("user2@example.com");
 
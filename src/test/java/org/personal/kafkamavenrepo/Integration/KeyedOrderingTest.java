@@ -0,0 +1,107 @@
+package org.personal.kafkamavenrepo.Integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Producer.Producer;
+import org.personal.kafkamavenrepo.Producer.UserIdKeyResolver;
+import org.personal.kafkamavenrepo.Serialization.EventDeserializer;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.personal.kafkamavenrepo.Service.EventUsers;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Per-user ordering must hold when events are spread over several partitions and consumed
+ * by one thread per partition.
+ */
+@EmbeddedKafka(partitions = KeyedOrderingTest.PARTITIONS, topics = "test-topic")
+public class KeyedOrderingTest {
+
+    static final int PARTITIONS = 4;
+    private static final int USERS = 12;
+    private static final int EVENTS_PER_USER = 25;
+
+    @Test
+    void testPerUserOrderSurvivesParallelConsumption(EmbeddedKafkaBroker broker) throws Exception {
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        KafkaTemplate<String, Event> kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProps,
+                new StringSerializer(), new EventSerializer(new JsonEventCodec(), Map.of())));
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10000, new SimpleMeterRegistry());
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("ordering-group", "false", broker);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        CountDownLatch latch = new CountDownLatch(USERS * EVENTS_PER_USER);
+        Map<String, List<Integer>> sequencesByUser = new ConcurrentHashMap<>();
+        Map<String, Set<Integer>> partitionsByUser = new ConcurrentHashMap<>();
+        Set<String> consumerThreads = ConcurrentHashMap.newKeySet();
+
+        ConcurrentMessageListenerContainer<String, Event> container = new ConcurrentMessageListenerContainer<>(
+                new DefaultKafkaConsumerFactory<>(consumerProps, new StringDeserializer(),
+                        new EventDeserializer(new JsonEventCodec(), List.of())),
+                new ContainerProperties("test-topic"));
+        container.setConcurrency(PARTITIONS);
+        container.setupMessageListener((MessageListener<String, Event>) record -> {
+            User user = EventUsers.resolveUser(record.value());
+            sequencesByUser.computeIfAbsent(record.key(), key -> new ArrayList<>())
+                    .add(Integer.parseInt(user.getEmail()));
+            partitionsByUser.computeIfAbsent(record.key(), key -> ConcurrentHashMap.newKeySet()).add(record.partition());
+            consumerThreads.add(Thread.currentThread().getName());
+            latch.countDown();
+        });
+        container.start();
+        try {
+            // Interleave users so that consecutive sends for one user are never adjacent
+            for (int sequence = 0; sequence < EVENTS_PER_USER; sequence++) {
+                for (long userId = 1; userId <= USERS; userId++) {
+                    User user = new User();
+                    user.setId(userId);
+                    user.setUsername("user" + userId);
+                    user.setEmail(Integer.toString(sequence));
+                    producer.sendEvent(EventType.EDITION, user);
+                }
+            }
+            kafkaTemplate.flush();
+
+            assertTrue(latch.await(30, TimeUnit.SECONDS), "Not all events were consumed");
+        } finally {
+            container.stop();
+        }
+
+        assertEquals(USERS, sequencesByUser.size());
+        sequencesByUser.forEach((key, sequences) -> {
+            assertEquals(EVENTS_PER_USER, sequences.size(), "Missing events for user " + key);
+            for (int i = 0; i < sequences.size(); i++) {
+                assertEquals(i, sequences.get(i), "Events of user " + key + " consumed out of order");
+            }
+        });
+        partitionsByUser.forEach((key, partitions) ->
+                assertEquals(1, partitions.size(), "Events of user " + key + " spread over several partitions"));
+        assertTrue(consumerThreads.size() > 1, "Events were not consumed in parallel");
+    }
+}
@@ -0,0 +1,123 @@
+package org.personal.kafkamavenrepo.Integration;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Service.UserService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues user creations, editions and deletions through {@link UserService} at a fixed rate and
+ * in a weighted mix. The schedule is open loop: operation i is due at start + i / rate whether
+ * or not the previous ones were slow, so a struggling pipeline shows up as latency and lag
+ * rather than as a quietly lower rate. Editions and deletions pick a random live user; while
+ * there is none, a creation is issued instead. Not thread-safe.
+ */
+class LoadGenerator {
+
+    private final UserService userService;
+    private final Map<EventType, Integer> mix;
+    private final int totalWeight;
+    private final Random random;
+    private final List<Long> liveUserIds = new ArrayList<>();
+    private long operations;
+
+    /**
+     * @param userService The service the operations go through.
+     * @param mix Relative weight of CREATION, EDITION and DELETION.
+     * @param seed Seed of the operation and user choices, so runs are repeatable.
+     */
+    LoadGenerator(UserService userService, Map<EventType, Integer> mix, long seed) {
+        this.userService = userService;
+        this.mix = new EnumMap<>(mix);
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.random = new Random(seed);
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The operation mix needs a positive weight");
+        }
+    }
+
+    /**
+     * Parses a mix such as {@code CREATION:40,EDITION:45,DELETION:15}.
+     */
+    static Map<EventType, Integer> parseMix(String mix) {
+        Map<EventType, Integer> weights = new EnumMap<>(EventType.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(EventType.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the schedule for the given duration.
+     *
+     * @param ratePerSecond Operations per second.
+     * @param duration How long to issue operations for.
+     * @return The number of operations issued, one event each.
+     */
+    int run(int ratePerSecond, Duration duration) {
+        long intervalNanos = 1_000_000_000L / ratePerSecond;
+        int total = (int) (duration.toNanos() / intervalNanos);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            issue(nextType());
+        }
+        return total;
+    }
+
+    /**
+     * @return The ids of the users that exist after the operations issued so far.
+     */
+    List<Long> getLiveUserIds() {
+        return List.copyOf(liveUserIds);
+    }
+
+    private EventType nextType() {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<EventType, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private void issue(EventType type) {
+        long operation = ++operations;
+        if (type == EventType.CREATION || liveUserIds.isEmpty()) {
+            User user = new User();
+            user.setUsername("load-user-" + operation);
+            user.setEmail("load-user-" + operation + "@example.com");
+            liveUserIds.add(userService.createUser(user).getId());
+            return;
+        }
+
+        int index = random.nextInt(liveUserIds.size());
+        Long userId = liveUserIds.get(index);
+        if (type == EventType.DELETION) {
+            // Swap-remove keeps the pick O(1); the order of live ids does not matter
+            liveUserIds.set(index, liveUserIds.get(liveUserIds.size() - 1));
+            liveUserIds.remove(liveUserIds.size() - 1);
+            userService.deleteUser(userId);
+        } else {
+            User user = new User();
+            user.setId(userId);
+            user.setUsername("load-user-" + userId + "-v" + operation);
+            user.setEmail("load-user-" + userId + "@example.com");
+            userService.updateUser(user);
+        }
+    }
+}
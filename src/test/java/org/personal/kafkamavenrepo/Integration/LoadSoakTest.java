@@ -0,0 +1,282 @@
+package org.personal.kafkamavenrepo.Integration;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.personal.kafkamavenrepo.Consumer.Consumer;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.InMemoryRepositories;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.personal.kafkamavenrepo.Producer.OutboxRelay;
+import org.personal.kafkamavenrepo.Producer.Producer;
+import org.personal.kafkamavenrepo.Producer.UserIdKeyResolver;
+import org.personal.kafkamavenrepo.Serialization.EventDeserializer;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+import org.personal.kafkamavenrepo.Service.BusinessRebuildService;
+import org.personal.kafkamavenrepo.Service.EventService;
+import org.personal.kafkamavenrepo.Service.OutboxService;
+import org.personal.kafkamavenrepo.Service.SnapshotService;
+import org.personal.kafkamavenrepo.Service.UserService;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Soak test of the whole write-to-read path on an embedded broker: {@link UserService} writes
+ * users and outbox entries, the {@link OutboxRelay} publishes them through the {@link Producer},
+ * and the {@link Consumer} applies them to a separate read-side {@link UserRepository}. Both
+ * repositories are in memory so the test runs offline; what it measures is the Kafka path and
+ * the code around it, not Postgres.
+ * <p>
+ * After {@code load.warmup-seconds} at the first rate, the load is stepped up through
+ * {@code load.rates}; each stage runs for {@code load.stage-seconds}
+ * and reports p50/p99/p999 end-to-end latency (event timestamp to applied), the highest consumer
+ * lag seen and the achieved throughput. A stage is sustained if everything it sent is applied
+ * within {@code load.drain-timeout-seconds} and its p99 stays under {@code load.max-p99-ms}; the
+ * highest sustained rate is the reported maximum. Results are logged and written as JSON to
+ * {@code load.report}.
+ * <p>
+ * Too slow for the regular build, so it only runs with {@code -Dload.test=true}, e.g.
+ * {@code mvn test -Dtest=LoadSoakTest -Dload.test=true -Dload.rates=500,2000,8000}.
+ */
+@EmbeddedKafka(partitions = LoadSoakTest.PARTITIONS, topics = LoadSoakTest.TOPIC)
+@EnabledIfSystemProperty(named = "load.test", matches = "true")
+public class LoadSoakTest {
+
+    static final int PARTITIONS = 4;
+    static final String TOPIC = "test-topic";
+    private static final String GROUP = "load-group";
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadSoakTest.class);
+
+    private final List<Integer> rates = Arrays.stream(System.getProperty("load.rates", "250,500,1000,2000").split(","))
+            .map(String::trim).map(Integer::parseInt).toList();
+    private final Duration stageDuration = Duration.ofSeconds(Long.getLong("load.stage-seconds", 5));
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10));
+    private final Duration drainTimeout = Duration.ofSeconds(Long.getLong("load.drain-timeout-seconds", 15));
+    private final String mix = System.getProperty("load.mix", "CREATION:50,EDITION:40,DELETION:10");
+    private final long maxP99Millis = Long.getLong("load.max-p99-ms", 1000);
+    private final long relayIntervalMillis = Long.getLong("load.relay-interval-ms", 20);
+    private final Path reportFile = Path.of(System.getProperty("load.report", "target/load-report.json"));
+
+    record StageResult(int targetRate, int events, double achievedRate, double p50Millis, double p99Millis,
+                       double p999Millis, long maxLag, long drainMillis, boolean sustained) {
+    }
+
+    @Test
+    void testSustainedThroughputAndLatency(EmbeddedKafkaBroker broker) throws Exception {
+        ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        Level previousLevel = root.getLevel();
+        // Per-event INFO lines would dominate the measurement
+        root.setLevel(Level.WARN);
+        logger.warn("Load stages {} of {}s each, mix {}", rates, stageDuration.toSeconds(), mix);
+
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        KafkaTemplate<String, Event> kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProps,
+                new StringSerializer(), new EventSerializer(new JsonEventCodec(), Map.of())));
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10000, new SimpleMeterRegistry());
+
+        UserRepository writeUsers = InMemoryRepositories.userRepository();
+        var outboxEvents = InMemoryRepositories.outboxEventRepository();
+        UserService userService = new UserService(writeUsers, new OutboxService(outboxEvents, producer));
+        // The in-memory outbox has no rows to lock, and one relay drains it
+        OutboxRelay relay = new OutboxRelay(outboxEvents, producer, TransactionOperations.withoutTransaction(),
+                new SimpleMeterRegistry());
+
+        UserRepository readUsers = InMemoryRepositories.userRepository();
+        // No Mongo to snapshot the users to
+        SnapshotService snapshotService = new SnapshotService(null, null, null, null, null);
+        ReflectionTestUtils.setField(snapshotService, "enabled", false);
+        EventService eventService = new EventService(InMemoryRepositories.eventRepository(), new SimpleMeterRegistry());
+        Consumer consumer = new Consumer(new BusinessRebuildService(null, readUsers, null, null, snapshotService,
+                new SimpleMeterRegistry(), 100000), eventService, new SimpleMeterRegistry());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicReference<Timer> stageLatency = new AtomicReference<>();
+        AtomicLong applied = new AtomicLong();
+        AtomicLong stageMaxLag = new AtomicLong();
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(GROUP, "false", broker);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        ConcurrentMessageListenerContainer<String, Event> container = new ConcurrentMessageListenerContainer<>(
+                new DefaultKafkaConsumerFactory<>(consumerProps, new StringDeserializer(),
+                        new EventDeserializer(new JsonEventCodec(), List.of())),
+                new ContainerProperties(TOPIC));
+        container.setConcurrency(PARTITIONS);
+        container.setupMessageListener((MessageListener<String, Event>) record -> {
+            consumer.listen(record);
+            stageLatency.get().record(Duration.between(record.value().getTimestamp(), LocalDateTime.now()));
+            applied.incrementAndGet();
+        });
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        List<StageResult> results = new ArrayList<>();
+        boolean drained = false;
+        LoadGenerator generator = new LoadGenerator(userService, LoadGenerator.parseMix(mix), 42);
+        try (AdminClient admin = AdminClient.create(Map.of(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            container.start();
+            // Partition assignment takes a few seconds; load sent before it would count as latency
+            ContainerTestUtils.waitForAssignment(container, PARTITIONS);
+            scheduler.scheduleWithFixedDelay(relay::relay, relayIntervalMillis, relayIntervalMillis, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(() -> stageMaxLag.accumulateAndGet(consumerLag(admin), Math::max),
+                    100, 100, TimeUnit.MILLISECONDS);
+
+            // Runs the whole path until it is JIT-compiled, so the first stage does not measure warm-up
+            stageLatency.set(Timer.builder("load.warmup.latency").register(registry));
+            awaitApplied(applied, generator.run(rates.get(0), warmup), drainTimeout);
+
+            for (int rate : rates) {
+                Timer timer = Timer.builder("load.end-to-end.latency")
+                        .tag("rate", Integer.toString(rate))
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        // Percentiles over the whole stage rather than a rolling window
+                        .distributionStatisticExpiry(Duration.ofHours(1))
+                        .distributionStatisticBufferLength(1)
+                        .register(registry);
+                stageLatency.set(timer);
+                stageMaxLag.set(0);
+                long appliedBefore = applied.get();
+
+                long start = System.nanoTime();
+                int events = generator.run(rate, stageDuration);
+                long sent = System.nanoTime();
+                drained = awaitApplied(applied, appliedBefore + events, drainTimeout);
+                long end = System.nanoTime();
+
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                Map<Double, Double> percentiles = Arrays.stream(snapshot.percentileValues())
+                        .collect(Collectors.toMap(ValueAtPercentile::percentile,
+                                value -> value.value(TimeUnit.MILLISECONDS)));
+                double p99 = percentiles.get(0.99);
+                StageResult result = new StageResult(rate, events, events / ((end - start) / 1e9),
+                        percentiles.get(0.5), p99, percentiles.get(0.999), stageMaxLag.get(),
+                        TimeUnit.NANOSECONDS.toMillis(end - sent), drained && p99 <= maxP99Millis);
+                results.add(result);
+                logger.warn("Stage {}", result);
+                if (!drained) {
+                    // Later stages would only measure this one's backlog
+                    break;
+                }
+            }
+        } finally {
+            scheduler.shutdownNow();
+            container.stop();
+            root.setLevel(previousLevel);
+        }
+
+        int maxSustainedRate = results.stream().filter(StageResult::sustained)
+                .mapToInt(StageResult::targetRate).max().orElse(0);
+        logReport(results, maxSustainedRate);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mix", mix);
+        report.put("stageSeconds", stageDuration.toSeconds());
+        report.put("partitions", PARTITIONS);
+        report.put("maxP99Millis", maxP99Millis);
+        report.put("maxSustainedRate", maxSustainedRate);
+        report.put("stages", results);
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        Files.writeString(reportFile, JsonUtil.serialize(report));
+
+        assertTrue(results.get(0).sustained(), "The first stage was not sustained: " + results.get(0));
+        if (drained) {
+            // Everything was applied, so the read side must have converged on the write side
+            assertEquals(snapshot(writeUsers), snapshot(readUsers), "Read side diverged from the write side");
+        }
+    }
+
+    private static boolean awaitApplied(AtomicLong applied, long target, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (applied.get() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private static long consumerLag(AdminClient admin) {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(GROUP)
+                    .partitionsToOffsetAndMetadata().get();
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                latest.put(new TopicPartition(TOPIC, partition), OffsetSpec.latest());
+            }
+            long lag = 0;
+            for (var entry : admin.listOffsets(latest).all().get().entrySet()) {
+                OffsetAndMetadata offset = committed.get(entry.getKey());
+                lag += entry.getValue().offset() - (offset != null ? offset.offset() : 0);
+            }
+            return lag;
+        } catch (Exception e) {
+            logger.warn("Could not read the consumer lag: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private static Map<Long, String> snapshot(UserRepository users) {
+        return users.findAll().stream().collect(Collectors.toMap(User::getId, User::getUsername));
+    }
+
+    private static void logReport(List<StageResult> results, int maxSustainedRate) {
+        StringBuilder table = new StringBuilder(String.format("%n%8s %8s %10s %9s %9s %9s %8s %8s %s%n",
+                "rate/s", "events", "achieved/s", "p50 ms", "p99 ms", "p999 ms", "max lag", "drain ms", "sustained"));
+        for (StageResult r : results) {
+            table.append(String.format("%8d %8d %10.1f %9.2f %9.2f %9.2f %8d %8d %s%n", r.targetRate(), r.events(),
+                    r.achievedRate(), r.p50Millis(), r.p99Millis(), r.p999Millis(), r.maxLag(), r.drainMillis(),
+                    r.sustained()));
+        }
+        table.append("Max sustained rate: ").append(maxSustainedRate).append(" events/s");
+        logger.warn("Load report{}", table);
+    }
+}
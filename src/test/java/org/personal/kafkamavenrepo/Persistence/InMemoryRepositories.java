@@ -0,0 +1,194 @@
+package org.personal.kafkamavenrepo.Persistence;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Domain.Postgres.Outbox.OutboxEvent;
+import org.personal.kafkamavenrepo.Persistence.Mongo.EventRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.OutboxEventRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed stand-ins for the Postgres and Mongo repositories, for benchmarks and load tests that
+ * must run without a database. Only the calls the services make are implemented; anything else throws.
+ * Ids are assigned on save like an identity column.
+ */
+public final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    public static UserRepository userRepository() {
+        Map<Long, User> users = new ConcurrentSkipListMap<>();
+        AtomicLong ids = new AtomicLong();
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> saveUser(users, ids, (User) args[0]);
+                    case "saveAll" -> {
+                        List<User> saved = new ArrayList<>();
+                        for (Object user : (Iterable<?>) args[0]) {
+                            saved.add(saveUser(users, ids, (User) user));
+                        }
+                        yield saved;
+                    }
+                    case "findById" -> Optional.ofNullable(users.get((Long) args[0]));
+                    case "findEventSequenceById" -> {
+                        User user = users.get((Long) args[0]);
+                        yield user != null ? user.getEventSequence() : null;
+                    }
+                    case "incrementEventSequence" -> {
+                        User user = users.get((Long) args[0]);
+                        if (user == null) {
+                            yield 0;
+                        }
+                        user.setEventSequence(user.getEventSequence() != null ? user.getEventSequence() + 1 : 1);
+                        yield 1;
+                    }
+                    case "findAll" -> new ArrayList<>(users.values());
+                    case "count" -> (long) users.size();
+                    case "delete" -> {
+                        users.remove(((User) args[0]).getId());
+                        yield null;
+                    }
+                    case "deleteUserById" -> users.remove((Long) args[0]) != null ? 1 : 0;
+                    case "deleteById" -> {
+                        users.remove((Long) args[0]);
+                        yield null;
+                    }
+                    case "deleteAll" -> {
+                        if (args != null) {
+                            throw new UnsupportedOperationException("deleteAll(Iterable)");
+                        }
+                        users.clear();
+                        yield null;
+                    }
+                    default -> objectMethod(proxy, method.getName(), args, "InMemoryUserRepository");
+                });
+    }
+
+    public static OutboxEventRepository outboxEventRepository() {
+        Map<Long, OutboxEvent> entries = new ConcurrentSkipListMap<>();
+        AtomicLong ids = new AtomicLong();
+        return (OutboxEventRepository) Proxy.newProxyInstance(OutboxEventRepository.class.getClassLoader(),
+                new Class<?>[]{OutboxEventRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> saveOutboxEvent(entries, ids, (OutboxEvent) args[0]);
+                    case "saveAll" -> {
+                        List<OutboxEvent> saved = new ArrayList<>();
+                        for (Object entry : (Iterable<?>) args[0]) {
+                            saved.add(saveOutboxEvent(entries, ids, (OutboxEvent) entry));
+                        }
+                        yield saved;
+                    }
+                    case "findClaimable" -> entries.values().stream()
+                            .filter(entry -> entry.getPublishedDate() == null)
+                            .filter(entry -> entry.getClaimedDate() == null
+                                    || entry.getClaimedDate().isBefore((LocalDateTime) args[0]))
+                            .limit(((Pageable) args[1]).getPageSize())
+                            .toList();
+                    case "claim" -> {
+                        int claimed = 0;
+                        for (Object id : (Collection<?>) args[0]) {
+                            OutboxEvent entry = entries.get((Long) id);
+                            if (entry != null) {
+                                entry.setClaimedDate((LocalDateTime) args[1]);
+                                claimed++;
+                            }
+                        }
+                        yield claimed;
+                    }
+                    case "releaseClaims" -> {
+                        int released = 0;
+                        for (Object id : (Collection<?>) args[0]) {
+                            OutboxEvent entry = entries.get((Long) id);
+                            if (entry != null && entry.getPublishedDate() == null) {
+                                entry.setClaimedDate(null);
+                                released++;
+                            }
+                        }
+                        yield released;
+                    }
+                    case "markPublished" -> {
+                        int marked = 0;
+                        for (Object id : (Collection<?>) args[0]) {
+                            OutboxEvent entry = entries.get((Long) id);
+                            if (entry != null) {
+                                entry.setPublishedDate((LocalDateTime) args[1]);
+                                entry.setUpdatedDate((LocalDateTime) args[1]);
+                                marked++;
+                            }
+                        }
+                        yield marked;
+                    }
+                    case "deletePublishedBefore" -> {
+                        LocalDateTime before = (LocalDateTime) args[0];
+                        int sizeBefore = entries.size();
+                        entries.values().removeIf(entry -> entry.getPublishedDate() != null
+                                && entry.getPublishedDate().isBefore(before));
+                        yield sizeBefore - entries.size();
+                    }
+                    case "count" -> (long) entries.size();
+                    default -> objectMethod(proxy, method.getName(), args, "InMemoryOutboxEventRepository");
+                });
+    }
+
+    public static EventRepository eventRepository() {
+        Map<String, Event> events = new ConcurrentHashMap<>();
+        Set<String> sourceKeys = ConcurrentHashMap.newKeySet();
+        return (EventRepository) Proxy.newProxyInstance(EventRepository.class.getClassLoader(),
+                new Class<?>[]{EventRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "appendAll" -> {
+                        int appended = 0;
+                        for (Object value : (List<?>) args[0]) {
+                            Event event = (Event) value;
+                            // Skipped like a duplicate key in the bulk write
+                            if (event.getSourceKey() != null && !sourceKeys.add(event.getSourceKey())) {
+                                continue;
+                            }
+                            if (events.putIfAbsent(event.getId(), event) == null) {
+                                appended++;
+                            }
+                        }
+                        yield appended;
+                    }
+                    case "count" -> (long) events.size();
+                    default -> objectMethod(proxy, method.getName(), args, "InMemoryEventRepository");
+                });
+    }
+
+    private static User saveUser(Map<Long, User> users, AtomicLong ids, User user) {
+        if (user.getId() == null) {
+            user.setId(ids.incrementAndGet());
+        }
+        users.put(user.getId(), user);
+        return user;
+    }
+
+    private static OutboxEvent saveOutboxEvent(Map<Long, OutboxEvent> entries, AtomicLong ids, OutboxEvent entry) {
+        if (entry.getId() == null) {
+            entry.setId(ids.incrementAndGet());
+        }
+        entries.put(entry.getId(), entry);
+        return entry;
+    }
+
+    private static Object objectMethod(Object proxy, String name, Object[] args, String description) {
+        return switch (name) {
+            case "toString" -> description;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> throw new UnsupportedOperationException(description + "." + name);
+        };
+    }
+}
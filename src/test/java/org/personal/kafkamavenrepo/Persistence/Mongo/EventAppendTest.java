@@ -0,0 +1,103 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Appends consumed events with {@link EventRepositoryCustomImpl#appendAll} and checks that
+ * redelivered events, recognized by source key or by id, are stored once.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class EventAppendTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final String TOPIC = "test-topic";
+
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static EventRepositoryCustomImpl repository;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(mongo.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "events-append");
+        repository = new EventRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @BeforeEach
+    void clearEvents() {
+        mongoTemplate.dropCollection(Event.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Event.class)
+                .forEach(index -> mongoTemplate.indexOps(Event.class).ensureIndex(index));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void testRedeliveredBatchIsStoredOnce() {
+        assertEquals(10, repository.appendAll(consumed(0, 10)));
+        assertEquals(0, repository.appendAll(consumed(0, 10)));
+
+        assertEquals(10, mongoTemplate.count(new Query(), Event.class));
+    }
+
+    @Test
+    void testPartlyRedeliveredBatchStoresOnlyTheNewEvents() {
+        repository.appendAll(consumed(0, 10));
+
+        // Offsets 5-9 come back after a rebalance, followed by 10 new ones
+        assertEquals(10, repository.appendAll(consumed(5, 20)));
+        assertEquals(20, mongoTemplate.count(new Query(), Event.class));
+    }
+
+    @Test
+    void testEventRelayedTwiceUnderTheSameIdIsStoredOnce() {
+        Event first = consumed(0, 1).get(0);
+        first.setId("outbox-dedup-key");
+        Event again = consumed(1, 2).get(0);
+        again.setId("outbox-dedup-key");
+
+        assertEquals(1, repository.appendAll(List.of(first)));
+        assertEquals(0, repository.appendAll(List.of(again)));
+    }
+
+    private static List<Event> consumed(int fromOffset, int toOffset) {
+        List<Event> events = new ArrayList<>();
+        for (int offset = fromOffset; offset < toOffset; offset++) {
+            Event event = new Event();
+            event.setType(EventType.EDITION);
+            event.setVersion(Event.CURRENT_VERSION);
+            event.setAggregateId(String.valueOf(offset % 3));
+            event.setTimestamp(T0.plusSeconds(offset));
+            event.setSourceKey(Event.sourceKey(TOPIC, 0, offset));
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,189 @@
+package org.personal.kafkamavenrepo.Persistence.Mongo;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Creates the indexes declared on {@link Event} the same way auto-index-creation does and checks
+ * with explain() that the event queries are answered from them instead of a collection scan.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class EventIndexExplainTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int EVENT_COUNT = 2000;
+
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static QueryMapper queryMapper;
+    private static MongoPersistentEntity<?> eventEntity;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(mongo.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "events-explain");
+        queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        eventEntity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(Event.class);
+
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Event.class)
+                .forEach(index -> mongoTemplate.indexOps(Event.class).ensureIndex(index));
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            Event event = new Event();
+            event.setType(EventType.values()[i % EventType.values().length]);
+            event.setDescription("{\"id\":" + (i % 100) + "}");
+            event.setAggregateId(String.valueOf(i % 100));
+            event.setSequence((long) (i / 100));
+            event.setTimestamp(T0.plusSeconds(i));
+            event.setCreatedDate(T0);
+            event.setUpdatedDate(T0);
+            event.setDeleted(i % 10 == 0);
+            events.add(event);
+        }
+        mongoTemplate.insertAll(events);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void testDeclaredIndexesAreCreated() {
+        Set<String> names = mongoTemplate.indexOps(Event.class).getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .collect(Collectors.toSet());
+
+        assertTrue(names.containsAll(Set.of("timestamp", "type_timestamp", "aggregate_sequence", "live_timestamp_id",
+                "live_aggregate_timestamp_id", "source_key")), names::toString);
+    }
+
+    @Test
+    void testReplayPageUsesTheLiveIndex() {
+        Document plan = explain(EventRepositoryCustomImpl.pageQuery(T0.plusSeconds(500), "000000000000000000000000", null, 100));
+
+        assertIndexScanOnly(plan, "live_timestamp_id");
+    }
+
+    @Test
+    void testFirstReplayPageUsesTheLiveIndex() {
+        Document plan = explain(EventRepositoryCustomImpl.pageQuery(null, null, T0.plusSeconds(1500), 100));
+
+        assertIndexScanOnly(plan, "live_timestamp_id");
+    }
+
+    @Test
+    void testLatestEventByTypeUsesTypeTimestamp() {
+        Query query = new Query(Criteria.where("type").is(EventType.CREATION))
+                .with(Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id")))
+                .limit(1);
+
+        assertIndexScanOnly(explain(query), "type_timestamp");
+    }
+
+    @Test
+    void testAggregateLookupUsesAggregateSequence() {
+        Query query = new Query(Criteria.where("aggregateId").is("42")).with(Sort.by("sequence"));
+
+        assertIndexScanOnly(explain(query), "aggregate_sequence");
+    }
+
+    @Test
+    void testAggregateReplayUpToATimeIsNotSortedInMemory() {
+        Query query = aggregateReplayQuery(Criteria.where("aggregateId").is("42")
+                .and("deleted").is(false)
+                .and("timestamp").lte(T0.plusSeconds(1500)));
+
+        assertIndexScanOnly(explain(query), "live_aggregate_timestamp_id");
+    }
+
+    @Test
+    void testAggregateReplayAfterASequenceIsNotSortedInMemory() {
+        Query query = aggregateReplayQuery(Criteria.where("aggregateId").is("42")
+                .and("deleted").is(false)
+                .and("sequence").gt(5L)
+                .and("timestamp").lte(T0.plusSeconds(1500)));
+
+        assertIndexScanOnly(explain(query), "live_aggregate_timestamp_id");
+    }
+
+    /**
+     * Mirrors the per-aggregate replay queries of {@link EventRepository}.
+     */
+    private static Query aggregateReplayQuery(Criteria criteria) {
+        Query query = new Query(criteria).with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("id")));
+        Document.parse(EventRepositoryCustomImpl.REPLAY_FIELDS).keySet().forEach(field -> query.fields().include(field));
+        return query;
+    }
+
+    private static Document explain(Query query) {
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), eventEntity);
+        Document sort = queryMapper.getMappedSort(query.getSortObject(), eventEntity);
+        Document find = new Document("find", mongoTemplate.getCollectionName(Event.class))
+                .append("filter", filter)
+                .append("sort", sort);
+        if (query.getLimit() > 0) {
+            find.append("limit", query.getLimit());
+        }
+        if (!query.getFieldsObject().isEmpty()) {
+            find.append("projection", query.getFieldsObject());
+        }
+        Document explain = new Document("explain", find).append("verbosity", "queryPlanner");
+        return mongoTemplate.getDb().runCommand(explain)
+                .get("queryPlanner", Document.class)
+                .get("winningPlan", Document.class);
+    }
+
+    private static void assertIndexScanOnly(Document plan, String indexName) {
+        List<Document> stages = new ArrayList<>();
+        collectStages(plan, stages);
+        List<String> stageNames = stages.stream().map(stage -> stage.getString("stage")).toList();
+
+        assertFalse(stageNames.contains("COLLSCAN"), () -> "Collection scan in " + plan.toJson());
+        assertFalse(stageNames.contains("SORT"), () -> "In-memory sort in " + plan.toJson());
+        assertTrue(stages.stream().anyMatch(stage -> indexName.equals(stage.getString("indexName"))),
+                () -> "Expected index " + indexName + " in " + plan.toJson());
+    }
+
+    private static void collectStages(Object node, List<Document> stages) {
+        if (node instanceof Document document) {
+            if (document.containsKey("stage")) {
+                stages.add(document);
+            }
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.personal.kafkamavenrepo.Persistence.Postgres;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+/**
+ * Runs a shadow load end to end on Postgres: the change table is created and loaded, the shadow
+ * table is built and swapped in for users, and the identity is resynced.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class UserBatchWriterShadowTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static UserBatchWriter writer;
+
+    @BeforeAll
+    static void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        writer = new UserBatchWriter(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void createUsers() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS users, users_shadow, users_shadow_changes, users_retired");
+        // As Hibernate creates it, with an expression index for the definition rewrite
+        jdbcTemplate.execute("CREATE TABLE users (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "username varchar(255), email varchar(255), created_at timestamp(6), created_date timestamp(6), " +
+                "updated_date timestamp(6), deleted boolean NOT NULL, event_sequence bigint)");
+        jdbcTemplate.execute("CREATE INDEX users_email_idx ON users (lower(email)) WHERE NOT deleted");
+        jdbcTemplate.update("INSERT INTO users (username, deleted) VALUES ('alice', false), ('bob', false)");
+    }
+
+    @Test
+    void testShadowTableIsLoadedAndSwappedInWithTheIndexesAndIdentityOfUsers() {
+        writer.createShadowChanges();
+        writer.appendShadowChanges(List.of(user(1L, "alice", 1L), user(1L, "alicia", 2L), user(5L, "carol", 1L)),
+                List.of(2L), List.of(user(null, "dave", null)), 100);
+        writer.buildShadow();
+
+        // Only the rewritten copies: the indexes of users are not brought along by CREATE TABLE LIKE
+        assertEquals(List.of("users_email_idx_shadow", "users_pkey_shadow"), jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'users_shadow' ORDER BY indexname", String.class));
+
+        transactionTemplate.executeWithoutResult(status -> writer.swapInShadow(() -> {}));
+        writer.resyncIdentity();
+
+        assertEquals(Map.of(1L, "alicia", 5L, "carol", 6L, "dave"), usernamesById());
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('users_shadow')", String.class));
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('users_shadow_changes')", String.class));
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('users_retired')", String.class));
+        assertEquals(List.of(
+                        "CREATE INDEX users_email_idx ON public.users USING btree (lower((email)::text)) WHERE (NOT deleted)",
+                        "CREATE UNIQUE INDEX users_pkey ON public.users USING btree (id)"),
+                indexDefinitions("users"));
+        assertEquals("public.users_id_seq",
+                jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('users', 'id')", String.class));
+        assertThrows(DuplicateKeyException.class,
+                () -> jdbcTemplate.update("INSERT INTO users (id, username, deleted) VALUES (5, 'mallory', false)"));
+        assertEquals(7L, insertUser("erin"));
+    }
+
+    @Test
+    void testSwapCarriesOverWritesMadeAfterTheShadowTableWasBuilt() {
+        writer.createShadowChanges();
+        writer.appendShadowChanges(List.of(user(1L, "alice", 1L), user(2L, "bob", 1L)), List.of(), List.of(), 100);
+        writer.buildShadow();
+        // Written to the live table once the shadow one is built; its event arrives under the lock
+        long created = insertUser("carol");
+
+        transactionTemplate.executeWithoutResult(status -> writer.swapInShadow(
+                () -> writer.writeShadow(List.of(user(created, "carol", 1L)), List.of(2L), List.of(), 100)));
+        writer.resyncIdentity();
+
+        assertEquals(Map.of(1L, "alice", created, "carol"), usernamesById());
+        assertEquals(created + 1, insertUser("dave"));
+    }
+
+    @Test
+    void testLiveWritesMissingFromTheReplayAreCarriedOverBySwap() {
+        writer.createShadowChanges();
+        // The replay read the creation of bob only, and nothing of alice's rename
+        writer.appendShadowChanges(List.of(user(1L, "alice", 1L), user(2L, "bob", 1L)), List.of(), List.of(), 100);
+        writer.buildShadow();
+        // Applied live by the consumer, from events stored after the replay went past them
+        jdbcTemplate.update("UPDATE users SET username = 'alicia', event_sequence = 2 WHERE id = 1");
+        jdbcTemplate.update("DELETE FROM users WHERE id = 2");
+        long created = insertUser("carol");
+        // Replayed further than the live table got
+        writer.writeShadow(List.of(user(created, "caroline", 2L)), List.of(), List.of(), 100);
+        jdbcTemplate.update("UPDATE users SET event_sequence = 1 WHERE id = ?", created);
+
+        transactionTemplate.executeWithoutResult(status -> writer.swapInShadow(writer::carryOverLiveChanges));
+
+        assertEquals(Map.of(1L, "alicia", created, "caroline"), usernamesById());
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('users_live_changes')", String.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_trigger WHERE tgname = 'users_live_changes'", Integer.class));
+    }
+
+    private static List<String> indexDefinitions(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT indexdef FROM pg_indexes WHERE tablename = ? ORDER BY indexname", String.class, table);
+    }
+
+    private static Map<Long, String> usernamesById() {
+        return jdbcTemplate.query("SELECT id, username FROM users", rs -> {
+            Map<Long, String> usernames = new HashMap<>();
+            while (rs.next()) {
+                usernames.put(rs.getLong("id"), rs.getString("username"));
+            }
+            return usernames;
+        });
+    }
+
+    private static long insertUser(String username) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, deleted) VALUES (?, false) RETURNING id", Long.class, username);
+    }
+}
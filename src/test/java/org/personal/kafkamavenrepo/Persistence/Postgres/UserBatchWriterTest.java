@@ -0,0 +1,32 @@
+package org.personal.kafkamavenrepo.Persistence.Postgres;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserBatchWriterTest {
+
+    @Test
+    void testShadowIndexIsCreatedOnTheShadowTableUnderItsOwnName() {
+        String definition = UserBatchWriter.shadowIndexDefinition(
+                "CREATE UNIQUE INDEX users_pkey ON public.users USING btree (id)", "users_pkey", "users_pkey_shadow");
+
+        assertEquals("CREATE UNIQUE INDEX users_pkey_shadow ON public.users_shadow USING btree (id)", definition);
+    }
+
+    @Test
+    void testShadowIndexKeepsColumnsAndPredicate() {
+        String definition = UserBatchWriter.shadowIndexDefinition(
+                "CREATE INDEX users_email_idx ON users USING btree (lower((email)::text)) WHERE (NOT deleted)",
+                "users_email_idx", "users_email_idx_shadow");
+
+        assertEquals("CREATE INDEX users_email_idx_shadow ON users_shadow USING btree (lower((email)::text)) WHERE (NOT deleted)",
+                definition);
+    }
+
+    @Test
+    void testUnexpectedIndexDefinitionIsRejected() {
+        assertThrows(IllegalStateException.class, () -> UserBatchWriter.shadowIndexDefinition(
+                "CREATE INDEX other_idx ON public.accounts USING btree (id)", "other_idx", "other_idx_shadow"));
+    }
+}
@@ -0,0 +1,129 @@
+package org.personal.kafkamavenrepo.Producer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.Outbox.OutboxEvent;
+import org.personal.kafkamavenrepo.Persistence.Postgres.OutboxEventRepository;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OutboxRelayTest {
+
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    private OutboxEventRepository outboxEventRepository;
+    private Producer producer;
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        producer = mock(Producer.class);
+        TransactionOperations transactions = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                inTransaction.set(true);
+                try {
+                    return action.doInTransaction(new SimpleTransactionStatus());
+                } finally {
+                    inTransaction.set(false);
+                }
+            }
+        };
+        outboxRelay = new OutboxRelay(outboxEventRepository, producer, transactions, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testBatchIsMarkedPublishedOnceEverySendIsAcknowledged() {
+        when(outboxEventRepository.findClaimable(any(), any()))
+                .thenReturn(List.of(outboxEvent(1L, "a"), outboxEvent(2L, "b")));
+        when(producer.sendAsync(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(2, outboxRelay.relay());
+
+        verify(producer).sendAsync(eq("a"), argThat(event -> "event-1".equals(event.getId())));
+        verify(producer).sendAsync(eq("b"), argThat(event -> "event-2".equals(event.getId())));
+        verify(outboxEventRepository).markPublished(eq(List.of(1L, 2L)), any());
+    }
+
+    @Test
+    void testFailedSendReleasesTheBatchForTheNextRun() {
+        when(outboxEventRepository.findClaimable(any(), any()))
+                .thenReturn(List.of(outboxEvent(1L, "a"), outboxEvent(2L, "b")));
+        when(producer.sendAsync(eq("a"), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(producer.sendAsync(eq("b"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertEquals(0, outboxRelay.relay());
+
+        verify(outboxEventRepository, never()).markPublished(any(), any());
+        verify(outboxEventRepository).releaseClaims(List.of(1L, 2L));
+    }
+
+    @Test
+    void testBatchIsClaimedInATransactionAndSentOutsideIt() {
+        when(outboxEventRepository.findClaimable(any(), any())).thenAnswer(invocation -> {
+            assertTrue(inTransaction.get(), "Pending entries are only locked within a transaction");
+            return List.of(outboxEvent(1L, "a"));
+        });
+        when(outboxEventRepository.claim(any(), any())).thenAnswer(invocation -> {
+            assertTrue(inTransaction.get(), "Entries are claimed before their locks are released");
+            return 1;
+        });
+        when(producer.sendAsync(anyString(), any())).thenAnswer(invocation -> {
+            assertFalse(inTransaction.get(), "No lock or connection is held while sending");
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(1, outboxRelay.relay());
+
+        InOrder inOrder = inOrder(outboxEventRepository, producer);
+        inOrder.verify(outboxEventRepository).claim(eq(List.of(1L)), any());
+        inOrder.verify(producer).sendAsync(eq("a"), any());
+        inOrder.verify(outboxEventRepository).markPublished(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void testClaimsOlderThanTheClaimTimeoutAreTakenOver() {
+        ReflectionTestUtils.setField(outboxRelay, "claimTimeoutMillis", 60000L);
+        when(outboxEventRepository.findClaimable(any(), any())).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+
+        outboxRelay.relay();
+
+        ArgumentCaptor<LocalDateTime> claimExpiry = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxEventRepository).findClaimable(claimExpiry.capture(), any());
+        assertFalse(claimExpiry.getValue().isAfter(LocalDateTime.now().minusSeconds(60)));
+        assertFalse(claimExpiry.getValue().isBefore(before.minusSeconds(60)));
+    }
+
+    private static OutboxEvent outboxEvent(Long id, String key) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setId(id);
+        outboxEvent.setAggregateKey(key);
+        Event event = new Event();
+        event.setId("event-" + id);
+        event.setType(EventType.CREATION);
+        outboxEvent.setPayload(JsonUtil.serialize(event));
+        return outboxEvent;
+    }
+}
@@ -0,0 +1,158 @@
+package org.personal.kafkamavenrepo.Producer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Service.EventUsers;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+public class ProducerTest {
+
+    private KafkaTemplate<String, Event> kafkaTemplate;
+    private final List<CompletableFuture<SendResult<String, Event>>> pendingSends = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(anyString(), any(), any(Event.class))).thenAnswer(invocation -> {
+            CompletableFuture<SendResult<String, Event>> future = new CompletableFuture<>();
+            pendingSends.add(future);
+            return future;
+        });
+    }
+
+    @Test
+    void testBrokerFailureSurfacesInTheReturnedFuture() {
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10, new SimpleMeterRegistry());
+
+        CompletableFuture<SendResult<String, Event>> result = producer.sendEventAsync(EventType.CREATION, user(1L, "user1"));
+        assertEquals(1, producer.getInFlightCount());
+
+        pendingSends.get(0).completeExceptionally(new IllegalStateException("broker down"));
+
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(0, producer.getInFlightCount());
+    }
+
+    @Test
+    void testSendLatencyIsRecordedPerTypeAndOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10, registry);
+
+        producer.sendEventAsync(EventType.CREATION, user(1L, "user1"));
+        producer.sendEventAsync(EventType.CREATION, user(2L, "user2"));
+        producer.sendEventAsync(EventType.DELETION, user(3L, "user3"));
+        assertEquals(3.0, registry.get("event.producer.in-flight").gauge().value());
+
+        pendingSends.get(0).complete(null);
+        pendingSends.get(1).complete(null);
+        pendingSends.get(2).completeExceptionally(new IllegalStateException("broker down"));
+
+        assertEquals(2, registry.get("event.producer.send").tags("type", "CREATION", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("event.producer.send").tags("type", "DELETION", "outcome", "failure").timer().count());
+        assertEquals(0, registry.get("event.producer.send").tags("type", "EDITION", "outcome", "success").timer().count());
+        assertEquals(0.0, registry.get("event.producer.in-flight").gauge().value());
+    }
+
+    @Test
+    void testSendEventsPipelinesTheWholeBurst() {
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10, new SimpleMeterRegistry());
+
+        CompletableFuture<List<SendResult<String, Event>>> burst =
+                producer.sendEvents(EventType.EDITION, List.of(user(1L, "user1"), user(2L, "user2"), user(3L, "user3")));
+
+        // Every record is handed to Kafka before any acknowledgement arrives
+        verify(kafkaTemplate, times(3)).send(anyString(), anyString(), any(Event.class));
+        assertFalse(burst.isDone());
+
+        pendingSends.forEach(future -> future.complete(null));
+        assertEquals(3, burst.join().size());
+    }
+
+    @Test
+    void testCallerBlocksWhenInFlightLimitIsReached() throws Exception {
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 1, new SimpleMeterRegistry());
+        producer.sendEventAsync(EventType.CREATION, user(1L, "user1"));
+
+        CountDownLatch secondSent = new CountDownLatch(1);
+        Thread caller = new Thread(() -> {
+            producer.sendEventAsync(EventType.CREATION, user(2L, "user2"));
+            secondSent.countDown();
+        });
+        caller.start();
+
+        assertFalse(secondSent.await(200, TimeUnit.MILLISECONDS), "Second send should wait for a free slot");
+        pendingSends.get(0).complete(null);
+        assertTrue(secondSent.await(5, TimeUnit.SECONDS), "Second send should proceed once the first is acknowledged");
+        caller.join();
+    }
+
+    @Test
+    void testEventIsWrittenOnceWithAnEmbeddedPayload() {
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10000, new SimpleMeterRegistry());
+        producer.sendEventAsync(EventType.EDITION, user(7L, "user7"));
+
+        ArgumentCaptor<Event> sent = ArgumentCaptor.forClass(Event.class);
+        verify(kafkaTemplate).send(anyString(), eq("7"), sent.capture());
+        String message = JsonUtil.serialize(sent.getValue());
+        assertFalse(message.contains("\\\""), "User should not be embedded as escaped JSON text");
+
+        Event event = JsonUtil.deserialize(message, Event.class);
+        assertEquals(Event.CURRENT_VERSION, event.getVersion());
+        assertEquals("7", event.getAggregateId());
+        assertEquals("user7", EventUsers.resolveUser(event).getUsername());
+    }
+
+    @Test
+    void testEventsSentDirectlyHaveTheirOwnId() {
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10000, new SimpleMeterRegistry());
+        producer.sendEventAsync(EventType.CREATION, user(1L, "user1"));
+        producer.sendEventAsync(EventType.CREATION, user(2L, "user2"));
+
+        ArgumentCaptor<Event> sent = ArgumentCaptor.forClass(Event.class);
+        verify(kafkaTemplate, times(2)).send(anyString(), anyString(), sent.capture());
+        List<String> ids = sent.getAllValues().stream().map(Event::getId).toList();
+        assertTrue(ids.stream().allMatch(Objects::nonNull));
+        assertNotEquals(ids.get(0), ids.get(1));
+    }
+
+    @Test
+    void testEventAboutAUserWithoutAnIdIsRejected() {
+        Producer producer = new Producer(kafkaTemplate, new UserIdKeyResolver(), 10000, new SimpleMeterRegistry());
+
+        assertThrows(IllegalArgumentException.class, () -> producer.sendEventAsync(EventType.CREATION, user(null, "user")));
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void testVersionOneEventsAreStillReadable() {
+        String legacy = "{\"type\":\"CREATION\",\"description\":\"{\\\"id\\\":3,\\\"username\\\":\\\"user3\\\"}\"}";
+
+        Event event = JsonUtil.deserialize(legacy, Event.class);
+
+        assertEquals(0, event.getVersion());
+        assertEquals(3L, EventUsers.resolveUser(event).getId());
+        assertEquals("user3", EventUsers.resolveUser(event).getUsername());
+    }
+}
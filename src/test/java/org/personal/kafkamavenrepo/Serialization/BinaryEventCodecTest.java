@@ -0,0 +1,192 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryEventCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSchemaRegistry schemaRegistry;
+    private BinaryEventCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        schemaRegistry = new FileSchemaRegistry(tempDir.resolve("registry.json"));
+        codec = new BinaryEventCodec(schemaRegistry);
+    }
+
+    @Test
+    void testRoundTripKeepsEveryField() {
+        Event event = fullEvent();
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] data = codec.encode(event, headers);
+        Event decoded = codec.decode(data, headers);
+
+        assertEquals(JsonUtil.serialize(event), JsonUtil.serialize(decoded));
+        assertEquals(codec.getSchemaId(), ByteBuffer.wrap(headers.lastHeader(EventCodec.SCHEMA_ID_HEADER).value()).getLong());
+        assertTrue(data.length < JsonUtil.serializeToBytes(event).length / 2,
+                "Binary " + data.length + " bytes vs JSON " + JsonUtil.serializeToBytes(event).length);
+    }
+
+    @Test
+    void testRoundTripKeepsNulls() {
+        Event event = new Event();
+        RecordHeaders headers = new RecordHeaders();
+
+        Event decoded = codec.decode(codec.encode(event, headers), headers);
+
+        assertNull(decoded.getId());
+        assertNull(decoded.getType());
+        assertNull(decoded.getPayload());
+        assertNull(decoded.getSequence());
+        assertNull(decoded.getTimestamp());
+    }
+
+    @Test
+    void testSchemaIsRegisteredAndSurvivesARestart() {
+        FileSchemaRegistry reloaded = new FileSchemaRegistry(tempDir.resolve("registry.json"));
+
+        assertTrue(reloaded.findSchema(codec.getSchemaId()).isPresent());
+        assertEquals(codec.getSchemaId(), new BinaryEventCodec(reloaded).getSchemaId());
+    }
+
+    @Test
+    void testUnknownSchemaIdIsRejected() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = codec.encode(fullEvent(), headers);
+        headers.remove(EventCodec.SCHEMA_ID_HEADER);
+        headers.add(EventCodec.SCHEMA_ID_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(42L).array());
+
+        assertThrows(SerializationException.class, () -> codec.decode(data, headers));
+    }
+
+    @Test
+    void testEventWrittenWithACompatibleSchemaIsResolved() throws IOException {
+        // A later schema: a new event field with a default, a new user field and a new event type
+        long writerSchemaId = schemaRegistry.register(BinaryEventCodec.SUBJECT, readerSchema()
+                .replace("\"symbols\": [\"CREATION\",", "\"symbols\": [\"ARCHIVED\", \"CREATION\",")
+                .replace("{\"name\": \"description\"",
+                        "{\"name\": \"source\", \"type\": [\"null\", \"string\"], \"default\": null},\n    {\"name\": \"description\"")
+                .replace("{\"name\": \"email\"",
+                        "{\"name\": \"roles\", \"type\": {\"type\": \"array\", \"items\": \"string\"}},\n        {\"name\": \"email\""));
+        Event expected = fullEvent();
+        expected.setType(EventType.EDITION);
+        RecordHeaders headers = schemaIdHeaders(writerSchemaId);
+
+        Event decoded = codec.decode(writeEvolved(expected, 3), headers);
+
+        assertEquals(JsonUtil.serialize(expected), JsonUtil.serialize(decoded));
+        assertThrows(SerializationException.class, () -> codec.decode(writeEvolved(expected, 0), headers));
+    }
+
+    @Test
+    void testSchemaWithoutAFieldTheReaderNeedsIsRejected() throws IOException {
+        long writerSchemaId = schemaRegistry.register(BinaryEventCodec.SUBJECT,
+                readerSchema().replace("{\"name\": \"version\", \"type\": \"int\"},", ""));
+
+        SerializationException e = assertThrows(SerializationException.class,
+                () -> codec.decode(codec.encode(fullEvent(), new RecordHeaders()), schemaIdHeaders(writerSchemaId)));
+        assertTrue(e.getMessage().contains("Event.version"), e.getMessage());
+    }
+
+    @Test
+    void testTruncatedValueIsRejected() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = codec.encode(fullEvent(), headers);
+        byte[] truncated = Arrays.copyOf(data, data.length - 3);
+
+        assertThrows(SerializationException.class, () -> codec.decode(truncated, headers));
+    }
+
+    private static String readerSchema() throws IOException {
+        try (InputStream in = new ClassPathResource(BinaryEventCodec.SCHEMA_RESOURCE).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static RecordHeaders schemaIdHeaders(long schemaId) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(EventCodec.SCHEMA_ID_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(schemaId).array());
+        return headers;
+    }
+
+    /**
+     * Writes an event as the later schema of {@link #testEventWrittenWithACompatibleSchemaIsResolved},
+     * with the event type as its index in that schema's symbols.
+     */
+    private static byte[] writeEvolved(Event event, int typeIndex) {
+        User user = event.getPayload();
+        BinaryWriter writer = new BinaryWriter(256);
+        writer.writeNullableString(event.getId());
+        writer.writePresent(typeIndex);
+        writer.writeInt(typeIndex);
+        writer.writeNullableString("import");
+        writer.writeNullableString(event.getDescription());
+        writer.writeInt(event.getVersion());
+        writer.writePresent(user);
+        writer.writeNullableLong(user.getId());
+        writer.writeNullableString(user.getUsername());
+        writer.writeLong(2);
+        writer.writeString("admin");
+        writer.writeString("auditor");
+        writer.writeLong(0);
+        writer.writeNullableString(user.getEmail());
+        writer.writeNullableTimestamp(user.getCreatedAt());
+        writer.writeNullableTimestamp(user.getCreatedDate());
+        writer.writeNullableTimestamp(user.getUpdatedDate());
+        writer.writeBoolean(user.isDeleted());
+        writer.writeNullableString(event.getAggregateId());
+        writer.writeNullableLong(event.getSequence());
+        writer.writeNullableTimestamp(event.getTimestamp());
+        writer.writeNullableTimestamp(event.getCreatedDate());
+        writer.writeNullableTimestamp(event.getUpdatedDate());
+        writer.writeBoolean(event.isDeleted());
+        return writer.toByteArray();
+    }
+
+    static Event fullEvent() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 17, 10, 30, 15, 123456789);
+        User user = new User();
+        user.setId(-9L);
+        user.setUsername("ünïcode-user");
+        user.setEmail("user@example.com");
+        user.setCreatedAt(LocalDateTime.of(1960, 1, 1, 0, 0));
+        user.setCreatedDate(now);
+        user.setUpdatedDate(now);
+
+        Event event = new Event();
+        event.setId("event-1");
+        event.setType(EventType.INTEGRATION);
+        event.setVersion(Event.CURRENT_VERSION);
+        event.setPayload(user);
+        event.setAggregateId("9");
+        event.setSequence(Long.MAX_VALUE);
+        event.setTimestamp(now);
+        event.setCreatedDate(now);
+        event.setUpdatedDate(now);
+        event.setDeleted(true);
+        return event;
+    }
+}
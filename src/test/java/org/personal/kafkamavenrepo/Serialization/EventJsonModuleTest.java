@@ -0,0 +1,76 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Service.EventUsers;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventJsonModuleTest {
+
+    // What JsonUtil produced before the hand-written codecs
+    private final ObjectMapper beanMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void testWritesTheSameDocumentAsTheBeanSerializers() throws Exception {
+        Event full = BinaryEventCodecTest.fullEvent();
+        Event empty = new Event();
+        Event partial = new Event();
+        partial.setType(EventType.CREATION);
+        partial.setPayload(new User());
+
+        for (Event event : new Event[]{full, empty, partial}) {
+            assertEquals(beanMapper.writeValueAsString(event), JsonUtil.serialize(event));
+        }
+    }
+
+    @Test
+    void testWritesEveryTimePrecisionLikeTheIsoFormatter() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2024, 2, 29, 0, 0);
+        for (LocalDateTime time : new LocalDateTime[]{base, base.withNano(1), base.withNano(120_000_000),
+                base.withNano(123_456_000), base.withSecond(59).withNano(999_999_999), base.withYear(12345),
+                LocalDateTime.MIN, LocalDateTime.MAX}) {
+            assertEquals(beanMapper.writeValueAsString(time), JsonUtil.serialize(time), time.toString());
+        }
+    }
+
+    @Test
+    void testReadsWhatTheBeanSerializersWrite() throws Exception {
+        Event full = BinaryEventCodecTest.fullEvent();
+
+        Event decoded = JsonUtil.deserialize(beanMapper.writeValueAsString(full), Event.class);
+
+        assertEquals(beanMapper.writeValueAsString(full), beanMapper.writeValueAsString(decoded));
+    }
+
+    @Test
+    void testReadsLegacyAndCoercedValues() {
+        Event event = JsonUtil.deserialize("{\"type\":\"EDITION\",\"description\":\"{\\\"id\\\":7,\\\"username\\\":\\\"u\\\"}\","
+                + "\"version\":\"1\",\"sequence\":\"12\",\"timestamp\":[2024,1,2,3,4,5],\"deleted\":null}", Event.class);
+
+        assertEquals(EventType.EDITION, event.getType());
+        assertEquals(1, event.getVersion());
+        assertEquals(12L, event.getSequence());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5), event.getTimestamp());
+        assertFalse(event.isDeleted());
+        assertEquals("u", EventUsers.resolveUser(event).getUsername());
+    }
+
+    @Test
+    void testRejectsUnknownFieldsAndValues() {
+        assertThrows(RuntimeException.class, () -> JsonUtil.deserialize("{\"unknown\":1}", Event.class));
+        assertThrows(RuntimeException.class, () -> JsonUtil.deserialize("{\"type\":\"RENAME\"}", Event.class));
+        assertThrows(RuntimeException.class, () -> JsonUtil.deserialize("{\"payload\":{\"id\":{}}}", Event.class));
+        assertThrows(RuntimeException.class, () -> JsonUtil.deserialize("[]", Event.class));
+    }
+}
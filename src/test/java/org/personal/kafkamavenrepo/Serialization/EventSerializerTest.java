@@ -0,0 +1,125 @@
+package org.personal.kafkamavenrepo.Serialization;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Service.EventUsers;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventSerializerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EventSerializer serializer;
+    private EventDeserializer deserializer;
+
+    @BeforeEach
+    void setUp() {
+        BinaryEventCodec binary = new BinaryEventCodec(new FileSchemaRegistry(tempDir.resolve("registry.json")));
+        serializer = EventSerializer.withTopics(new JsonEventCodec(), binary, Set.of("binary-topic"));
+        deserializer = new EventDeserializer(new JsonEventCodec(), List.of(binary));
+    }
+
+    @Test
+    void testEachTopicIsWrittenInItsFormat() {
+        Event event = BinaryEventCodecTest.fullEvent();
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        RecordHeaders binaryHeaders = new RecordHeaders();
+
+        byte[] json = serializer.serialize("json-topic", jsonHeaders, event);
+        byte[] binary = serializer.serialize("binary-topic", binaryHeaders, event);
+
+        assertEquals("json", format(jsonHeaders));
+        assertEquals("binary", format(binaryHeaders));
+        assertNull(jsonHeaders.lastHeader(EventCodec.SCHEMA_ID_HEADER));
+        assertEquals(JsonUtil.serialize(event), JsonUtil.serialize(deserializer.deserialize("json-topic", jsonHeaders, json)));
+        assertEquals(JsonUtil.serialize(event), JsonUtil.serialize(deserializer.deserialize("binary-topic", binaryHeaders, binary)));
+    }
+
+    @Test
+    void testValuesAreDecodedInPlaceFromTheFetchBuffer() {
+        Event event = BinaryEventCodecTest.fullEvent();
+        for (String topic : List.of("json-topic", "binary-topic")) {
+            RecordHeaders headers = new RecordHeaders();
+            ByteBuffer value = inFetchBuffer(serializer.serialize(topic, headers, event));
+            int position = value.position();
+
+            Event decoded = new InPlaceErrorHandlingDeserializer<>(deserializer).deserialize(topic, headers, value);
+
+            assertEquals(JsonUtil.serialize(event), JsonUtil.serialize(decoded));
+            assertEquals(position, value.position());
+        }
+    }
+
+    @Test
+    void testUnreadableBufferBecomesNullWithTheFailureRecorded() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(EventCodec.FORMAT_HEADER, "binary".getBytes(StandardCharsets.UTF_8));
+
+        Event decoded = new InPlaceErrorHandlingDeserializer<>(deserializer)
+                .deserialize("binary-topic", headers, inFetchBuffer(new byte[]{1, 2, 3}));
+
+        assertNull(decoded);
+        assertNotNull(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+    }
+
+    @Test
+    void testDecodeTimeAndFailuresAreRecordedPerFormatOnce() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        deserializer.bindTo(registry);
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        ByteBuffer json = inFetchBuffer(serializer.serialize("json-topic", jsonHeaders, BinaryEventCodecTest.fullEvent()));
+        RecordHeaders brokenHeaders = new RecordHeaders();
+        brokenHeaders.add(EventCodec.FORMAT_HEADER, "binary".getBytes(StandardCharsets.UTF_8));
+
+        InPlaceErrorHandlingDeserializer<Event> errorHandling = new InPlaceErrorHandlingDeserializer<>(deserializer);
+        errorHandling.deserialize("json-topic", jsonHeaders, json);
+        errorHandling.deserialize("binary-topic", brokenHeaders, inFetchBuffer(new byte[]{1, 2, 3}));
+
+        assertEquals(1, registry.get("event.consumer.deserialize").tag("format", "json").timer().count());
+        assertEquals(0, registry.get("event.consumer.deserialize").tag("format", "binary").timer().count());
+        // The error handler's retry on a copy must not count the failure a second time
+        assertEquals(1.0, registry.get("event.consumer.deserialize.failures").tag("format", "binary").counter().count());
+    }
+
+    @Test
+    void testRecordsWithoutFormatHeaderAreReadAsJson() {
+        byte[] legacy = "{\"type\":\"CREATION\",\"description\":\"{\\\"id\\\":1}\"}".getBytes(StandardCharsets.UTF_8);
+
+        Event event = deserializer.deserialize("json-topic", new RecordHeaders(), legacy);
+
+        assertEquals(1L, EventUsers.resolveUser(event).getId());
+    }
+
+    @Test
+    void testUnknownFormatIsRejected() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(EventCodec.FORMAT_HEADER, "protobuf".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("topic", headers, new byte[]{1}));
+    }
+
+    private static ByteBuffer inFetchBuffer(byte[] value) {
+        byte[] batch = new byte[value.length + 16];
+        System.arraycopy(value, 0, batch, 8, value.length);
+        return ByteBuffer.wrap(batch, 8, value.length);
+    }
+
+    private static String format(RecordHeaders headers) {
+        return new String(headers.lastHeader(EventCodec.FORMAT_HEADER).value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,329 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.ReplayCheckpoint;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Mongo.ReplayCheckpointRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserBatchWriter;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.describedEvent;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+import static org.personal.kafkamavenrepo.TestFixtures.integrationEvent;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+@ExtendWith(MockitoExtension.class)
+public class BusinessRebuildServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private EventService eventService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ReplayCheckpointRepository checkpointRepository;
+
+    @Mock
+    private UserBatchWriter userBatchWriter;
+
+    @Mock
+    private SnapshotService snapshotService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BusinessRebuildService businessRebuildService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        businessRebuildService = new BusinessRebuildService(eventService, userRepository, checkpointRepository,
+                userBatchWriter, snapshotService, meterRegistry, 100000);
+        ReflectionTestUtils.setField(businessRebuildService, "shadowTable", false);
+    }
+
+    @Test
+    void testRebuildReadsPagesUntilLogIsExhausted() {
+        Event first = integrationEvent("a", T0);
+        Event second = integrationEvent("b", T0.plusSeconds(1));
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), anyInt())).thenReturn(List.of(first));
+        when(eventService.getEventsAfter(eq(T0), eq("a"), anyInt())).thenReturn(List.of(second));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(1)), eq("b"), anyInt())).thenReturn(List.of());
+
+        businessRebuildService.rebuildFromEvents();
+
+        verify(userRepository).deleteAll();
+        verify(eventService, never()).getAllEvents();
+        verify(checkpointRepository).deleteById(BusinessRebuildService.REBUILD_CHECKPOINT_ID);
+        verify(userBatchWriter).resyncIdentity();
+    }
+
+    @Test
+    void testRebuildResumesFromCheckpointWithoutClearingState() {
+        ReplayCheckpoint checkpoint = new ReplayCheckpoint(BusinessRebuildService.REBUILD_CHECKPOINT_ID);
+        checkpoint.advanceTo(integrationEvent("a", T0));
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.of(checkpoint));
+        when(eventService.getEventsAfter(eq(T0), eq("a"), anyInt())).thenReturn(List.of());
+
+        businessRebuildService.rebuildFromEvents();
+
+        verify(userRepository, never()).deleteAll();
+        verify(eventService, never()).getEventsAfter(isNull(), isNull(), anyInt());
+    }
+
+    @Test
+    void testRebuildReplaysOnlyTheTailAfterTheLatestSnapshot() {
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setId("snapshot-1");
+        snapshot.setLastTimestamp(T0);
+        snapshot.setLastEventId("a");
+        snapshot.setAppliedEvents(1);
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.empty());
+        when(snapshotService.restoreLatestSnapshot()).thenReturn(Optional.of(snapshot));
+        when(snapshotService.isEnabled()).thenReturn(true);
+        when(eventService.getEventsAfter(eq(T0), eq("a"), anyInt())).thenReturn(List.of(integrationEvent("b", T0.plusSeconds(1))));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(1)), eq("b"), anyInt())).thenReturn(List.of());
+
+        businessRebuildService.rebuildFromEvents();
+
+        verify(eventService, never()).getEventsAfter(isNull(), isNull(), anyInt());
+        verify(snapshotService).takeSnapshot(argThat(position ->
+                "b".equals(position.getLastEventId()) && position.getAppliedEvents() == 2));
+    }
+
+    @Test
+    void testShadowRebuildLeavesTheLiveTableAloneUntilTheSwap() {
+        ReflectionTestUtils.setField(businessRebuildService, "shadowTable", true);
+        Event first = integrationEvent("a", T0);
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.empty());
+        when(snapshotService.restoreLatestSnapshot(any())).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), anyInt())).thenReturn(List.of(first));
+        when(eventService.getEventsAfter(eq(T0), eq("a"), anyInt())).thenReturn(List.of());
+
+        businessRebuildService.rebuildFromEvents();
+
+        InOrder inOrder = inOrder(userBatchWriter, checkpointRepository);
+        inOrder.verify(userBatchWriter).createShadowChanges();
+        inOrder.verify(checkpointRepository).save(argThat(ReplayCheckpoint::isShadowTable));
+        inOrder.verify(userBatchWriter).buildShadow();
+        inOrder.verify(userBatchWriter).swapInShadow(any());
+        inOrder.verify(checkpointRepository).deleteById(BusinessRebuildService.REBUILD_CHECKPOINT_ID);
+        verify(userRepository, never()).deleteAll();
+        verify(snapshotService, never()).restoreLatestSnapshot();
+    }
+
+    @Test
+    void testEventsStoredDuringTheShadowBuildAreAppliedUnderTheSwapLock() {
+        ReflectionTestUtils.setField(businessRebuildService, "shadowTable", true);
+        Event late = event("b", EventType.CREATION, user(7L, "late"), 1L);
+        late.setTimestamp(T0.plusSeconds(1));
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.empty());
+        when(snapshotService.restoreLatestSnapshot(any())).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), anyInt())).thenReturn(List.of(integrationEvent("a", T0)));
+        // Nothing new when the replay and the first catch-up read, then one event just before the lock
+        when(eventService.getEventsAfter(eq(T0), eq("a"), anyInt())).thenReturn(List.of(), List.of(), List.of(late));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(1)), eq("b"), anyInt())).thenReturn(List.of());
+        List<String> written = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<Collection<User>>getArgument(0).forEach(user -> written.add(user.getUsername()));
+            return null;
+        }).when(userBatchWriter).writeShadow(any(), any(), any(), anyInt());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(userBatchWriter).swapInShadow(any());
+
+        businessRebuildService.rebuildFromEvents();
+
+        assertEquals(List.of("late"), written);
+        InOrder inOrder = inOrder(userBatchWriter);
+        inOrder.verify(userBatchWriter).swapInShadow(any());
+        inOrder.verify(userBatchWriter).writeShadow(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testLiveWritesWhoseEventsAreStoredBehindTheCheckpointAreCarriedOverUnderTheSwapLock() {
+        ReflectionTestUtils.setField(businessRebuildService, "shadowTable", true);
+        // The replay went past T0 + 1s before the event of T0 + 0.5s was stored: it is never read,
+        // only the live table, which the consumer applied it to, has it
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.empty());
+        when(snapshotService.restoreLatestSnapshot(any())).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), anyInt())).thenReturn(List.of(integrationEvent("b", T0.plusSeconds(1))));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(1)), eq("b"), anyInt())).thenReturn(List.of());
+        List<Boolean> lockedWhenCarried = new ArrayList<>();
+        boolean[] locked = {false};
+        when(userBatchWriter.carryOverLiveChanges()).thenAnswer(invocation -> {
+            lockedWhenCarried.add(locked[0]);
+            return 1;
+        });
+        doAnswer(invocation -> {
+            locked[0] = true;
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(userBatchWriter).swapInShadow(any());
+
+        businessRebuildService.rebuildFromEvents();
+
+        // Once while the live table is still served, then again under the lock
+        assertEquals(List.of(false, true), lockedWhenCarried);
+    }
+
+    @Test
+    void testShadowRebuildDoesNotResumeALiveTableCheckpoint() {
+        ReflectionTestUtils.setField(businessRebuildService, "shadowTable", true);
+        ReplayCheckpoint checkpoint = new ReplayCheckpoint(BusinessRebuildService.REBUILD_CHECKPOINT_ID);
+        checkpoint.advanceTo(integrationEvent("a", T0));
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.of(checkpoint));
+        when(snapshotService.restoreLatestSnapshot(any())).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), anyInt())).thenReturn(List.of());
+
+        businessRebuildService.rebuildFromEvents();
+
+        verify(userBatchWriter).createShadowChanges();
+        verify(eventService, never()).getEventsAfter(eq(T0), eq("a"), anyInt());
+    }
+
+    @Test
+    void testApplyBatchWritesOnceForTheWholeBatch() {
+        Event created = describedEvent(null, null, EventType.CREATION, "{\"id\":1,\"username\":\"alice\"}");
+        Event edited = describedEvent(null, null, EventType.EDITION, "{\"id\":1,\"username\":\"alice2\"}");
+        Event deleted = describedEvent(null, null, EventType.DELETION, "{\"id\":2,\"username\":\"bob\"}");
+
+        List<String> upserted = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<Collection<User>>getArgument(0).forEach(user -> upserted.add(user.getUsername()));
+            deletedIds.addAll(invocation.<Collection<Long>>getArgument(1));
+            return null;
+        }).when(userBatchWriter).write(any(), any(), anyInt());
+
+        businessRebuildService.applyBatch(List.of(created, edited, deleted));
+
+        verify(userBatchWriter, times(1)).write(any(), any(), anyInt());
+        assertEquals(List.of("alice2"), upserted);
+        assertEquals(List.of(2L), deletedIds);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void testRedeliveredEventIsAppliedOnce() {
+        Event edited = event("e-1", EventType.EDITION, user(1L, "alice"), 2L);
+
+        businessRebuildService.handleEvent(edited);
+        businessRebuildService.handleEvent(edited);
+
+        verify(userRepository, times(1)).save(any());
+    }
+
+    @Test
+    void testEventOlderThanTheLastAppliedOneIsDropped() {
+        businessRebuildService.handleEvent(event("e-3", EventType.EDITION, user(1L, "alice3"), 3L));
+        businessRebuildService.handleEvent(event("e-2", EventType.EDITION, user(1L, "alice2"), 2L));
+
+        verify(userRepository, times(1)).save(argThat(user -> user.getUsername().equals("alice3")));
+        verify(userRepository, never()).save(argThat(user -> user.getUsername().equals("alice2")));
+    }
+
+    @Test
+    void testEventBehindTheStoredSequenceIsNotSaved() {
+        when(userRepository.findEventSequenceById(1L)).thenReturn(5L);
+
+        businessRebuildService.handleEvent(event("e-4", EventType.EDITION, user(1L, "alice"), 4L));
+
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void testEditionAfterTheDeletionOfItsUserIsDropped() {
+        businessRebuildService.handleEvent(event("e-3", EventType.DELETION, user(1L, "alice"), 3L));
+        businessRebuildService.handleEvent(event("e-2", EventType.EDITION, user(1L, "alice"), 2L));
+
+        verify(userRepository).delete(any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void testFailedEventIsAppliedAgainWhenRedelivered() {
+        Event edited = event("e-1", EventType.EDITION, user(1L, "alice"), 1L);
+        when(userRepository.save(any())).thenThrow(new IllegalStateException("connection reset")).thenAnswer(i -> i.getArgument(0));
+
+        assertThrows(RuntimeException.class, () -> businessRebuildService.handleEvent(edited));
+        businessRebuildService.handleEvent(edited);
+
+        verify(userRepository, times(2)).save(any());
+    }
+
+    @Test
+    void testApplyBatchDropsEventsAppliedByAnEarlierBatch() {
+        Event first = event("e-1", EventType.CREATION, user(1L, "alice"), 1L);
+        Event second = event("e-2", EventType.EDITION, user(1L, "alice2"), 2L);
+        List<String> upserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<Collection<User>>getArgument(0).forEach(user -> upserted.add(user.getUsername()));
+            return null;
+        }).when(userBatchWriter).write(any(), any(), anyInt());
+
+        businessRebuildService.applyBatch(List.of(first, second));
+        // Redelivered after a rebalance, with the creation once more out of order
+        businessRebuildService.applyBatch(List.of(second, first));
+
+        assertEquals(List.of("alice2"), upserted);
+    }
+
+    @Test
+    void testEventsWithoutAUserAreSkippedAndCounted() {
+        Event edited = event("e-1", "2", 1L);
+        edited.setType(EventType.EDITION);
+        Event deleted = event("e-2", "3", 1L);
+        deleted.setType(EventType.DELETION);
+        Event created = event("e-3", EventType.CREATION, user(1L, "alice"), 1L);
+        List<String> upserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<Collection<User>>getArgument(0).forEach(user -> upserted.add(user.getUsername()));
+            return null;
+        }).when(userBatchWriter).write(any(), any(), anyInt());
+
+        businessRebuildService.applyBatch(List.of(edited, created));
+        businessRebuildService.handleEvent(deleted);
+
+        assertEquals(List.of("alice"), upserted);
+        verify(userRepository, never()).delete(any());
+        assertEquals(2.0, meterRegistry.get("event.apply.skipped").tag("reason", "malformed").counter().count());
+    }
+
+    @Test
+    void testAppliedEventsAreOfferedForAUserSnapshotOnce() {
+        Event edited = event("e-1", EventType.EDITION, user(1L, "alice"), 2L);
+        Event created = event("e-2", EventType.CREATION, user(2L, "bob"), 1L);
+
+        businessRebuildService.handleEvent(edited);
+        businessRebuildService.handleEvent(edited);
+        businessRebuildService.applyBatch(List.of(created, edited));
+
+        verify(snapshotService, times(1)).snapshotAggregateIfDue(edited);
+        verify(snapshotService, times(1)).snapshotAggregateIfDue(created);
+    }
+}
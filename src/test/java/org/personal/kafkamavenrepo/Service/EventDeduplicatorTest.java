@@ -0,0 +1,63 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+
+public class EventDeduplicatorTest {
+
+    @Test
+    void testSameIdIsADuplicate() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10);
+        Event event = event("e-1", null, null);
+
+        assertEquals(EventDeduplicator.Verdict.APPLY, deduplicator.check(event));
+        deduplicator.recordApplied(event);
+        assertEquals(EventDeduplicator.Verdict.DUPLICATE, deduplicator.check(event("e-1", null, null)));
+    }
+
+    @Test
+    void testSequencesAreComparedPerUser() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10);
+        deduplicator.recordApplied(event("e-5", "1", 5L));
+
+        assertEquals(EventDeduplicator.Verdict.DUPLICATE, deduplicator.check(event("copy", "1", 5L)));
+        assertEquals(EventDeduplicator.Verdict.STALE, deduplicator.check(event("e-4", "1", 4L)));
+        assertEquals(EventDeduplicator.Verdict.APPLY, deduplicator.check(event("e-6", "1", 6L)));
+        assertEquals(EventDeduplicator.Verdict.APPLY, deduplicator.check(event("e-2", "2", 2L)));
+    }
+
+    @Test
+    void testOutOfOrderRecordKeepsTheHighestSequence() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10);
+        deduplicator.recordApplied(event("e-5", "1", 5L));
+        deduplicator.recordApplied(event("e-3", "1", 3L));
+
+        assertEquals(EventDeduplicator.Verdict.STALE, deduplicator.check(event("e-4", "1", 4L)));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() {
+        EventDeduplicator deduplicator = new EventDeduplicator(2);
+        deduplicator.recordApplied(event("a", null, null));
+        deduplicator.recordApplied(event("b", null, null));
+        deduplicator.check(event("a", null, null));
+        deduplicator.recordApplied(event("c", null, null));
+
+        // "b" was used least recently, so it is the one forgotten
+        assertEquals(EventDeduplicator.Verdict.APPLY, deduplicator.check(event("b", null, null)));
+        assertEquals(EventDeduplicator.Verdict.DUPLICATE, deduplicator.check(event("a", null, null)));
+        assertEquals(EventDeduplicator.Verdict.DUPLICATE, deduplicator.check(event("c", null, null)));
+    }
+
+    @Test
+    void testZeroWindowAppliesEverything() {
+        EventDeduplicator deduplicator = new EventDeduplicator(0);
+        Event event = event("e-1", "1", 1L);
+        deduplicator.recordApplied(event);
+
+        assertEquals(EventDeduplicator.Verdict.APPLY, deduplicator.check(event));
+    }
+}
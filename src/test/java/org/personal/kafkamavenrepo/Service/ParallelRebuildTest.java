@@ -0,0 +1,178 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.InMemoryRepositories;
+import org.personal.kafkamavenrepo.Persistence.Mongo.ReplayCheckpointRepository;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserBatchWriter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+import static org.personal.kafkamavenrepo.TestFixtures.integrationEvent;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+/**
+ * Replays the same event log serially and on several lanes and checks both end in the same state.
+ */
+public class ParallelRebuildTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int EVENTS = 20_000;
+    private static final int USERS = 500;
+
+    @Test
+    void testParallelRebuildMatchesSerialRebuild() {
+        List<Event> log = randomLog(new Random(42));
+
+        Map<Long, String> serial = rebuild(log, 1);
+        Map<Long, String> parallel = rebuild(log, 4);
+
+        assertEquals(expectedState(log), serial);
+        assertEquals(serial, parallel);
+    }
+
+    @Test
+    void testEventsOfOneUserShareALane() {
+        ReplayLanes lanes = new ReplayLanes(4, () -> null, (event, buffer) -> { });
+        Event stamped = event("a", T0, EventType.EDITION, user(7L, "user-7-r1"), null);
+        // Recorded before aggregate ids
+        Event legacy = event("b", T0, EventType.DELETION, user(7L, "user-7-r2"), null);
+        legacy.setAggregateId(null);
+
+        assertEquals(lanes.laneOf(stamped), lanes.laneOf(legacy));
+        lanes.close();
+    }
+
+    @Test
+    void testLanesLeaveTheConnectionHeadroomFree() {
+        BusinessRebuildService service = new BusinessRebuildService(mock(EventService.class),
+                InMemoryRepositories.userRepository(), mock(ReplayCheckpointRepository.class),
+                new UserBatchWriter(null), mock(SnapshotService.class), new SimpleMeterRegistry(), 100000);
+        ReflectionTestUtils.setField(service, "maximumPoolSize", 10);
+        ReflectionTestUtils.setField(service, "connectionHeadroom", 2);
+
+        ReflectionTestUtils.setField(service, "parallelism", 16);
+        assertEquals(8, service.replayLanes());
+        ReflectionTestUtils.setField(service, "parallelism", 4);
+        assertEquals(4, service.replayLanes());
+        ReflectionTestUtils.setField(service, "maximumPoolSize", 2);
+        assertEquals(1, service.replayLanes());
+    }
+
+    private static Map<Long, String> rebuild(List<Event> log, int parallelism) {
+        Map<Long, User> table = new ConcurrentHashMap<>();
+        UserBatchWriter writer = new UserBatchWriter(null) {
+            @Override
+            public void write(Collection<User> upserts, Collection<Long> deletes, int batchSize) {
+                upserts.forEach(user -> table.put(user.getId(), user));
+                deletes.forEach(table::remove);
+            }
+
+            @Override
+            public void resyncIdentity() {
+            }
+        };
+        ReplayCheckpointRepository checkpointRepository = mock(ReplayCheckpointRepository.class);
+        when(checkpointRepository.findById(BusinessRebuildService.REBUILD_CHECKPOINT_ID)).thenReturn(Optional.empty());
+        SnapshotService snapshotService = mock(SnapshotService.class);
+        BusinessRebuildService service = new BusinessRebuildService(pagedEventService(log),
+                InMemoryRepositories.userRepository(), checkpointRepository, writer, snapshotService,
+                new SimpleMeterRegistry(), 100000);
+        ReflectionTestUtils.setField(service, "shadowTable", false);
+        ReflectionTestUtils.setField(service, "parallelism", parallelism);
+        ReflectionTestUtils.setField(service, "pageSize", 100);
+        ReflectionTestUtils.setField(service, "checkpointInterval", 1000);
+        // Small batches so the lanes write many times and interleave
+        ReflectionTestUtils.setField(service, "writeBatchSize", 7);
+
+        service.rebuildFromEvents();
+
+        verify(checkpointRepository, times(EVENTS / 1000)).save(any());
+        return render(table);
+    }
+
+    private static EventService pagedEventService(List<Event> log) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < log.size(); i++) {
+            positions.put(log.get(i).getId(), i);
+        }
+        EventService eventService = mock(EventService.class);
+        when(eventService.countEventsFrom(any())).thenReturn((long) log.size());
+        when(eventService.getEventsAfter(any(), any(), anyInt())).thenAnswer(invocation -> {
+            String after = invocation.getArgument(1);
+            int from = after == null ? 0 : positions.get(after) + 1;
+            int to = Math.min(log.size(), from + (int) invocation.getArgument(2));
+            return new ArrayList<>(log.subList(from, to));
+        });
+        return eventService;
+    }
+
+    private static List<Event> randomLog(Random random) {
+        List<Event> log = new ArrayList<>(EVENTS);
+        Set<Long> live = new HashSet<>();
+        for (int i = 0; i < EVENTS; i++) {
+            String id = String.format("%08d", i);
+            LocalDateTime timestamp = T0.plusSeconds(i / 10);
+            if (random.nextInt(20) == 0) {
+                log.add(integrationEvent(id, timestamp));
+                continue;
+            }
+            long userId = 1 + random.nextInt(USERS);
+            EventType type;
+            if (!live.contains(userId)) {
+                type = EventType.CREATION;
+                live.add(userId);
+            } else if (random.nextInt(5) == 0) {
+                type = EventType.DELETION;
+                live.remove(userId);
+            } else {
+                type = EventType.EDITION;
+            }
+            Event event = event(id, timestamp, type, user(userId, "user-" + userId + "-r" + i), null);
+            // Some events predate aggregate ids and carry the user only in their payload
+            if (random.nextInt(4) == 0) {
+                event.setAggregateId(null);
+            }
+            log.add(event);
+        }
+        return log;
+    }
+
+    private static Map<Long, String> expectedState(List<Event> log) {
+        Map<Long, User> table = new HashMap<>();
+        for (Event event : log) {
+            switch (event.getType()) {
+                case CREATION, EDITION -> table.put(event.getPayload().getId(), event.getPayload());
+                case DELETION -> table.remove(event.getPayload().getId());
+                default -> {
+                }
+            }
+        }
+        return render(table);
+    }
+
+    private static Map<Long, String> render(Map<Long, User> table) {
+        Map<Long, String> rendered = new TreeMap<>();
+        table.forEach((id, user) -> rendered.put(id, user.getUsername()));
+        return rendered;
+    }
+}
@@ -0,0 +1,196 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserAggregateSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.describedEvent;
+
+@ExtendWith(MockitoExtension.class)
+public class PointInTimeServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private EventService eventService;
+
+    @Mock
+    private SnapshotService snapshotService;
+
+    private PointInTimeService pointInTimeService;
+
+    @BeforeEach
+    void setUp() {
+        pointInTimeService = new PointInTimeService(eventService, snapshotService);
+    }
+
+    @Test
+    void testReplaysTheWholeLogUpToTheRequestedTime() {
+        LocalDateTime asOf = T0.plusSeconds(2);
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), eq(asOf), anyInt())).thenReturn(List.of(
+                describedEvent("a", T0, EventType.CREATION, "{\"id\":1,\"username\":\"alice\"}"),
+                describedEvent("b", T0.plusSeconds(1), EventType.CREATION, "{\"id\":2,\"username\":\"bob\"}")));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(1)), eq("b"), eq(asOf), anyInt())).thenReturn(List.of(
+                describedEvent("c", T0.plusSeconds(2), EventType.DELETION, "{\"id\":1,\"username\":\"alice\"}")));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(2)), eq("c"), eq(asOf), anyInt())).thenReturn(List.of());
+
+        Map<Long, User> users = pointInTimeService.getUsersAsOf(asOf);
+
+        assertEquals(List.of(2L), List.copyOf(users.keySet()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStartsFromTheLatestSnapshotBeforeTheRequestedTime() {
+        LocalDateTime asOf = T0.plusSeconds(5);
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setId("snapshot-1");
+        snapshot.setLastTimestamp(T0);
+        snapshot.setLastEventId("a");
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.of(snapshot));
+        doAnswer(invocation -> {
+            User alice = new User();
+            alice.setId(1L);
+            alice.setUsername("alice");
+            invocation.<Consumer<List<User>>>getArgument(1).accept(List.of(alice));
+            return null;
+        }).when(snapshotService).forEachChunk(eq(snapshot), any(Consumer.class));
+        when(eventService.getEventsAfter(eq(T0), eq("a"), eq(asOf), anyInt())).thenReturn(List.of(
+                describedEvent("b", T0.plusSeconds(1), EventType.EDITION, "{\"id\":1,\"username\":\"alice2\"}")));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(1)), eq("b"), eq(asOf), anyInt())).thenReturn(List.of());
+
+        User user = pointInTimeService.getUsersAsOf(asOf).get(1L);
+
+        assertEquals("alice2", user.getUsername());
+        verify(eventService, never()).getEventsAfter(isNull(), isNull(), any(), anyInt());
+    }
+
+    @Test
+    void testSingleUserReplaysOnlyItsOwnEventsAfterTheSnapshot() {
+        LocalDateTime asOf = T0.plusSeconds(5);
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setId("snapshot-1");
+        snapshot.setLastTimestamp(T0.plusSeconds(1));
+        snapshot.setLastEventId("b");
+        User alice = new User();
+        alice.setId(1L);
+        alice.setUsername("alice");
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.of(snapshot));
+        when(snapshotService.findUser(snapshot, 1L)).thenReturn(Optional.of(alice));
+        // Everything up to b is in the snapshot already
+        when(eventService.getEventsForAggregateUpTo("1", asOf)).thenReturn(List.of(
+                describedEvent("a", T0, EventType.CREATION, "{\"id\":1,\"username\":\"ali\"}"),
+                describedEvent("b", T0.plusSeconds(1), EventType.EDITION, "{\"id\":1,\"username\":\"alice\"}"),
+                describedEvent("c", T0.plusSeconds(2), EventType.EDITION, "{\"id\":1,\"username\":\"alicia\"}")));
+
+        User user = pointInTimeService.getUserAsOf(1L, asOf);
+
+        assertEquals("alicia", user.getUsername());
+        verify(snapshotService, never()).forEachChunk(any(), any());
+        verify(eventService, never()).getEventsAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testSingleUserDeletedBeforeTheRequestedTimeIsNotFound() {
+        LocalDateTime asOf = T0.plusSeconds(5);
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.empty());
+        when(eventService.getEventsForAggregateUpTo("1", asOf)).thenReturn(List.of(
+                describedEvent("a", T0, EventType.CREATION, "{\"id\":1,\"username\":\"alice\"}"),
+                describedEvent("b", T0.plusSeconds(1), EventType.DELETION, "{\"id\":1,\"username\":\"alice\"}")));
+
+        assertNull(pointInTimeService.getUserAsOf(1L, asOf));
+    }
+
+    @Test
+    void testSingleUserStartsFromItsOwnSnapshotWhenItIsLater() {
+        LocalDateTime asOf = T0.plusSeconds(5);
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setId("snapshot-1");
+        snapshot.setLastTimestamp(T0);
+        snapshot.setLastEventId("a");
+        User alice = new User();
+        alice.setId(1L);
+        alice.setUsername("alice");
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.of(snapshot));
+        when(snapshotService.findLatestAggregateSnapshotAsOf("1", asOf)).thenReturn(Optional.of(
+                new UserAggregateSnapshot("1", 100L, T0.plusSeconds(1), "b", alice)));
+        when(eventService.getEventsForAggregateAfterSequenceUpTo("1", 100L, asOf)).thenReturn(List.of(
+                describedEvent("c", T0.plusSeconds(2), EventType.EDITION, "{\"id\":1,\"username\":\"alicia\"}")));
+
+        User user = pointInTimeService.getUserAsOf(1L, asOf);
+
+        assertEquals("alicia", user.getUsername());
+        verify(snapshotService, never()).findUser(any(), any());
+        verify(eventService, never()).getEventsForAggregateUpTo(any(), any());
+    }
+
+    @Test
+    void testSingleUserSnapshotOlderThanTheFullSnapshotIsLeftOut() {
+        LocalDateTime asOf = T0.plusSeconds(5);
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setId("snapshot-1");
+        snapshot.setLastTimestamp(T0.plusSeconds(2));
+        snapshot.setLastEventId("c");
+        User alice = new User();
+        alice.setId(1L);
+        alice.setUsername("alice");
+        User alicia = new User();
+        alicia.setId(1L);
+        alicia.setUsername("alicia");
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.of(snapshot));
+        when(snapshotService.findLatestAggregateSnapshotAsOf("1", asOf)).thenReturn(Optional.of(
+                new UserAggregateSnapshot("1", 100L, T0.plusSeconds(1), "b", alice)));
+        when(snapshotService.findUser(snapshot, 1L)).thenReturn(Optional.of(alicia));
+        when(eventService.getEventsForAggregateUpTo("1", asOf)).thenReturn(List.of());
+
+        assertEquals("alicia", pointInTimeService.getUserAsOf(1L, asOf).getUsername());
+    }
+
+    @Test
+    void testSingleUserEventWithoutAnIdAtTheSnapshotTimestampComesFirst() {
+        LocalDateTime asOf = T0.plusSeconds(5);
+        UserSnapshot snapshot = new UserSnapshot();
+        snapshot.setId("snapshot-1");
+        snapshot.setLastTimestamp(T0);
+        snapshot.setLastEventId("a");
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.of(snapshot));
+        when(snapshotService.findUser(snapshot, 1L)).thenReturn(Optional.empty());
+        when(eventService.getEventsForAggregateUpTo("1", asOf)).thenReturn(List.of(
+                describedEvent(null, T0, EventType.CREATION, "{\"id\":1,\"username\":\"alice\"}")));
+
+        assertNull(pointInTimeService.getUserAsOf(1L, asOf));
+    }
+
+    @Test
+    void testEventWithoutAUserIsSkippedRatherThanFailingTheReplay() {
+        LocalDateTime asOf = T0.plusSeconds(2);
+        when(snapshotService.findLatestSnapshotAsOf(asOf)).thenReturn(Optional.empty());
+        when(eventService.getEventsAfter(isNull(), isNull(), eq(asOf), anyInt())).thenReturn(List.of(
+                describedEvent("a", T0, EventType.CREATION, "{\"id\":1,\"username\":\"alice\"}"),
+                describedEvent("b", T0.plusSeconds(1), EventType.EDITION, null),
+                describedEvent("c", T0.plusSeconds(2), EventType.CREATION, "{\"id\":2,\"username\":\"bob\"}")));
+        when(eventService.getEventsAfter(eq(T0.plusSeconds(2)), eq("c"), eq(asOf), anyInt())).thenReturn(List.of());
+
+        Map<Long, User> users = pointInTimeService.getUsersAsOf(asOf);
+
+        assertEquals(List.of(1L, 2L), users.keySet().stream().sorted().toList());
+    }
+}
@@ -0,0 +1,74 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Snapshots.UserAggregateSnapshot;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Persistence.Mongo.UserAggregateSnapshotRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+@ExtendWith(MockitoExtension.class)
+public class SnapshotServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private UserAggregateSnapshotRepository aggregateSnapshotRepository;
+
+    private SnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        snapshotService = new SnapshotService(null, null, null, null, aggregateSnapshotRepository);
+        ReflectionTestUtils.setField(snapshotService, "aggregateEveryEvents", 10L);
+        ReflectionTestUtils.setField(snapshotService, "aggregateRetain", 3);
+    }
+
+    @Test
+    void testUserIsSnapshottedEveryFewEventsAndOldSnapshotsArePruned() {
+        for (long sequence = 1; sequence <= 30; sequence++) {
+            snapshotService.snapshotAggregateIfDue(event("e-" + sequence, T0.plusSeconds(sequence), EventType.EDITION,
+                    user(1L, "alice" + sequence), sequence));
+        }
+
+        ArgumentCaptor<UserAggregateSnapshot> saved = ArgumentCaptor.forClass(UserAggregateSnapshot.class);
+        verify(aggregateSnapshotRepository, times(3)).save(saved.capture());
+        UserAggregateSnapshot last = saved.getValue();
+        assertEquals("1:30", last.getId());
+        assertEquals(30L, last.getUser().getEventSequence());
+        assertEquals(T0.plusSeconds(30), last.getLastTimestamp());
+        assertEquals("e-30", last.getLastEventId());
+        verify(aggregateSnapshotRepository).deleteByAggregateIdAndSequenceLessThan("1", 10L);
+    }
+
+    @Test
+    void testDeletionsAreNotSnapshotted() {
+        snapshotService.snapshotAggregateIfDue(event("e-10", T0.plusSeconds(10), EventType.DELETION,
+                user(1L, "alice10"), 10L));
+
+        verify(aggregateSnapshotRepository, never()).save(any());
+    }
+
+    @Test
+    void testFailedSnapshotDoesNotFailTheEvent() {
+        when(aggregateSnapshotRepository.save(any())).thenThrow(new IllegalStateException("connection reset"));
+
+        snapshotService.snapshotAggregateIfDue(event("e-10", T0.plusSeconds(10), EventType.EDITION,
+                user(1L, "alice10"), 10L));
+
+        verify(aggregateSnapshotRepository, never()).deleteByAggregateIdAndSequenceLessThan(any(), anyLong());
+    }
+}
@@ -0,0 +1,119 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+public class UserCacheTest {
+
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        userCache = new UserCache(userRepository, meterRegistry);
+    }
+
+    @Test
+    void testLookupsAreReadThrough() {
+        when(userRepository.findByUsername("alice")).thenReturn(user(1L, "alice", 1L));
+
+        assertEquals(1L, userCache.findByUsername("alice").getId());
+        assertEquals(1L, userCache.findByUsername("alice").getId());
+        assertEquals("alice", userCache.findById(1L).orElseThrow().getUsername());
+
+        verify(userRepository, times(1)).findByUsername("alice");
+        verify(userRepository, never()).findById(any());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tags("cache", "users.by-id", "result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testChangesToAReturnedUserDoNotReachTheCache() {
+        User stored = user(1L, "alice", 1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+
+        userCache.findById(1L).orElseThrow().setUsername("mallory");
+        stored.setEmail("changed@example.com");
+
+        User cached = userCache.findById(1L).orElseThrow();
+        assertEquals("alice", cached.getUsername());
+        assertNull(cached.getEmail());
+        assertNotSame(cached, userCache.findByUsername("alice"));
+    }
+
+    @Test
+    void testEditionEventUpdatesTheCachedUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "alice", 1L)));
+        userCache.findById(1L);
+
+        userCache.apply(event(EventType.EDITION, user(1L, "alicia", null), 2L));
+
+        assertEquals("alicia", userCache.findByUsername("alicia").getUsername());
+        verify(userRepository, never()).findByUsername(any());
+        // The old username no longer matches the cached user and is read again
+        assertNull(userCache.findByUsername("alice"));
+        verify(userRepository).findByUsername("alice");
+    }
+
+    @Test
+    void testOlderEventDoesNotOverwriteTheCachedUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "alice", 3L)));
+        userCache.findById(1L);
+
+        userCache.apply(event(EventType.EDITION, user(1L, "ali", null), 2L));
+
+        assertEquals("alice", userCache.findById(1L).orElseThrow().getUsername());
+    }
+
+    @Test
+    void testDeletionEventEvictsTheUser() {
+        when(userRepository.findById(1L))
+                .thenReturn(Optional.of(user(1L, "alice", 1L)))
+                .thenReturn(Optional.empty());
+        userCache.findById(1L);
+
+        userCache.apply(event(EventType.DELETION, user(1L, "alice", null), 2L));
+
+        assertTrue(userCache.findById(1L).isEmpty());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testEventsAboutUsersNotCachedAreLeftOut() {
+        userCache.apply(event(EventType.CREATION, user(1L, "alice", null), 1L));
+
+        userCache.findById(1L);
+
+        verify(userRepository).findById(1L);
+    }
+
+    @Test
+    void testDeletingAUserGoneSinceItWasCachedPublishesNothing() {
+        OutboxService outboxService = mock(OutboxService.class);
+        UserService userService = new UserService(userRepository, outboxService, Optional.empty(), Optional.of(userCache));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "alice", 1L)));
+        userCache.findById(1L);
+        // Deleted by another instance, whose event has not arrived yet
+        when(userRepository.incrementEventSequence(1L)).thenReturn(0);
+
+        userService.deleteUser(1L);
+
+        verify(userRepository, never()).deleteUserById(any());
+        verify(outboxService, never()).enqueue(any(), any());
+    }
+}
@@ -1,28 +1,24 @@
 package org.personal.kafkamavenrepo.Service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 import org.personal.kafkamavenrepo.Config.KafkaTestConfig;
 import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
 import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
 import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Domain.Postgres.Outbox.OutboxEvent;
+import org.personal.kafkamavenrepo.Persistence.Postgres.OutboxEventRepository;
 import org.personal.kafkamavenrepo.TestKafkaMavenRepoApplication;
+import org.personal.kafkamavenrepo.Utilities.JsonUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 @ContextConfiguration(classes = {KafkaTestConfig.class, TestKafkaMavenRepoApplication.class})
@@ -34,47 +30,36 @@ public class UserServiceTest {
     private UserService userService;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
-
-    @Autowired
-    private CountDownLatch countDownLatch;
-
-    private ObjectMapper objectMapper;
+    private OutboxEventRepository outboxEventRepository;
 
     @BeforeEach
     public void setUp() {
-        objectMapper = new ObjectMapper();
+        outboxEventRepository.deleteAll();
     }
 
     @Test
-    public void testUserCreationEvent() throws Exception {
+    public void testUserCreationEvent() {
         // Arrange
         User user = new User();
         user.setUsername("testUser");
         user.setEmail("test@example.com");
 
         // Act
-        userService.createUser(user);
-
-        // Wait for the message to be consumed
-        boolean messageReceived = countDownLatch.await(10, TimeUnit.SECONDS);
-        assertTrue(messageReceived, "Message was not received by the consumer");
+        User created = userService.createUser(user);
 
-        // Capture the event from Kafka
-        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
-        verify(kafkaTemplate, times(1)).send(eq("event-topic"), messageCaptor.capture());
-
-        // Deserialize the captured message
-        Event event = objectMapper.readValue(messageCaptor.getValue(), Event.class);
+        // The event is committed to the outbox with the user; the relay publishes it later
+        OutboxEvent entry = outboxEntry(EventType.CREATION);
+        Event event = JsonUtil.deserialize(entry.getPayload(), Event.class);
 
         // Assert
+        assertEquals(String.valueOf(created.getId()), entry.getAggregateKey());
         assertEquals(EventType.CREATION, event.getType());
-        assertTrue(event.getDescription().contains("testUser"));
-        assertTrue(event.getDescription().contains("test@example.com"));
+        assertEquals("testUser", event.getPayload().getUsername());
+        assertEquals("test@example.com", event.getPayload().getEmail());
     }
 
     @Test
-    public void testUserDeletionEvent() throws Exception {
+    public void testUserDeletionEvent() {
         // Arrange
         User user = new User();
         user.setUsername("testUser");
@@ -84,20 +69,21 @@ public class UserServiceTest {
         // Act
         userService.deleteUser(user.getId());
 
-        // Wait for the message to be consumed
-        boolean messageReceived = countDownLatch.await(10, TimeUnit.SECONDS);
-        assertTrue(messageReceived, "Message was not received by the consumer");
-
-        // Capture the event from Kafka
-        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
-        verify(kafkaTemplate, times(1)).send(eq("event-topic"), messageCaptor.capture());
-
-        // Deserialize the captured message
-        Event event = objectMapper.readValue(messageCaptor.getValue(), Event.class);
+        OutboxEvent entry = outboxEntry(EventType.DELETION);
+        Event event = JsonUtil.deserialize(entry.getPayload(), Event.class);
 
         // Assert
+        assertEquals(String.valueOf(user.getId()), entry.getAggregateKey());
         assertEquals(EventType.DELETION, event.getType());
-        assertTrue(event.getDescription().contains("testUser"));
-        assertTrue(event.getDescription().contains("test@example.com"));
+        assertEquals("testUser", event.getPayload().getUsername());
+        assertEquals("test@example.com", event.getPayload().getEmail());
+    }
+
+    private OutboxEvent outboxEntry(EventType type) {
+        List<OutboxEvent> entries = outboxEventRepository.findAll().stream()
+                .filter(entry -> entry.getEventType() == type)
+                .toList();
+        assertEquals(1, entries.size(), "Expected one " + type + " event in the outbox");
+        return entries.get(0);
     }
 }
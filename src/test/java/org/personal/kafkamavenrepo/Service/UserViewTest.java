@@ -0,0 +1,143 @@
+package org.personal.kafkamavenrepo.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+import org.personal.kafkamavenrepo.Serialization.EventDeserializer;
+import org.personal.kafkamavenrepo.Serialization.EventSerializer;
+import org.personal.kafkamavenrepo.Serialization.JsonEventCodec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.event;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+public class UserViewTest {
+
+    private static final String TOPIC = "test-topic";
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Event> events;
+    private KeyValueStore<String, Event> usersByUsername;
+    private KeyValueStore<String, Event> usersById;
+
+    @BeforeEach
+    void setUp() {
+        Serde<Event> eventSerde = Serdes.serdeFrom(new EventSerializer(new JsonEventCodec(), Map.of()),
+                new EventDeserializer(new JsonEventCodec(), List.of()));
+        StreamsBuilder builder = new StreamsBuilder();
+        // In-memory stores: same tables as RocksDB, without the native library
+        UserViewTopology.define(builder, TOPIC, eventSerde, Stores::inMemoryKeyValueStore);
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "user-view-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), props);
+        events = driver.createInputTopic(TOPIC, new StringSerializer(), eventSerde.serializer());
+        usersByUsername = driver.getKeyValueStore(UserViewTopology.USERS_BY_USERNAME);
+        usersById = driver.getKeyValueStore(UserViewTopology.USERS_BY_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void testCreatedUserIsFoundByUsername() {
+        events.pipeInput("1", event(EventType.CREATION, user(1L, "alice"), 1L));
+
+        UserView view = new UserView(() -> usersByUsername, new SimpleMeterRegistry());
+
+        Optional<User> user = view.findByUsername("alice");
+        assertTrue(user.isPresent());
+        assertEquals(1L, user.get().getId());
+        assertTrue(view.findByUsername("bob").isEmpty());
+    }
+
+    @Test
+    void testRenameMovesTheUserToItsNewUsername() {
+        events.pipeInput("1", event(EventType.CREATION, user(1L, "alice"), 1L));
+        events.pipeInput("1", event(EventType.EDITION, user(1L, "alicia"), 2L));
+
+        assertNull(usersByUsername.get("alice"));
+        assertEquals("1", usersByUsername.get("alicia").getAggregateId());
+    }
+
+    @Test
+    void testUsernameTakenOverByAnotherUserIsNotFreedByTheFormerOwner() {
+        events.pipeInput("1", event(EventType.CREATION, user(1L, "alice"), 1L));
+        events.pipeInput("2", event(EventType.CREATION, user(2L, "bob"), 1L));
+        events.pipeInput("2", event(EventType.EDITION, user(2L, "alice"), 2L));
+        events.pipeInput("1", event(EventType.EDITION, user(1L, "alice-old"), 2L));
+
+        assertEquals("2", usersByUsername.get("alice").getAggregateId());
+        assertEquals("1", usersByUsername.get("alice-old").getAggregateId());
+        assertNull(usersByUsername.get("bob"));
+    }
+
+    @Test
+    void testDeletionRemovesTheUsernameAndOlderEventsDoNotRestoreIt() {
+        events.pipeInput("1", event(EventType.CREATION, user(1L, "alice"), 1L));
+        events.pipeInput("1", event(EventType.DELETION, user(1L, "alice"), 2L));
+        // A replayed dead letter, older than the deletion
+        events.pipeInput("1", event(EventType.EDITION, user(1L, "alice"), 1L));
+
+        assertNull(usersByUsername.get("alice"));
+        assertEquals(EventType.DELETION, usersById.get("1").getType());
+    }
+
+    @Test
+    void testStaleEditionDoesNotOverwriteANewerOne() {
+        events.pipeInput("1", event(EventType.CREATION, user(1L, "alice"), 1L));
+        events.pipeInput("1", event(EventType.EDITION, user(1L, "alicia"), 3L));
+        events.pipeInput("1", event(EventType.EDITION, user(1L, "ali"), 2L));
+
+        assertEquals(3L, usersById.get("1").getSequence());
+        assertNotNull(usersByUsername.get("alicia"));
+        assertNull(usersByUsername.get("ali"));
+    }
+
+    @Test
+    void testUnavailableStoreFallsBackToPostgres() {
+        UserRepository userRepository = mock(UserRepository.class);
+        User stored = user(1L, "alice");
+        when(userRepository.findByUsername("alice")).thenReturn(stored);
+        UserView view = new UserView(() -> {
+            throw new InvalidStateStoreException("rebalancing");
+        }, new SimpleMeterRegistry());
+        UserService userService = new UserService(userRepository, mock(OutboxService.class), Optional.of(view), Optional.empty());
+
+        assertSame(stored, userService.getUserByUsername("alice"));
+    }
+
+    @Test
+    void testUserServiceServesHitsFromTheView() {
+        events.pipeInput("1", event(EventType.CREATION, user(1L, "alice"), 1L));
+        UserRepository userRepository = mock(UserRepository.class);
+        UserService userService = new UserService(userRepository, mock(OutboxService.class),
+                Optional.of(new UserView(() -> usersByUsername, new SimpleMeterRegistry())), Optional.empty());
+
+        assertEquals("alice", userService.getUserByUsername("alice").getUsername());
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -0,0 +1,88 @@
+package org.personal.kafkamavenrepo.Service;
+
+import org.junit.jupiter.api.Test;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserBatchWriter;
+import org.personal.kafkamavenrepo.Persistence.Postgres.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.personal.kafkamavenrepo.TestFixtures.user;
+
+public class UserWriteBufferTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangesCollapseToFinalStatePerUser() {
+        UserBatchWriter writer = mock(UserBatchWriter.class);
+        List<User> upserted = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        doAnswer(invocation -> {
+            upserted.addAll(invocation.getArgument(0, Collection.class));
+            deleted.addAll(invocation.getArgument(1, Collection.class));
+            return null;
+        }).when(writer).write(any(), any(), anyInt());
+        UserWriteBuffer buffer = new UserWriteBuffer(writer, mock(UserRepository.class), 100, Long.MAX_VALUE);
+
+        buffer.upsert(user(1L, "first"));
+        buffer.upsert(user(1L, "renamed"));
+        buffer.upsert(user(2L, "doomed"));
+        buffer.delete(user(2L, "doomed"));
+        buffer.delete(user(3L, "recreated"));
+        buffer.upsert(user(3L, "recreated"));
+        buffer.flush();
+
+        assertEquals(List.of("renamed", "recreated"), upserted.stream().map(User::getUsername).toList());
+        assertEquals(List.of(2L), deleted);
+        assertEquals(0, buffer.size());
+        assertEquals(3, buffer.getWritten());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOlderChangeDoesNotReplaceANewerPendingOne() {
+        UserBatchWriter writer = mock(UserBatchWriter.class);
+        List<User> upserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            upserted.addAll(invocation.getArgument(0, Collection.class));
+            return null;
+        }).when(writer).write(any(), any(), anyInt());
+        UserWriteBuffer buffer = new UserWriteBuffer(writer, mock(UserRepository.class), 100, Long.MAX_VALUE);
+
+        buffer.upsert(user(1L, "third", 3L));
+        buffer.upsert(user(1L, "second", 2L));
+        buffer.upsert(user(2L, "unsequenced"));
+        buffer.upsert(user(2L, "still unsequenced"));
+        buffer.flush();
+
+        assertEquals(List.of("third", "still unsequenced"), upserted.stream().map(User::getUsername).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushIfDueWritesOnceBatchSizeIsReached() {
+        UserBatchWriter writer = mock(UserBatchWriter.class);
+        // Copied as it is written: the buffer reuses its collections once flushed
+        List<User> upserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            upserted.addAll(invocation.getArgument(0, Collection.class));
+            return null;
+        }).when(writer).write(any(), any(), anyInt());
+        UserWriteBuffer buffer = new UserWriteBuffer(writer, mock(UserRepository.class), 2, Long.MAX_VALUE);
+
+        buffer.upsert(user(1L, "a"));
+        buffer.flushIfDue();
+        verify(writer, never()).write(any(), any(), anyInt());
+
+        buffer.upsert(user(2L, "b"));
+        buffer.flushIfDue();
+        verify(writer).write(any(), any(), eq(2));
+        assertEquals(List.of("a", "b"), upserted.stream().map(User::getUsername).toList());
+        assertEquals(0, buffer.size());
+    }
+}
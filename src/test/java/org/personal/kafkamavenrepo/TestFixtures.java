@@ -0,0 +1,86 @@
+package org.personal.kafkamavenrepo;
+
+import org.personal.kafkamavenrepo.Domain.MongoDB.Events.Event;
+import org.personal.kafkamavenrepo.Domain.MongoDB.ValueObjects.EventType;
+import org.personal.kafkamavenrepo.Domain.Postgres.BusinessObjects.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shared users and events for the tests.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    public static User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
+    }
+
+    public static User user(Long id, String username, Long eventSequence) {
+        User user = user(id, username);
+        user.setEventSequence(eventSequence);
+        return user;
+    }
+
+    /**
+     * An event about a user, keyed by the user's id.
+     */
+    public static Event event(EventType type, User user, Long sequence) {
+        return event(null, type, user, sequence);
+    }
+
+    public static Event event(String id, EventType type, User user, Long sequence) {
+        Event event = new Event();
+        event.setId(id);
+        event.setType(type);
+        event.setPayload(user);
+        event.setAggregateId(String.valueOf(user.getId()));
+        event.setSequence(sequence);
+        return event;
+    }
+
+    public static Event event(String id, LocalDateTime timestamp, EventType type, User user, Long sequence) {
+        Event event = event(id, type, user, sequence);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+
+    /**
+     * A legacy event, which carries its user only as JSON in its description.
+     */
+    public static Event describedEvent(String id, LocalDateTime timestamp, EventType type, String description) {
+        Event event = new Event();
+        event.setId(id);
+        event.setTimestamp(timestamp);
+        event.setType(type);
+        event.setDescription(description);
+        return event;
+    }
+
+    /**
+     * An event that does not touch the users.
+     */
+    public static Event integrationEvent(String id, LocalDateTime timestamp) {
+        Event event = new Event();
+        event.setId(id);
+        event.setType(EventType.INTEGRATION);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+
+    /**
+     * An event with only what deduplication looks at, and no type or user.
+     */
+    public static Event event(String id, String aggregateId, Long sequence) {
+        Event event = new Event();
+        event.setId(id);
+        event.setAggregateId(aggregateId);
+        event.setSequence(sequence);
+        return event;
+    }
+}
@@ -0,0 +1,48 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsoLocalDateTimeDeserializerTest {
+
+    @Test
+    void testParsesEveryPrecisionWeWrite() {
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30), parse("2024-05-17T10:30"));
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30, 15), parse("2024-05-17T10:30:15"));
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30, 15, 100_000_000), parse("2024-05-17T10:30:15.1"));
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30, 15, 123_456_000), parse("2024-05-17T10:30:15.123456"));
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30, 15, 123_456_789), parse("2024-05-17T10:30:15.123456789"));
+    }
+
+    @Test
+    void testLeavesOtherLayoutsToTheStockDeserializer() {
+        assertNull(parse("2024-05-17"));
+        assertNull(parse("2024-05-17 10:30:15"));
+        assertNull(parse("2024-05-17T10:30:15Z"));
+        assertNull(parse("2024-05-17T10:30:15.1234567891"));
+        assertNull(parse("2024-13-17T10:30:15"));
+        assertNull(parse("+12024-05-17T10:30"));
+    }
+
+    @Test
+    void testJsonUtilReadsBothFastAndFallbackLayouts() {
+        record Stamp(LocalDateTime at) {
+        }
+
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30, 15, 5_000_000),
+                JsonUtil.deserialize("{\"at\":\"2024-05-17T10:30:15.005\"}", Stamp.class).at());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30, 15),
+                JsonUtil.deserialize("{\"at\":\"2024-05-17T10:30:15Z\"}", Stamp.class).at());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 10, 30),
+                JsonUtil.deserialize("{\"at\":[2024,5,17,10,30]}", Stamp.class).at());
+        assertThrows(RuntimeException.class, () -> JsonUtil.deserialize("{\"at\":\"2024-02-30T10:30\"}", Stamp.class));
+    }
+
+    private static LocalDateTime parse(String text) {
+        char[] padded = ("xx" + text + "yy").toCharArray();
+        return IsoLocalDateTimeDeserializer.parse(padded, 2, text.length());
+    }
+}
@@ -0,0 +1,51 @@
+package org.personal.kafkamavenrepo.Utilities;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogRateLimiterTest {
+
+    @AfterEach
+    void restoreDefaultRate() {
+        LogRateLimiter.configure(100);
+        LogRateLimiter.drainSuppressed();
+    }
+
+    @Test
+    void testLinesOverTheCapAreDroppedAndCounted() {
+        LogRateLimiter.configure(5);
+        LogRateLimiter.drainSuppressed();
+        LogRateLimiter limiter = new LogRateLimiter();
+
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (limiter.tryAcquire()) {
+                allowed++;
+            }
+        }
+
+        // The loop may straddle a second boundary, which grants a fresh allowance
+        assertTrue(allowed >= 5 && allowed <= 10, "Allowed " + allowed + " lines");
+        assertEquals(20 - allowed, LogRateLimiter.drainSuppressed());
+        assertEquals(0, LogRateLimiter.drainSuppressed());
+    }
+
+    @Test
+    void testEachCallSiteHasItsOwnAllowance() {
+        LogRateLimiter.configure(1);
+        LogRateLimiter first = new LogRateLimiter();
+        LogRateLimiter second = new LogRateLimiter();
+
+        assertTrue(first.tryAcquire());
+        assertTrue(second.tryAcquire());
+    }
+
+    @Test
+    void testZeroDropsEveryLine() {
+        LogRateLimiter.configure(0);
+
+        assertFalse(new LogRateLimiter().tryAcquire());
+    }
+}